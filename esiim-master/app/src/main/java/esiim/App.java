@@ -9,6 +9,7 @@ import esiim.modeler.entity.Process;
 import esiim.modeler.entity.Product;
 import esiim.modeler.entity.ProductFlow;
 import esiim.modeler.entity.ProductSystem;
+import esiim.modeler.entity.SymbolTable;
 import esiim.modeler.exception.InvalidParseDataException;
 import esiim.modeler.exception.InvalidParsedEmissionsDataException;
 import esiim.modeler.boundary.ModelerService;
@@ -19,8 +20,15 @@ import esiim.exporter.exception.InvalidProductException;
 
 import esiim.calculator.boundary.CalculatorService;
 import esiim.calculator.controller.Calculator;
+import esiim.calculator.entity.PcfResult;
 import esiim.calculator.exception.InvalidCalculationException;
 
+import esiim.cache.boundary.CacheService;
+import esiim.cache.controller.Cache;
+
+import esiim.follower.boundary.FollowerService;
+import esiim.follower.controller.Follower;
+
 import esiim.parser.boundary.ParserService;
 import esiim.parser.controller.Parser;
 import esiim.parser.entity.ParsedData;
@@ -31,6 +39,9 @@ import esiim.parser.exception.InvalidDataException;
  * Class to run the application
  */
 public class App {
+    private static final long FOLLOW_INTERVAL_MILLIS = 1000;
+    private static final String STDIN_ARGUMENT = "-";
+    private static final String CACHE_DIRECTORY = Cache.defaultDirectory();
 
     /**
      * Main method to run the application
@@ -45,23 +56,30 @@ public class App {
         String filePath = "app/src/main/resources/shoe_production.csv";
         String emissionsFilePath = "app/src/main/resources/emissions.csv";
 
+        if (args.length > 0 && args[0].equals("--follow")) {
+            follow(args.length > 1 ? args[1] : filePath, emissionsFilePath);
+            return;
+        }
+
         try {
             ParserService parser = new Parser();
-            ParsedData parsedData = parser.parseCsv(filePath);
-            ParsedEmissionsData parsedEmissionsData = parser.parseEmissionsCsv(emissionsFilePath);
-
-            ModelerService modeler = new Modeler();
+            ParsedData parsedData = args.length > 0 && args[0].equals(STDIN_ARGUMENT)
+                    ? parser.parseCsv(System.in)
+                    : parser.parseCsv(filePath);
+            SymbolTable symbols = new SymbolTable();
+            CacheService cache = new Cache(CACHE_DIRECTORY, symbols);
+            List<Emission> emissionsList = cache.loadEmissions(emissionsFilePath);
+
+            ModelerService modeler = new Modeler(symbols);
             Product product = modeler.modelProduct(parsedData);
-            List<Emission> emissionsList = modeler.modelEmission(parsedEmissionsData);
 
             CalculatorService calculator = new Calculator();
-            calculator.calculatePcf(product, emissionsList);
+            PcfResult result = calculator.evaluatePcf(product, emissionsList);
 
             ExporterService exporter = new Exporter();
-            exporter.exportToCsv(product);
+            exporter.exportToCsv(product, result);
 
             //printProductString(parsedData);
-            //printEmissionsData(parsedEmissionsData);
             
             //printProductDetails(product);
             //printEmissionsDetails(emissionsList);
@@ -70,6 +88,44 @@ public class App {
         }
     }
 
+    /**
+     * Follow a product file that is still being written, printing the PCF whenever rows are appended
+     * @param filePath the product file path
+     * @param emissionsFilePath the emissions file path
+     */
+    private static void follow(String filePath, String emissionsFilePath) {
+        SymbolTable symbols = new SymbolTable();
+        List<Emission> emissionsList;
+        try {
+            emissionsList = new Cache(CACHE_DIRECTORY, symbols).loadEmissions(emissionsFilePath);
+        } catch (InvalidDataException | InvalidParsedEmissionsDataException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        FollowerService follower = new Follower(filePath, emissionsList, symbols);
+        long rejected = 0;
+        while (true) {
+            try {
+                if (follower.poll() > 0) {
+                    System.out.println("Rows: " + follower.getRecords() + ", PCF: " + follower.getProduct().getPcf());
+                }
+                if (follower.getRejected() != rejected) {
+                    rejected = follower.getRejected();
+                    System.out.println("Rows skipped: " + rejected + ", last: " + follower.getLastRejection());
+                }
+            } catch (InvalidDataException e) {
+                System.out.println(e.getMessage());
+            }
+            try {
+                Thread.sleep(FOLLOW_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
     /*
      * Print the product string
      * @param parsedData
@@ -0,0 +1,16 @@
+package esiim.cache.boundary;
+
+import java.util.List;
+
+import esiim.modeler.entity.Emission;
+import esiim.modeler.exception.InvalidParsedEmissionsDataException;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Cache emissions service interface.
+ */
+public interface CacheEmissionsService {
+    public List<Emission> loadEmissions(String filePath) throws InvalidDataException, InvalidParsedEmissionsDataException;
+    public long getHits();
+    public long getMisses();
+}
@@ -0,0 +1,8 @@
+package esiim.cache.boundary;
+
+/**
+ * Cache service interface.
+ */
+public interface CacheService extends CacheEmissionsService {
+    
+}
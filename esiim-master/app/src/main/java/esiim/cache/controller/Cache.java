@@ -0,0 +1,463 @@
+package esiim.cache.controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import esiim.cache.boundary.CacheService;
+import esiim.modeler.boundary.ModelerService;
+import esiim.modeler.controller.Modeler;
+import esiim.modeler.entity.Emission;
+import esiim.modeler.entity.SymbolTable;
+import esiim.modeler.entity.enums.Category;
+import esiim.modeler.entity.enums.Unit;
+import esiim.modeler.exception.InvalidParsedEmissionsDataException;
+import esiim.parser.boundary.ParserService;
+import esiim.parser.controller.Parser;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * On-disk cache of modeled emissions, kept across runs.
+ * Each emissions file has one entry, named after its path, that holds the size, modification time
+ * and SHA-256 hash of the content it was built from, followed by the emissions in a compact binary
+ * form. An entry is reused while the size and modification time of the file are unchanged; when they
+ * differ, or the file was modified too close to the time the entry was written for its modification
+ * time to be trusted, the content hash decides. Any other entry is rebuilt by parsing and modeling
+ * the file again. The entries are capped in total size, evicting the least recently used first.
+ * The entries are trusted as modeled emissions, so the directory must belong to the current user
+ * and be writable by no one else; it is created so when missing, and any other directory, or a
+ * symbolic link, is not used at all.
+ * The cache only saves work: an entry that cannot be read or written is simply rebuilt or skipped.
+ */
+public class Cache implements CacheService {
+    private static final int MAGIC = 0x45534943;
+    private static final int VERSION = 1;
+    private static final long DEFAULT_MAX_BYTES = 64L << 20;
+    private static final long RACY_WINDOW_MILLIS = 2000;
+    private static final int HASH_LENGTH = 32;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final int ENUM_FINGERPRINT = 31 * fingerprint(Category.values()) + fingerprint(Unit.values());
+
+    private final Path directory;
+    private final long maxBytes;
+    private final SymbolTable symbols;
+    private final ParserService parser = new Parser();
+    private final ModelerService modeler;
+    private long lastAccess;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructor for a cache capped at 64 MiB.
+     *
+     * @param directoryPath the directory that holds the entries, created if it does not exist
+     */
+    public Cache(String directoryPath) {
+        this(directoryPath, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructor for a cache capped at 64 MiB.
+     *
+     * @param directoryPath the directory that holds the entries, created if it does not exist
+     * @param symbols the symbol table of the run, which encodes the names of the emissions
+     */
+    public Cache(String directoryPath, SymbolTable symbols) {
+        this(directoryPath, DEFAULT_MAX_BYTES, symbols);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param directoryPath the directory that holds the entries, created if it does not exist
+     * @param maxBytes the maximum total size of the entries
+     */
+    public Cache(String directoryPath, long maxBytes) {
+        this(directoryPath, maxBytes, new SymbolTable());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param directoryPath the directory that holds the entries, created if it does not exist
+     * @param maxBytes the maximum total size of the entries
+     * @param symbols the symbol table of the run, which encodes the names of the emissions
+     */
+    public Cache(String directoryPath, long maxBytes, SymbolTable symbols) {
+        this.directory = Paths.get(directoryPath);
+        this.maxBytes = maxBytes;
+        this.symbols = symbols;
+        this.modeler = new Modeler(symbols);
+    }
+
+    /**
+     * Returns the default directory of the cache, private to the current user: the esiim directory
+     * under {@code XDG_CACHE_HOME} if it is set to an absolute path, or under {@code ~/.cache}.
+     *
+     * @return the directory path
+     */
+    public static String defaultDirectory() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        Path base = cacheHome != null && !cacheHome.isEmpty() && Paths.get(cacheHome).isAbsolute()
+                ? Paths.get(cacheHome)
+                : Paths.get(System.getProperty("user.home"), ".cache");
+        return base.resolve("esiim").toString();
+    }
+
+    /**
+     * Loads the emissions of a CSV file, as parsing it with {@link Parser#parseEmissionsCsv(String)}
+     * and modeling it with {@link Modeler#modelEmission} would, reusing the cached emissions if the
+     * file has not changed since they were built.
+     *
+     * @param filePath the file path
+     * @return the emissions
+     * @throws InvalidDataException if the file is invalid
+     * @throws InvalidParsedEmissionsDataException if the emissions cannot be modeled
+     */
+    public List<Emission> loadEmissions(String filePath) throws InvalidDataException, InvalidParsedEmissionsDataException {
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        Path entry = directory.resolve(sha256(file.toString().getBytes(StandardCharsets.UTF_8)) + ENTRY_SUFFIX);
+        boolean usable = openDirectory();
+        BasicFileAttributes before = usable ? stat(file) : null;
+        if (before != null) {
+            List<Emission> cached = readEntry(entry, file, before);
+            if (cached != null) {
+                hits++;
+                touch(entry);
+                return cached;
+            }
+        }
+
+        misses++;
+        byte[] hash = before == null ? null : hashFile(file);
+        List<Emission> emissions = modeler.modelEmission(parser.parseEmissionsCsv(filePath));
+        BasicFileAttributes after = stat(file);
+        if (hash != null && after != null && sameStamp(before, after)) {
+            writeEntry(entry, after, hash, emissions);
+        }
+        return emissions;
+    }
+
+    /**
+     * Returns the number of loads served from the cache.
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of loads that parsed and modeled the file.
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Reads the entry of a file, if it was built from the current content of the file.
+     * An entry that is only valid by its content hash is written again with the current stamp of the
+     * file, so the next load can trust the stamp.
+     *
+     * @param entry the entry path
+     * @param file the file path
+     * @param stamp the attributes of the file
+     * @return the emissions, or null if the entry is missing, unreadable or stale
+     */
+    private List<Emission> readEntry(Path entry, Path file, BasicFileAttributes stamp) {
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        byte[] hash = new byte[HASH_LENGTH];
+        boolean trusted;
+        List<Emission> emissions;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != ENUM_FINGERPRINT) {
+                return null;
+            }
+            long size = in.readLong();
+            long modified = in.readLong();
+            long written = in.readLong();
+            in.readFully(hash);
+            if (size != stamp.size()) {
+                return null;
+            }
+            long fileModified = stamp.lastModifiedTime().toMillis();
+            trusted = modified == fileModified && fileModified + RACY_WINDOW_MILLIS <= written;
+            if (!trusted && !Arrays.equals(hash, hashFile(file))) {
+                return null;
+            }
+
+            Category[] categories = Category.values();
+            Unit[] units = Unit.values();
+            int count = in.readInt();
+            emissions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                Category category = categories[in.readUnsignedByte()];
+                Unit unit = units[in.readUnsignedByte()];
+                double quantity = in.readDouble();
+                double emissionFactor = in.readDouble();
+                Emission emission = new Emission(name, category, unit, quantity, emissionFactor);
+                emission.setSymbolTable(symbols);
+                emissions.add(emission);
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+
+        if (!trusted) {
+            writeEntry(entry, stamp, hash, emissions);
+        }
+        return emissions;
+    }
+
+    /**
+     * Writes the entry of a file to a temporary file and moves it into place, so a concurrent run never
+     * reads a partial entry, and then evicts the least recently used entries over the cap.
+     *
+     * @param entry the entry path
+     * @param stamp the attributes of the file the emissions were built from
+     * @param hash the content hash of the file
+     * @param emissions the emissions
+     */
+    private void writeEntry(Path entry, BasicFileAttributes stamp, byte[] hash, List<Emission> emissions) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(ENUM_FINGERPRINT);
+                out.writeLong(stamp.size());
+                out.writeLong(stamp.lastModifiedTime().toMillis());
+                out.writeLong(System.currentTimeMillis());
+                out.write(hash);
+                out.writeInt(emissions.size());
+                for (Emission emission : emissions) {
+                    out.writeUTF(emission.getName());
+                    out.writeByte(emission.getCategory().ordinal());
+                    out.writeByte(emission.getUnit().ordinal());
+                    out.writeDouble(emission.getQuantity());
+                    out.writeDouble(emission.getEmissionFactor());
+                }
+            }
+            try {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+            touch(entry);
+            evict();
+        } catch (IOException e) {
+            // The entry is skipped and will be built again on the next load
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Left for the operating system to clean up
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the directory of the cache, readable and writable by the current user only, if it is
+     * missing, and checks that it can be trusted: that it is a directory rather than a symbolic link,
+     * that it belongs to the current user and that no one else can write to it.
+     *
+     * @return true if the directory can be used, false otherwise
+     */
+    private boolean openDirectory() {
+        try {
+            boolean posix = Files.getFileAttributeView(directory.toAbsolutePath().getRoot(), PosixFileAttributeView.class) != null;
+            if (Files.notExists(directory, LinkOption.NOFOLLOW_LINKS)) {
+                Path parent = directory.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                try {
+                    if (posix) {
+                        Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+                    } else {
+                        Files.createDirectory(directory);
+                    }
+                } catch (FileAlreadyExistsException e) {
+                    // Created by another process, and checked below like any existing directory
+                }
+            }
+
+            UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!posix) {
+                return Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)
+                        && user.equals(Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS));
+            }
+            PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attributes.isDirectory()
+                    && user.equals(attributes.owner())
+                    && !attributes.permissions().contains(PosixFilePermission.GROUP_WRITE)
+                    && !attributes.permissions().contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the entries fit in the cap.
+     *
+     * @throws IOException if the directory cannot be listed
+     */
+    private void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        List<BasicFileAttributes> attributes = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path entry : files) {
+                BasicFileAttributes stamp = stat(entry);
+                if (stamp != null) {
+                    entries.add(entry);
+                    attributes.add(stamp);
+                    total += stamp.size();
+                }
+            }
+        }
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> attributes.get(a).lastModifiedTime().compareTo(attributes.get(b).lastModifiedTime()));
+        for (int i = 0; i < order.length && total > maxBytes; i++) {
+            Files.deleteIfExists(entries.get(order[i]));
+            total -= attributes.get(order[i]).size();
+        }
+    }
+
+    /**
+     * Marks an entry as the most recently used one. Each mark is later than the previous one, so
+     * entries used within the same millisecond keep their order.
+     *
+     * @param entry the entry path
+     */
+    private void touch(Path entry) {
+        lastAccess = Math.max(System.currentTimeMillis(), lastAccess + 1);
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(lastAccess));
+        } catch (IOException e) {
+            // The entry keeps its previous place in the eviction order
+        }
+    }
+
+    /**
+     * Hashes the content of a file.
+     *
+     * @param file the file path
+     * @return the SHA-256 hash, or null if the file cannot be read
+     */
+    private static byte[] hashFile(Path file) {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Hashes bytes into a hexadecimal string.
+     *
+     * @param bytes the bytes
+     * @return the SHA-256 hash, in hexadecimal
+     */
+    private static String sha256(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * HASH_LENGTH);
+        for (byte b : newDigest().digest(bytes)) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Creates a SHA-256 digest, which every Java platform provides.
+     *
+     * @return the digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the attributes of a file.
+     *
+     * @param file the file path
+     * @return the attributes, or null if the file cannot be read
+     */
+    private static BasicFileAttributes stat(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if two reads of the attributes of a file have the same size and modification time.
+     *
+     * @param a the first attributes
+     * @param b the second attributes
+     * @return true if they match, false otherwise
+     */
+    private static boolean sameStamp(BasicFileAttributes a, BasicFileAttributes b) {
+        return a.size() == b.size() && a.lastModifiedTime().equals(b.lastModifiedTime());
+    }
+
+    /**
+     * Fingerprints the constants of an enum, so entries written with other constants are not decoded.
+     *
+     * @param constants the constants
+     * @return the fingerprint
+     */
+    private static int fingerprint(Enum<?>[] constants) {
+        int fingerprint = 0;
+        for (Enum<?> constant : constants) {
+            fingerprint = 31 * fingerprint + constant.name().hashCode();
+        }
+        return fingerprint;
+    }
+}
@@ -1,7 +1,11 @@
 package esiim.calculator.boundary;
 
 import java.util.List;
+import esiim.modeler.entity.FlowTable;
+import esiim.modeler.entity.Process;
 import esiim.modeler.entity.Product;
+import esiim.modeler.entity.ProductFlow;
+import esiim.calculator.entity.PcfResult;
 import esiim.calculator.exception.InvalidCalculationException;
 import esiim.modeler.entity.Emission;
 
@@ -10,4 +14,8 @@ import esiim.modeler.entity.Emission;
  */
 public interface PcfCalculatorService{
     public void calculatePcf(Product product, List<Emission> emissions) throws InvalidCalculationException;   
+    public PcfResult evaluatePcf(Product product, List<Emission> emissions) throws InvalidCalculationException;
+    public void calculateFlowTablePcf(FlowTable table, List<Emission> emissions) throws InvalidCalculationException;
+    public double calculateAppendedPcf(Product product, Process process, ProductFlow productFlow, List<Emission> emissions) throws InvalidCalculationException;
+    public double evaluateAppendedPcf(PcfResult result, Process process, ProductFlow productFlow, List<Emission> emissions) throws InvalidCalculationException;
 }
\ No newline at end of file
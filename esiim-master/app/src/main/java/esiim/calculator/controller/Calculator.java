@@ -5,12 +5,16 @@ import java.util.List;
 
 import esiim.modeler.entity.Process;
 import esiim.calculator.boundary.CalculatorService;
+import esiim.calculator.entity.PcfResult;
 import esiim.calculator.exception.InvalidCalculationException;
 import esiim.modeler.entity.Emission;
 import esiim.modeler.entity.Flow;
+import esiim.modeler.entity.FlowTable;
+import esiim.modeler.entity.LazyProduct;
 import esiim.modeler.entity.Product;
 import esiim.modeler.entity.ProductFlow;
 import esiim.modeler.entity.ProductSystem;
+import esiim.modeler.entity.SymbolTable;
 import esiim.modeler.entity.enums.Category;
 import esiim.modeler.entity.enums.FlowType;
 import esiim.modeler.entity.enums.Unit;
@@ -21,12 +25,45 @@ import esiim.modeler.entity.enums.Unit;
 public class Calculator implements CalculatorService {
 
     /**
-     * Calculate the Product Carbon Footprint (PCF) of a product.
+     * Calculate the Product Carbon Footprint (PCF) of a product, adding the emission flows to each
+     * product flow and setting the PCF of each product flow, each process and the product.
+     * The emission flows of an earlier calculation are replaced, so calculating a product again
+     * leaves it as calculating it once does. Use {@link #evaluatePcf(Product, List)} to leave a
+     * shared product unchanged.
+     * A lazy product whose flows were not created yet is calculated on its flow table, without
+     * creating them, even if its processes and product flows were read.
      * @param product the product
      * @param emissions the emissions
      * @throws InvalidCalculationException if an error occurs in the calculation
      */
     public void calculatePcf(Product product, List<Emission> emissions) throws InvalidCalculationException {
+        if (product instanceof LazyProduct && !((LazyProduct) product).isMaterialized()) {
+            calculateFlowTablePcf(((LazyProduct) product).getFlowTable(), emissions);
+            return;
+        }
+        PcfResult result = evaluatePcf(product, emissions);
+
+        for (Process process : product.getProductSystem().getProcesses()) {
+            for (ProductFlow productFlow : process.getProductFlows()) {
+                productFlow.setPcf(result.getPcf(productFlow));
+                replaceEmissionFlows(productFlow.getFlows(), result.getEmissionFlows(productFlow));
+            }
+            process.setPcf(result.getPcf(process));
+        }
+        product.setPcf(result.getPcf());
+    }
+
+    /**
+     * Evaluate the Product Carbon Footprint (PCF) of a product without changing it, returning the
+     * PCF of each node and the emission flows in a separate result. The product is only read, so it
+     * can be evaluated by several threads at once; a {@link LazyProduct} creates its object graph
+     * under a lock on the first evaluation.
+     * @param product the product
+     * @param emissions the emissions
+     * @return the result
+     * @throws InvalidCalculationException if an error occurs in the calculation
+     */
+    public PcfResult evaluatePcf(Product product, List<Emission> emissions) throws InvalidCalculationException {
         if (product == null) {
             throw new InvalidCalculationException("Product cannot be null.");
         }
@@ -39,6 +76,7 @@ public class Calculator implements CalculatorService {
             throw new InvalidCalculationException("Product system must contain processes.");
         }
 
+        PcfResult result = new PcfResult();
         double totalEmissions = 0.0;
 
         for (Process process : productSystem.getProcesses()) {
@@ -53,38 +91,201 @@ public class Calculator implements CalculatorService {
                 }
 
                 double productFlowEmissions = 0.0;
-                List<Flow> newFlows = new ArrayList<>();
+                List<Flow> emissionFlows = new ArrayList<>();
                 for (Flow inputFlow : productFlow.getFlows()) {
-                    if (inputFlow.getType() != FlowType.Input) {
-                        continue;
-                    }
+                    productFlowEmissions += calculateFlowPcf(inputFlow, emissions, emissionFlows);
+                }
+                result.setPcf(productFlow, productFlowEmissions, emissionFlows);
+                processEmissions += productFlowEmissions;
+            }
+            result.setPcf(process, processEmissions);
+            totalEmissions += processEmissions;
+        }
+
+        result.setPcf(totalEmissions);
+        return result;
+    }
+
+    /**
+     * Calculate the Product Carbon Footprint (PCF) of a product held in a flow table, adding an
+     * output flow for each input flow and setting the PCF of each product flow, each process and
+     * the product, as {@link #calculatePcf(Product, List)} does for the object graph.
+     * The emission flows derived by an earlier calculation, which come in the order of their input
+     * flows, are updated in place rather than added again.
+     * @param table the flow table
+     * @param emissions the emissions
+     * @throws InvalidCalculationException if an error occurs in the calculation
+     */
+    public void calculateFlowTablePcf(FlowTable table, List<Emission> emissions) throws InvalidCalculationException {
+        if (table == null) {
+            throw new InvalidCalculationException("Flow table cannot be null.");
+        }
+        if (emissions == null) {
+            throw new InvalidCalculationException("List of emissions cannot be null.");
+        }
+        if (table.getProcessCount() == 0) {
+            throw new InvalidCalculationException("Product system must contain processes.");
+        }
 
-                    Emission matchingEmission = findMatchingEmission(inputFlow, emissions);
-                    if (matchingEmission != null) {
-                        double emissionQuantity = inputFlow.getQuantity() * matchingEmission.getEmissionFactor();
+        SymbolTable symbols = table.getSymbolTable();
+        double totalEmissions = 0.0;
+        for (int process = 0; process < table.getProcessCount(); process++) {
+            double processEmissions = 0.0;
+            for (int productFlow = table.getFirstProductFlow(process); productFlow != FlowTable.NONE;
+                    productFlow = table.getNextProductFlow(productFlow)) {
+                double productFlowEmissions = 0.0;
+                int last = table.getLastFlow(productFlow);
+                int earlier = nextDerivedFlow(table, table.getFirstFlow(productFlow), last);
+                for (int flow = table.getFirstFlow(productFlow); ; flow = table.getNextFlow(flow)) {
+                    if (table.getType(flow) == FlowType.Input) {
+                        int nameId = table.getNameId(flow);
+                        String name = symbols.decode(nameId);
+                        Emission matchingEmission = findMatchingEmission(table.getCategory(flow), table.getUnit(flow),
+                                symbols, nameId, name, emissions);
+                        if (matchingEmission == null) {
+                            throw new InvalidCalculationException("No matching emission found for input flow: " + name);
+                        }
+                        double emissionQuantity = calculateEmissionQuantity(table.getQuantity(flow), table.getUnit(flow), matchingEmission);
                         productFlowEmissions += emissionQuantity;
-                        Flow outputFlow = new Flow(
-                            inputFlow.getName() + " Emission",
-                            Unit.KgCO2,
-                            Category.AirEmission,
-                            emissionQuantity,
-                            FlowType.Output,
-                            inputFlow.getOriginCountry()
-                        );
-                        newFlows.add(outputFlow);
-                    } else {
-                        throw new InvalidCalculationException("No matching emission found for input flow: " + inputFlow.getName());
+                        if (earlier == FlowTable.NONE) {
+                            int emissionFlow = table.addFlow(productFlow, symbols.encode(name + " Emission"), Unit.KgCO2,
+                                    Category.AirEmission, emissionQuantity, null, FlowType.Output, table.getOriginCountryId(flow));
+                            table.setDerived(emissionFlow, true);
+                        } else {
+                            table.setQuantity(earlier, emissionQuantity);
+                            earlier = earlier == last ? FlowTable.NONE : nextDerivedFlow(table, table.getNextFlow(earlier), last);
+                        }
+                    }
+                    if (flow == last) {
+                        break;
                     }
                 }
-                productFlow.getFlows().addAll(newFlows);
-                productFlow.setPcf(productFlowEmissions);
+                table.setProductFlowPcf(productFlow, productFlowEmissions);
                 processEmissions += productFlowEmissions;
             }
-            process.setPcf(processEmissions);
+            table.setProcessPcf(process, processEmissions);
             totalEmissions += processEmissions;
         }
 
-        product.setPcf(totalEmissions);
+        table.setPcf(totalEmissions);
+    }
+
+    /**
+     * Add the PCF of a flow appended to a product whose PCF is already calculated, as the last flow
+     * of a new or existing product flow, updating the totals of the product flow, its process and
+     * the product in place.
+     * @param product the product
+     * @param process the process holding the product flow
+     * @param productFlow the product flow holding the appended flow as its last flow
+     * @param emissions the emissions
+     * @return the PCF of the appended flow
+     * @throws InvalidCalculationException if an error occurs in the calculation
+     */
+    public double calculateAppendedPcf(Product product, Process process, ProductFlow productFlow, List<Emission> emissions) throws InvalidCalculationException {
+        if (product == null || process == null || productFlow == null) {
+            throw new InvalidCalculationException("Product, process and product flow cannot be null.");
+        }
+        if (emissions == null) {
+            throw new InvalidCalculationException("List of emissions cannot be null.");
+        }
+        if (productFlow.getFlows() == null || productFlow.getFlows().isEmpty()) {
+            throw new InvalidCalculationException("Product flow must contain flows.");
+        }
+
+        List<Flow> flows = productFlow.getFlows();
+        double flowEmissions = calculateFlowPcf(flows.get(flows.size() - 1), emissions, flows);
+        productFlow.setPcf(productFlow.getPcf() + flowEmissions);
+        process.setPcf(process.getPcf() + flowEmissions);
+        product.setPcf(product.getPcf() + flowEmissions);
+        return flowEmissions;
+    }
+
+    /**
+     * Evaluate the PCF of a flow appended to a product whose PCF is already evaluated, as the last
+     * flow of a new or existing product flow, adding it to the totals of the product flow, its process
+     * and the product in the result, without changing the product.
+     * @param result the result of the evaluation of the product
+     * @param process the process holding the product flow
+     * @param productFlow the product flow holding the appended flow as its last flow
+     * @param emissions the emissions
+     * @return the PCF of the appended flow
+     * @throws InvalidCalculationException if an error occurs in the calculation
+     */
+    public double evaluateAppendedPcf(PcfResult result, Process process, ProductFlow productFlow, List<Emission> emissions) throws InvalidCalculationException {
+        if (result == null || process == null || productFlow == null) {
+            throw new InvalidCalculationException("Result, process and product flow cannot be null.");
+        }
+        if (emissions == null) {
+            throw new InvalidCalculationException("List of emissions cannot be null.");
+        }
+        if (productFlow.getFlows() == null || productFlow.getFlows().isEmpty()) {
+            throw new InvalidCalculationException("Product flow must contain flows.");
+        }
+
+        List<Flow> flows = productFlow.getFlows();
+        List<Flow> emissionFlows = new ArrayList<>();
+        double flowEmissions = calculateFlowPcf(flows.get(flows.size() - 1), emissions, emissionFlows);
+        result.addPcf(process, productFlow, flowEmissions, emissionFlows);
+        return flowEmissions;
+    }
+
+    /**
+     * Replace the emission flows of a product flow derived by an earlier calculation with new ones.
+     * Only flows marked as derived are replaced, so an input flow shaped like an emission flow is kept.
+     * @param flows the flows of the product flow
+     * @param emissionFlows the new emission flows
+     */
+    private void replaceEmissionFlows(List<Flow> flows, List<Flow> emissionFlows) {
+        flows.removeIf(Flow::isDerived);
+        flows.addAll(emissionFlows);
+    }
+
+    /**
+     * Find the next flow of a product flow in a flow table derived by an earlier calculation.
+     * @param table the flow table
+     * @param from the first flow searched, or {@link FlowTable#NONE}
+     * @param last the last flow searched
+     * @return the derived flow, or {@link FlowTable#NONE} if there is none
+     */
+    private int nextDerivedFlow(FlowTable table, int from, int last) {
+        for (int flow = from; flow != FlowTable.NONE; flow = flow == last ? FlowTable.NONE : table.getNextFlow(flow)) {
+            if (table.isDerived(flow)) {
+                return flow;
+            }
+        }
+        return FlowTable.NONE;
+    }
+
+    /**
+     * Calculate the emissions of a flow, adding its output flow if it is an input flow.
+     * @param inputFlow the flow
+     * @param emissions the emissions
+     * @param newFlows the list the output flow is added to
+     * @return the emissions of the flow, or 0 if it is not an input flow
+     * @throws InvalidCalculationException if no matching emission is found
+     */
+    private double calculateFlowPcf(Flow inputFlow, List<Emission> emissions, List<Flow> newFlows) throws InvalidCalculationException {
+        if (inputFlow.getType() != FlowType.Input) {
+            return 0.0;
+        }
+
+        Emission matchingEmission = findMatchingEmission(inputFlow, emissions);
+        if (matchingEmission == null) {
+            throw new InvalidCalculationException("No matching emission found for input flow: " + inputFlow.getName());
+        }
+        double emissionQuantity = calculateEmissionQuantity(inputFlow.getQuantity(), inputFlow.getUnit(), matchingEmission);
+        Flow outputFlow = new Flow(
+            inputFlow.getName() + " Emission",
+            Unit.KgCO2,
+            Category.AirEmission,
+            emissionQuantity,
+            FlowType.Output,
+            inputFlow.getOriginCountry()
+        );
+        outputFlow.setSymbolTable(inputFlow.getSymbolTable());
+        outputFlow.setDerived(true);
+        newFlows.add(outputFlow);
+        return emissionQuantity;
     }
 
     /**
@@ -95,26 +296,63 @@ public class Calculator implements CalculatorService {
      * @throws InvalidCalculationException if no matching emission is found
      */
     private Emission findMatchingEmission(Flow inputFlow, List<Emission> emissions) throws InvalidCalculationException {
+        return findMatchingEmission(inputFlow.getCategory(), inputFlow.getUnit(), inputFlow.getSymbolTable(),
+                inputFlow.getNameId(), inputFlow.getName(), emissions);
+    }
+
+    /**
+     * Calculate the emissions of a quantity of an input flow with the factor of an emission, first
+     * converting the quantity to the unit of the emission if the units are compatible. A quantity
+     * in a unit that cannot be converted, which only a match by name allows, is used as it is.
+     * @param quantity the quantity of the flow
+     * @param unit the unit of the flow
+     * @param emission the emission
+     * @return the emissions
+     */
+    private double calculateEmissionQuantity(double quantity, Unit unit, Emission emission) {
+        double factor = UnitConverter.factor(unit, emission.getUnit());
+        return (Double.isNaN(factor) ? quantity : quantity * factor) * emission.getEmissionFactor();
+    }
+
+    /**
+     * Find a matching emission for the category, unit and name of an input flow. Names encoded in
+     * the same {@link SymbolTable} are compared by id, and others as strings. Energy and transport
+     * emissions match a flow in any compatible unit, preferring the first emission in the same unit.
+     * @param category the category of the flow
+     * @param unit the unit of the flow
+     * @param symbols the symbol table of the name of the flow, or null
+     * @param nameId the symbol id of the name of the flow
+     * @param name the name of the flow
+     * @param emissions the emissions
+     * @return the matching emission, or null if there is none
+     */
+    private Emission findMatchingEmission(Category category, Unit unit, SymbolTable symbols, int nameId, String name,
+            List<Emission> emissions) {
+        Emission compatibleEmission = null;
         for (Emission emission : emissions) {
-            if (inputFlow.getCategory() == Category.RawMaterial || inputFlow.getCategory() == Category.LandOccupation) {
-                if (emission.getName().equals(inputFlow.getName())) {
+            if (category == Category.RawMaterial || category == Category.LandOccupation) {
+                if (SymbolTable.sameSymbol(symbols, nameId, name, emission.getSymbolTable(), emission.getNameId(), emission.getName())) {
                     return emission;
                 }
-            } else if (inputFlow.getCategory() == Category.WindEnergy ||
-                       inputFlow.getCategory() == Category.HydroPowerEnergy ||
-                       inputFlow.getCategory() == Category.SolarEnergy ||
-                       inputFlow.getCategory() == Category.NaturalGasEnergy ||
-                       inputFlow.getCategory() == Category.BiomassEnergy ||
-                       inputFlow.getCategory() == Category.RadioactiveEnergy ||
-                       inputFlow.getCategory() == Category.LandTransport ||
-                       inputFlow.getCategory() == Category.AirTransport ||
-                       inputFlow.getCategory() == Category.SeaTransport) {
-                if (emission.getCategory() == inputFlow.getCategory() &&
-                    emission.getUnit() == inputFlow.getUnit()) {
-                    return emission;
+            } else if (category == Category.WindEnergy ||
+                       category == Category.HydroPowerEnergy ||
+                       category == Category.SolarEnergy ||
+                       category == Category.NaturalGasEnergy ||
+                       category == Category.BiomassEnergy ||
+                       category == Category.RadioactiveEnergy ||
+                       category == Category.LandTransport ||
+                       category == Category.AirTransport ||
+                       category == Category.SeaTransport) {
+                if (emission.getCategory() == category) {
+                    if (emission.getUnit() == unit) {
+                        return emission;
+                    }
+                    if (compatibleEmission == null && UnitConverter.isCompatible(unit, emission.getUnit())) {
+                        compatibleEmission = emission;
+                    }
                 }
             }
         }
-        return null;
+        return compatibleEmission;
     }
-}
\ No newline at end of file
+}
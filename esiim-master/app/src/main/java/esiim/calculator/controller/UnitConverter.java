@@ -0,0 +1,132 @@
+package esiim.calculator.controller;
+
+import esiim.modeler.entity.enums.Unit;
+
+/**
+ * Converts quantities between the units of the {@link Unit} enum that measure the same dimension,
+ * such as grams and kilograms, or watts and kilowatts, so one emission factor serves every
+ * compatible unit. The factor of every pair of units is computed once, into a dense matrix indexed
+ * by unit ordinals, so a conversion is one array lookup.
+ */
+public final class UnitConverter {
+    private static final int MASS = 0;
+    private static final int VOLUME = 1;
+    private static final int ENERGY = 2;
+    private static final int POWER = 3;
+    private static final int AREA = 4;
+    private static final int LENGTH = 5;
+    private static final int EMISSION = 6;
+
+    private static final double[][] FACTORS = buildFactors();
+
+    /**
+     * Constructor.
+     */
+    private UnitConverter() {
+    }
+
+    /**
+     * Returns the factor that converts a quantity in one unit to another.
+     *
+     * @param from the unit of the quantity
+     * @param to the unit to convert to
+     * @return the factor, or NaN if either unit is null or they measure different dimensions
+     */
+    public static double factor(Unit from, Unit to) {
+        if (from == null || to == null) {
+            return Double.NaN;
+        }
+        return FACTORS[from.ordinal()][to.ordinal()];
+    }
+
+    /**
+     * Returns whether a quantity in one unit can be converted to another.
+     *
+     * @param from the unit of the quantity
+     * @param to the unit to convert to
+     * @return true if both units measure the same dimension, false otherwise
+     */
+    public static boolean isCompatible(Unit from, Unit to) {
+        return !Double.isNaN(factor(from, to));
+    }
+
+    /**
+     * Converts a quantity from one unit to another.
+     *
+     * @param quantity the quantity
+     * @param from the unit of the quantity
+     * @param to the unit to convert to
+     * @return the converted quantity, or NaN if the units are not compatible
+     */
+    public static double convert(double quantity, Unit from, Unit to) {
+        return quantity * factor(from, to);
+    }
+
+    /**
+     * Builds the factor matrix, where the factor from one unit to another is the ratio of their
+     * scales if they measure the same dimension, and NaN otherwise.
+     *
+     * @return the factor matrix
+     */
+    private static double[][] buildFactors() {
+        Unit[] units = Unit.values();
+        double[][] factors = new double[units.length][units.length];
+        for (Unit from : units) {
+            for (Unit to : units) {
+                factors[from.ordinal()][to.ordinal()] = dimension(from) == dimension(to)
+                        ? scale(from) / scale(to)
+                        : Double.NaN;
+            }
+        }
+        return factors;
+    }
+
+    /**
+     * Returns the dimension a unit measures.
+     *
+     * @param unit the unit
+     * @return the dimension
+     */
+    private static int dimension(Unit unit) {
+        switch (unit) {
+            case KG:
+            case Grams:
+                return MASS;
+            case Liters:
+                return VOLUME;
+            case Joules:
+                return ENERGY;
+            case Watts:
+            case Kilowatts:
+                return POWER;
+            case SquareMeters:
+            case SquareKilometers:
+                return AREA;
+            case Kilometers:
+                return LENGTH;
+            case KgCO2:
+                return EMISSION;
+            default:
+                throw new IllegalArgumentException("Unknown unit: " + unit);
+        }
+    }
+
+    /**
+     * Returns the size of a unit in the smallest unit of its dimension, so that scales are whole
+     * numbers and a conversion to a smaller unit is exact.
+     *
+     * @param unit the unit
+     * @return the scale
+     */
+    private static double scale(Unit unit) {
+        switch (unit) {
+            case KG:
+            case Kilowatts:
+                return 1e3;
+            case SquareKilometers:
+                return 1e6;
+            default:
+                return 1;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package esiim.calculator.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import esiim.modeler.entity.Flow;
+import esiim.modeler.entity.Process;
+import esiim.modeler.entity.ProductFlow;
+
+/**
+ * Result of a PCF calculation, held apart from the product it was calculated for.
+ * It keeps the PCF of the product and of each process and product flow, and the emission flows
+ * derived from the input flows of each product flow, keyed by the identity of the nodes of the
+ * product, which the calculation leaves untouched. A product can therefore be evaluated again, or
+ * by several threads at once, and each result read without copying the product.
+ */
+public class PcfResult {
+    private final Map<Process, Double> processPcfs = new IdentityHashMap<>();
+    private final Map<ProductFlow, Double> productFlowPcfs = new IdentityHashMap<>();
+    private final Map<ProductFlow, List<Flow>> emissionFlows = new IdentityHashMap<>();
+    private double pcf;
+
+    /**
+     * Get the PCF of the product.
+     */
+    public double getPcf() {
+        return pcf;
+    }
+
+    /**
+     * Set the PCF of the product.
+     * @param pcf the PCF
+     */
+    public void setPcf(double pcf) {
+        this.pcf = pcf;
+    }
+
+    /**
+     * Get the PCF of a process.
+     * @param process the process
+     * @return the PCF, or NaN if the process was not part of the calculation
+     */
+    public double getPcf(Process process) {
+        Double processPcf = processPcfs.get(process);
+        return processPcf == null ? Double.NaN : processPcf;
+    }
+
+    /**
+     * Set the PCF of a process.
+     * @param process the process
+     * @param pcf the PCF
+     */
+    public void setPcf(Process process, double pcf) {
+        processPcfs.put(process, pcf);
+    }
+
+    /**
+     * Get the PCF of a product flow.
+     * @param productFlow the product flow
+     * @return the PCF, or NaN if the product flow was not part of the calculation
+     */
+    public double getPcf(ProductFlow productFlow) {
+        Double productFlowPcf = productFlowPcfs.get(productFlow);
+        return productFlowPcf == null ? Double.NaN : productFlowPcf;
+    }
+
+    /**
+     * Set the PCF of a product flow and the emission flows derived from its input flows.
+     * @param productFlow the product flow
+     * @param pcf the PCF
+     * @param flows the emission flows
+     */
+    public void setPcf(ProductFlow productFlow, double pcf, List<Flow> flows) {
+        productFlowPcfs.put(productFlow, pcf);
+        emissionFlows.put(productFlow, new ArrayList<>(flows));
+    }
+
+    /**
+     * Add the PCF of a flow appended to a product flow, and the emission flows derived from it, to
+     * the totals of the product flow, its process and the product.
+     * @param process the process holding the product flow
+     * @param productFlow the product flow
+     * @param pcf the PCF of the appended flow
+     * @param flows the emission flows derived from the appended flow
+     */
+    public void addPcf(Process process, ProductFlow productFlow, double pcf, List<Flow> flows) {
+        productFlowPcfs.merge(productFlow, pcf, Double::sum);
+        processPcfs.merge(process, pcf, Double::sum);
+        this.pcf += pcf;
+        emissionFlows.computeIfAbsent(productFlow, key -> new ArrayList<>()).addAll(flows);
+    }
+
+    /**
+     * Get the emission flows derived from the input flows of a product flow.
+     * @param productFlow the product flow
+     * @return the emission flows, empty if the product flow was not part of the calculation
+     */
+    public List<Flow> getEmissionFlows(ProductFlow productFlow) {
+        return Collections.unmodifiableList(emissionFlows.getOrDefault(productFlow, Collections.emptyList()));
+    }
+}
@@ -1,5 +1,7 @@
 package esiim.exporter.boundary;
 
+import esiim.calculator.entity.PcfResult;
+import esiim.modeler.entity.FlowTable;
 import esiim.modeler.entity.Product;
 import esiim.exporter.exception.InvalidProductException;
 
@@ -8,4 +10,6 @@ import esiim.exporter.exception.InvalidProductException;
  */
 public interface ExporterCsvService {
     public void exportToCsv(Product product) throws InvalidProductException;
+    public void exportToCsv(Product product, PcfResult result) throws InvalidProductException;
+    public void exportFlowTableToCsv(FlowTable table) throws InvalidProductException;
 }
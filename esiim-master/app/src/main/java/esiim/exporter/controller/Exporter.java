@@ -1,14 +1,25 @@
 package esiim.exporter.controller;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 
+import esiim.calculator.entity.PcfResult;
 import esiim.exporter.boundary.ExporterService;
 import esiim.exporter.exception.InvalidProductException;
 import esiim.modeler.entity.Flow;
+import esiim.modeler.entity.FlowTable;
 import esiim.modeler.entity.Process;
 import esiim.modeler.entity.Product;
 import esiim.modeler.entity.ProductFlow;
 import esiim.modeler.entity.ProductSystem;
+import esiim.modeler.entity.SymbolTable;
+import esiim.modeler.entity.enums.Category;
+import esiim.modeler.entity.enums.FlowType;
+import esiim.modeler.entity.enums.ProcessType;
+import esiim.modeler.entity.enums.Tag;
+import esiim.modeler.entity.enums.Unit;
 
 /**
  * Exporter service implementation.
@@ -21,6 +32,30 @@ public class Exporter implements ExporterService {
      * @throws InvalidProductException if an error occurs in the export
      */
     public void exportToCsv(Product product) throws InvalidProductException {
+        writeCsv(product, null);
+    }
+
+    /**
+     * Exports the product data to a CSV file with the PCF and emission flows of a calculation
+     * result, which the product itself does not hold, in the same format as a calculated product.
+     * @param product the product
+     * @param result the calculation result
+     * @throws InvalidProductException if an error occurs in the export
+     */
+    public void exportToCsv(Product product, PcfResult result) throws InvalidProductException {
+        if (result == null) {
+            throw new InvalidProductException("PcfResult is null");
+        }
+        writeCsv(product, result);
+    }
+
+    /**
+     * Exports the product data to a CSV file, with the PCF of a calculation result if there is one.
+     * @param product the product
+     * @param result the calculation result, or null to export the PCF held by the product
+     * @throws InvalidProductException if an error occurs in the export
+     */
+    private void writeCsv(Product product, PcfResult result) throws InvalidProductException {
         if (product == null) {
             throw new InvalidProductException("Product is null");
         }
@@ -32,45 +67,73 @@ public class Exporter implements ExporterService {
 
         String fileName = "product_export.csv";
         try (FileWriter writer = new FileWriter(fileName)) {
-            writer.append("Product\n");
-            writer.append("Name: " + product.getName()).append(",")
-                  .append("Country: " + product.getCountry()).append(",")
-                  .append("Weight: " + String.valueOf(product.getWeight()))
-                  .append(product.getUnit() != null ? " " + product.getUnit().toString() : "").append(",")
-                  .append("Total PCF: " + String.valueOf(product.getPcf())).append("\n\n");
+            appendProduct(writer, product.getName(), product.getCountry(), product.getWeight(), product.getUnit(),
+                    result == null ? product.getPcf() : result.getPcf());
 
             for (Process process : productSystem.getProcesses()) {
                 if (process == null) {
                     throw new InvalidProductException("Process is null");
                 }
 
-                double processPcf = process.getPcf();
-                writer.append("Process\n");
-                writer.append(process.getProcessType() != null ? process.getProcessType().toString() : "").append(",")
-                      .append(String.valueOf(processPcf)).append("\n\n");
+                appendProcess(writer, process.getProcessType(), result == null ? process.getPcf() : result.getPcf(process));
 
                 for (ProductFlow productFlow : process.getProductFlows()) {
                     if (productFlow == null) {
                         throw new InvalidProductException("ProductFlow is null");
                     }
 
-                    writer.append("Product Flow\n");
-                    writer.append(productFlow.getName()).append(",")
-                          .append(String.valueOf(productFlow.getPcf())).append("\n\n");
-
-                    writer.append("Flows\n");
+                    appendProductFlow(writer, productFlow.getName(), result == null ? productFlow.getPcf() : result.getPcf(productFlow));
                     for (Flow flow : productFlow.getFlows()) {
                         if (flow == null) {
                             throw new InvalidProductException("Flow is null");
                         }
 
-                        writer.append(flow.getName()).append(",")
-                              .append(flow.getUnit() != null ? flow.getUnit().toString() : "").append(",")
-                              .append(flow.getCategory() != null ? flow.getCategory().toString() : "").append(",")
-                              .append(String.valueOf(flow.getQuantity())).append(",")
-                              .append(flow.getTag() != null ? flow.getTag().toString() : "").append(",")
-                              .append(flow.getType() != null ? flow.getType().toString() : "").append(",")
-                              .append(flow.getOriginCountry() != null ? flow.getOriginCountry() : "").append("\n");
+                        appendFlow(writer, flow.getName(), flow.getUnit(), flow.getCategory(), flow.getQuantity(),
+                                flow.getTag(), flow.getType(), flow.getOriginCountry());
+                    }
+                    if (result != null) {
+                        for (Flow flow : result.getEmissionFlows(productFlow)) {
+                            appendFlow(writer, flow.getName(), flow.getUnit(), flow.getCategory(), flow.getQuantity(),
+                                    flow.getTag(), flow.getType(), flow.getOriginCountry());
+                        }
+                    }
+                    writer.append("\n");
+                }
+                writer.append("\n");
+            }
+
+            System.out.println("Product data exported successfully to " + fileName);
+        } catch (Exception e) {
+            throw new InvalidProductException("Error exporting product data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exports the product data held in a flow table to a CSV file, in the same format as the object
+     * graph of the product.
+     * @param table the flow table
+     * @throws InvalidProductException if an error occurs in the export
+     */
+    public void exportFlowTableToCsv(FlowTable table) throws InvalidProductException {
+        if (table == null) {
+            throw new InvalidProductException("Flow table is null");
+        }
+
+        SymbolTable symbols = table.getSymbolTable();
+        String fileName = "product_export.csv";
+        try (Writer writer = new BufferedWriter(new FileWriter(fileName))) {
+            appendProduct(writer, table.getName(), table.getCountry(), table.getWeight(), table.getUnit(), table.getPcf());
+
+            for (int process = 0; process < table.getProcessCount(); process++) {
+                appendProcess(writer, table.getProcessType(process), table.getProcessPcf(process));
+
+                for (int productFlow = table.getFirstProductFlow(process); productFlow != FlowTable.NONE;
+                        productFlow = table.getNextProductFlow(productFlow)) {
+                    appendProductFlow(writer, symbols.decode(table.getProductFlowNameId(productFlow)), table.getProductFlowPcf(productFlow));
+                    for (int flow = table.getFirstFlow(productFlow); flow != FlowTable.NONE; flow = table.getNextFlow(flow)) {
+                        appendFlow(writer, symbols.decode(table.getNameId(flow)), table.getUnit(flow), table.getCategory(flow),
+                                table.getQuantity(flow), table.getTag(flow), table.getType(flow),
+                                symbols.decode(table.getOriginCountryId(flow)));
                     }
                     writer.append("\n");
                 }
@@ -82,4 +145,93 @@ public class Exporter implements ExporterService {
             throw new InvalidProductException("Error exporting product data: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the section of a product.
+     * @param writer the writer
+     * @param name the name of the product
+     * @param country the country of the product
+     * @param weight the weight of the product
+     * @param unit the unit of the weight, or null
+     * @param pcf the PCF of the product
+     * @throws IOException if the section cannot be written
+     */
+    private static void appendProduct(Writer writer, String name, String country, double weight, Unit unit, double pcf) throws IOException {
+        writer.append("Product\n");
+        writer.append(quote("Name: " + name)).append(",")
+              .append(quote("Country: " + country)).append(",")
+              .append("Weight: " + String.valueOf(weight))
+              .append(unit != null ? " " + unit.toString() : "").append(",")
+              .append("Total PCF: " + String.valueOf(pcf)).append("\n\n");
+    }
+
+    /**
+     * Writes the header of a process.
+     * @param writer the writer
+     * @param processType the type of the process, or null
+     * @param pcf the PCF of the process
+     * @throws IOException if the header cannot be written
+     */
+    private static void appendProcess(Writer writer, ProcessType processType, double pcf) throws IOException {
+        writer.append("Process\n");
+        writer.append(processType != null ? processType.toString() : "").append(",")
+              .append(String.valueOf(pcf)).append("\n\n");
+    }
+
+    /**
+     * Writes the header of a product flow, up to its flows.
+     * @param writer the writer
+     * @param name the name of the product flow
+     * @param pcf the PCF of the product flow
+     * @throws IOException if the header cannot be written
+     */
+    private static void appendProductFlow(Writer writer, String name, double pcf) throws IOException {
+        writer.append("Product Flow\n");
+        writer.append(quote(name)).append(",")
+              .append(String.valueOf(pcf)).append("\n\n");
+
+        writer.append("Flows\n");
+    }
+
+    /**
+     * Writes the line of a flow.
+     * @param writer the writer
+     * @param name the name of the flow
+     * @param unit the unit of the flow, or null
+     * @param category the category of the flow, or null
+     * @param quantity the quantity of the flow
+     * @param tag the tag of the flow, or null
+     * @param type the type of the flow, or null
+     * @param originCountry the country of origin of the flow, or null
+     * @throws IOException if the line cannot be written
+     */
+    private static void appendFlow(Writer writer, String name, Unit unit, Category category, double quantity, Tag tag,
+            FlowType type, String originCountry) throws IOException {
+        writer.append(quote(name)).append(",")
+              .append(unit != null ? unit.toString() : "").append(",")
+              .append(category != null ? category.toString() : "").append(",")
+              .append(String.valueOf(quantity)).append(",")
+              .append(tag != null ? tag.toString() : "").append(",")
+              .append(type != null ? type.toString() : "").append(",")
+              .append(originCountry != null ? quote(originCountry) : "").append("\n");
+    }
+
+    /**
+     * Quotes a field as RFC 4180 requires if it holds a comma, a double quote or a line break,
+     * doubling each double quote inside it, so the parser reads it back as one field.
+     * @param field the field, or null
+     * @return the field as it is written
+     */
+    private static String quote(String field) {
+        if (field == null) {
+            return "null";
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + field.replace("\"", "\"\"") + '"';
+            }
+        }
+        return field;
+    }
+}
@@ -0,0 +1,15 @@
+package esiim.follower.boundary;
+
+import esiim.modeler.entity.Product;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Follower csv service interface.
+ */
+public interface FollowerCsvService {
+    public int poll() throws InvalidDataException;
+    public Product getProduct();
+    public long getRecords();
+    public long getRejected();
+    public String getLastRejection();
+}
@@ -0,0 +1,8 @@
+package esiim.follower.boundary;
+
+/**
+ * Follower service interface.
+ */
+public interface FollowerService extends FollowerCsvService {
+    
+}
@@ -0,0 +1,200 @@
+package esiim.follower.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import esiim.calculator.boundary.CalculatorService;
+import esiim.calculator.controller.Calculator;
+import esiim.calculator.exception.InvalidCalculationException;
+import esiim.follower.boundary.FollowerService;
+import esiim.modeler.boundary.ModelerService;
+import esiim.modeler.controller.Modeler;
+import esiim.modeler.entity.Emission;
+import esiim.modeler.entity.Process;
+import esiim.modeler.entity.Product;
+import esiim.modeler.entity.ProductFlow;
+import esiim.modeler.entity.SymbolTable;
+import esiim.modeler.exception.InvalidParseDataException;
+import esiim.parser.boundary.ParserService;
+import esiim.parser.controller.Parser;
+import esiim.parser.entity.CsvCursor;
+import esiim.parser.entity.ParsedData;
+import esiim.parser.entity.ParsedRecord;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Follows a product CSV file that is still being written, keeping the product and its PCF current.
+ * Each poll parses only the rows appended since the previous one, models them into the product and
+ * adds their PCF to the totals of their product flow, process and product in place. The product
+ * belongs to the follower, so unlike a shared product it is calculated in place rather than
+ * through a separate {@link esiim.calculator.entity.PcfResult}.
+ * A row that cannot be parsed, modeled or calculated is skipped and reported, and the rows after
+ * it are still ingested, so a bad row is read only once.
+ */
+public class Follower implements FollowerService {
+    private final String filePath;
+    private final List<Emission> emissions;
+    private final ParserService parser = new Parser();
+    private final ModelerService modeler;
+    private final ModelerService checker;
+    private final CalculatorService calculator = new Calculator();
+    private CsvCursor cursor;
+    private Product product;
+    private long records;
+    private long rejected;
+    private String lastRejection;
+
+    /**
+     * Constructor.
+     *
+     * @param filePath the path of the product CSV file
+     * @param emissions the emissions used to calculate the PCF
+     */
+    public Follower(String filePath, List<Emission> emissions) {
+        this(filePath, emissions, new SymbolTable());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param filePath the path of the product CSV file
+     * @param emissions the emissions used to calculate the PCF
+     * @param symbols the symbol table of the session, which encodes the names of the emissions and
+     *                of the product
+     */
+    public Follower(String filePath, List<Emission> emissions, SymbolTable symbols) {
+        this.filePath = filePath;
+        this.emissions = emissions;
+        this.modeler = new Modeler(symbols);
+        this.checker = new Modeler(symbols);
+    }
+
+    /**
+     * Ingests the rows appended to the file since the previous poll.
+     * The first row ingested builds the product and calculates its PCF; later rows are added to it.
+     * Rows that cannot be ingested are skipped and counted as rejected.
+     * A file truncated since the previous poll is followed again from its start, with a new product.
+     * If the file cannot be read, the product and position are kept when no row was ingested by the
+     * poll, and otherwise dropped, so that the next poll rebuilds the product from the start of the
+     * file and no row is ever counted twice.
+     *
+     * @return the number of rows ingested
+     * @throws InvalidDataException if the file cannot be read or its header is invalid
+     */
+    public int poll() throws InvalidDataException {
+        if (cursor != null && isTruncated()) {
+            restart();
+        }
+        long before = records;
+        try {
+            cursor = parser.followCsv(filePath, cursor, this::ingest, this::reject);
+        } catch (InvalidDataException e) {
+            if (records != before) {
+                restart();
+            }
+            throw e;
+        }
+        return (int) (records - before);
+    }
+
+    /**
+     * Returns whether the file is shorter than the position reached by the previous poll.
+     *
+     * @return true if the file was truncated, false otherwise
+     * @throws InvalidDataException if the size of the file cannot be read
+     */
+    private boolean isTruncated() throws InvalidDataException {
+        try {
+            return Files.size(Paths.get(filePath)) < cursor.getOffset();
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the CSV file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Drops the product and position, so that the next poll reads the file from its start.
+     */
+    private void restart() {
+        cursor = null;
+        product = null;
+        records = 0;
+        rejected = 0;
+        lastRejection = null;
+    }
+
+    /**
+     * Models a record read by a poll and adds its PCF to the totals of the product, or rejects it.
+     * The record is first modeled and calculated as a product of its own, so that a record that
+     * cannot be ingested leaves the product unchanged.
+     *
+     * @param record the record
+     * @throws InvalidDataException if the record cannot be reported as rejected
+     */
+    private void ingest(ParsedRecord record) throws InvalidDataException {
+        ParsedData parsedData = new ParsedData();
+        parsedData.setRecords(List.of(record));
+        try {
+            if (product == null) {
+                Product modeled = modeler.modelProduct(parsedData);
+                calculator.calculatePcf(modeled, emissions);
+                product = modeled;
+            } else {
+                calculator.evaluatePcf(checker.modelProduct(parsedData), emissions);
+                Process process = modeler.appendProductFlow(product, record);
+                ProductFlow productFlow = modeler.findProductFlow(process, record);
+                calculator.calculateAppendedPcf(product, process, productFlow, emissions);
+            }
+        } catch (InvalidParseDataException | InvalidCalculationException e) {
+            reject(record.getLineNumber(), e.getMessage(), null);
+            return;
+        }
+        records++;
+    }
+
+    /**
+     * Records a row that could not be ingested.
+     *
+     * @param lineNumber the line number of the row
+     * @param reason the reason the row was rejected
+     * @param line the row, unused
+     */
+    private void reject(long lineNumber, String reason, CharSequence line) {
+        rejected++;
+        lastRejection = "Line " + lineNumber + ": " + reason;
+    }
+
+    /**
+     * Returns the product built from the rows ingested so far, whose PCF and the PCF of its
+     * processes and product flows are kept current.
+     * @return the product, or null if no row has been ingested
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Returns the number of rows ingested so far.
+     * @return the number of rows
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the number of rows skipped so far because they could not be ingested.
+     * @return the number of rows
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Returns the line number of the last row skipped and the reason it was skipped.
+     * @return the rejection, or null if no row has been skipped
+     */
+    public String getLastRejection() {
+        return lastRejection;
+    }
+}
@@ -1,12 +1,29 @@
 package esiim.modeler.boundary;
 
+import java.util.Map;
+
+import esiim.modeler.entity.FlowTable;
+import esiim.modeler.entity.LazyProduct;
+import esiim.modeler.entity.Process;
 import esiim.modeler.entity.Product;
+import esiim.modeler.entity.ProductFlow;
+import esiim.modeler.entity.enums.ModelMode;
 import esiim.modeler.exception.InvalidParseDataException;
+import esiim.parser.boundary.ParsedRecordHandler;
 import esiim.parser.entity.ParsedData;
+import esiim.parser.entity.ParsedRecord;
 
 /**
  * Modeler product service interface.
  */
 public interface ModelerProductService {
     public Product modelProduct(ParsedData parsedData) throws InvalidParseDataException;
+    public Product modelProduct(ParsedData parsedData, ModelMode mode) throws InvalidParseDataException;
+    public FlowTable modelFlowTable(ParsedData parsedData, boolean offHeap) throws InvalidParseDataException;
+    public LazyProduct modelLazyProduct(ParsedData parsedData, boolean offHeap) throws InvalidParseDataException;
+    public Map<String, Product> modelProducts(ParsedData parsedData) throws InvalidParseDataException;
+    public Product modelProductRecord(Map<String, Product> products, ParsedRecord record) throws InvalidParseDataException;
+    public ParsedRecordHandler productHandler(Map<String, Product> products);
+    public Process appendProductFlow(Product product, ParsedRecord record) throws InvalidParseDataException;
+    public ProductFlow findProductFlow(Process process, ParsedRecord record);
 }
\ No newline at end of file
@@ -2,23 +2,37 @@ package esiim.modeler.controller;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 import esiim.modeler.entity.Flow;
+import esiim.modeler.entity.FlowTable;
+import esiim.modeler.entity.LazyProduct;
 import esiim.modeler.entity.Process;
 import esiim.modeler.entity.Product;
 import esiim.modeler.entity.ProductFlow;
 import esiim.modeler.entity.ProductSystem;
+import esiim.modeler.entity.SymbolTable;
 import esiim.modeler.entity.enums.Category;
 import esiim.modeler.entity.enums.FlowType;
+import esiim.modeler.entity.enums.ModelMode;
 import esiim.modeler.entity.enums.ProcessType;
 import esiim.modeler.entity.enums.Tag;
 import esiim.modeler.entity.enums.Unit;
 import esiim.modeler.exception.InvalidParseDataException;
+import esiim.parser.boundary.ParsedRecordHandler;
+import esiim.parser.controller.RecordDecoder;
 import esiim.parser.entity.ParsedData;
 import esiim.parser.entity.ParsedEmissionsData;
+import esiim.parser.entity.ParsedRecord;
+import esiim.parser.entity.enums.CsvSchema;
+import esiim.parser.exception.InvalidDataException;
 import esiim.modeler.boundary.ModelerService;
 import esiim.modeler.entity.Emission;
 import esiim.modeler.exception.InvalidParsedEmissionsDataException;
@@ -27,8 +41,65 @@ import esiim.modeler.exception.InvalidParsedEmissionsDataException;
  * Modeler class.
  */
 public class Modeler implements ModelerService {
+    private static final int PRODUCT_NAME = 0;
+    private static final int PRODUCT_COUNTRY = 1;
+    private static final int PRODUCT_WEIGHT = 2;
+    private static final int PRODUCT_UNIT = 3;
+    private static final int PROCESS_TYPE = 4;
+    private static final int PRODUCT_FLOW_NAME = 5;
+    private static final int FLOW_NAME = 6;
+    private static final int FLOW_UNIT = 7;
+    private static final int FLOW_CATEGORY = 8;
+    private static final int FLOW_QUANTITY = 9;
+    private static final int FLOW_TAG = 10;
+    private static final int FLOW_TYPE = 11;
+    private static final int FLOW_ORIGIN_COUNTRY = 12;
+    private static final int EMISSION_NAME = 0;
+    private static final int EMISSION_CATEGORY = 1;
+    private static final int EMISSION_UNIT = 2;
+    private static final int EMISSION_QUANTITY = 3;
+    private static final int EMISSION_FACTOR = 4;
+    private static final Unit[] UNITS = Unit.values();
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Tag[] TAGS = Tag.values();
+    private static final FlowType[] FLOW_TYPES = FlowType.values();
+    private static final ProcessType[] PROCESS_TYPES = ProcessType.values();
+    private static final long[] VALID_UNITS = buildValidUnits();
+
+    private static final int MIN_CHUNK_RECORDS = 1 << 12;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final SymbolTable symbols;
     private Product product;
     private List<Emission> emissionsList;
+    private Map<Process, Map<String, ProductFlow>> productFlowIndex = new HashMap<>();
+
+    /**
+     * Constructor for a modeler with its own symbol table.
+     */
+    public Modeler() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param symbols the symbol table of the run, which encodes the names and countries of the
+     *                entities the modeler builds
+     */
+    public Modeler(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Returns the symbol table that encodes the names and countries of the entities the modeler builds.
+     *
+     * @return the symbol table
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
 
     /**
      * Models the product from the parsed data.
@@ -38,18 +109,17 @@ public class Modeler implements ModelerService {
      * @throws InvalidParseDataException if the parsed data is invalid
      */
     public Product modelProduct(ParsedData parsedData) throws InvalidParseDataException {
-        if (parsedData == null) {
-            throw new InvalidParseDataException("ParsedData is null");
-        }
-
-        String productString = parsedData.getProductString();
-        if (productString == null || productString.isEmpty()) {
-            throw new InvalidParseDataException("ParsedData productString is null or empty");
-        }
-
-        String[] lines = productString.split("\n");
-        String[] headers = lines[0].split(",");
+        return modelRecords(decodeProductRecords(parsedData));
+    }
 
+    /**
+     * Models the product from its records, on the calling thread.
+     * 
+     * @param records the records
+     * @return the product
+     * @throws InvalidParseDataException if a record is invalid
+     */
+    private Product modelRecords(List<ParsedRecord> records) throws InvalidParseDataException {
         String productName = null;
         String productCountry = null;
         double productWeight = 0;
@@ -57,81 +127,570 @@ public class Modeler implements ModelerService {
         ProductSystem productSystem = new ProductSystem(new ArrayList<>());
 
         Map<ProcessType, Process> processMap = new HashMap<>();
+        productFlowIndex = new HashMap<>();
 
-        for (int i = 1; i < lines.length; i++) {
-            String[] values = lines[i].split(",");
+        for (ParsedRecord record : records) {
+            if (record.getFieldCount() < CsvSchema.PRODUCT.getColumnCount()) {
+                throw new InvalidParseDataException("Missing product values in line " + record.getLineNumber());
+            }
 
             if (productName == null) {
-                productName = values[0];
-                productCountry = values[1];
-                productWeight = Double.parseDouble(values[2]);
-                
-                try {
-                    productUnit = Unit.valueOf(values[3]);
-                } catch (IllegalArgumentException e) {
-                    throw new InvalidParseDataException("Invalid product unit value: " + values[3]);
+                productName = record.getField(PRODUCT_NAME);
+                productCountry = record.getField(PRODUCT_COUNTRY);
+                productWeight = record.getNumber(PRODUCT_WEIGHT);
+                productUnit = decode(UNITS, record, PRODUCT_UNIT,
+                        () -> new InvalidParseDataException("Invalid product unit value: " + record.getField(PRODUCT_UNIT)));
+            }
+
+            ProcessType processType = decodeProcessType(record);
+            Flow flow = createFlow(record);
+
+            Process process = processMap.get(processType);
+            if (process == null) {
+                process = new Process(processType, new ArrayList<>());
+                processMap.put(processType, process);
+                productSystem.addProcess(process);
+                productFlowIndex.put(process, new HashMap<>());
+            }
+            addFlow(process, record.getField(PRODUCT_FLOW_NAME), flow);
+        }
+
+        if (Double.isNaN(productWeight)) {
+            throw new InvalidParseDataException("Invalid product weight value");
+        }
+        product = new Product(productName, productCountry, productWeight, productUnit, productSystem);
+        return product;
+    }
+
+    /**
+     * Models the product from the parsed data, on the calling thread or in parallel. In parallel,
+     * chunks of records are decoded and validated on the common {@link ForkJoinPool}, and each
+     * process is then built by one task from the flows of every chunk in record order, so the
+     * product is the same as the one modeled sequentially, and so is the first invalid record.
+     * Small products, of fewer than two chunks of {@value #MIN_CHUNK_RECORDS} records, are modeled
+     * sequentially in either mode. As {@link esiim.parser.controller.Parser#parseCsv(String)} accepts
+     * far fewer lines than that, only data whose records were handed over by the streaming parser,
+     * such as {@link esiim.parser.controller.Parser#streamCsv(String, ParsedRecordHandler)},
+     * and collected with {@link ParsedData#setRecords(List)}, is ever modeled in parallel.
+     * 
+     * @param parsedData the parsed data
+     * @param mode the way the records are modeled
+     * @return the product
+     * @throws InvalidParseDataException if the parsed data is invalid
+     */
+    public Product modelProduct(ParsedData parsedData, ModelMode mode) throws InvalidParseDataException {
+        if (mode != ModelMode.PARALLEL) {
+            return modelProduct(parsedData);
+        }
+
+        List<ParsedRecord> records = decodeProductRecords(parsedData);
+        int chunkCount = (int) Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD, records.size() / MIN_CHUNK_RECORDS);
+        if (chunkCount < 2) {
+            return modelRecords(records);
+        }
+
+        ParsedRecord first = records.get(0);
+        if (first.getFieldCount() < CsvSchema.PRODUCT.getColumnCount()) {
+            throw new InvalidParseDataException("Missing product values in line " + first.getLineNumber());
+        }
+        Unit productUnit = decode(UNITS, first, PRODUCT_UNIT,
+                () -> new InvalidParseDataException("Invalid product unit value: " + first.getField(PRODUCT_UNIT)));
+
+        List<Callable<FlowChunk>> decoders = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            int from = (int) ((long) records.size() * i / chunkCount);
+            int to = (int) ((long) records.size() * (i + 1) / chunkCount);
+            decoders.add(() -> decodeChunk(records, from, to));
+        }
+        List<FlowChunk> chunks = collect(pool.invokeAll(decoders));
+        List<ProcessType> processTypes = new ArrayList<>();
+        for (FlowChunk chunk : chunks) {
+            if (chunk.error != null) {
+                throw chunk.error;
+            }
+            for (ProcessType processType : chunk.processTypes) {
+                if (!processTypes.contains(processType)) {
+                    processTypes.add(processType);
                 }
             }
+        }
 
-            ProcessType processType;
-            try {
-                processType = ProcessType.valueOf(values[4]);
-            } catch (IllegalArgumentException e) {
-                throw new InvalidParseDataException("Invalid process type value: " + values[4]);
+        List<Callable<Map<String, ProductFlow>>> builders = new ArrayList<>(processTypes.size());
+        for (ProcessType processType : processTypes) {
+            builders.add(() -> buildProductFlows(chunks, processType));
+        }
+        List<Map<String, ProductFlow>> processProductFlows = collect(pool.invokeAll(builders));
+
+        double productWeight = first.getNumber(PRODUCT_WEIGHT);
+        if (Double.isNaN(productWeight)) {
+            throw new InvalidParseDataException("Invalid product weight value");
+        }
+        ProductSystem productSystem = new ProductSystem(new ArrayList<>());
+        productFlowIndex = new HashMap<>();
+        for (int i = 0; i < processTypes.size(); i++) {
+            Process process = new Process(processTypes.get(i), new ArrayList<>(processProductFlows.get(i).values()));
+            productSystem.addProcess(process);
+            productFlowIndex.put(process, processProductFlows.get(i));
+        }
+        product = new Product(first.getField(PRODUCT_NAME), first.getField(PRODUCT_COUNTRY), productWeight, productUnit, productSystem);
+        return product;
+    }
+
+    /**
+     * Decodes and validates a chunk of product records, grouping their flows by process type.
+     * Decoding stops at the first invalid record, whose error the chunk keeps.
+     * 
+     * @param records the records
+     * @param from the index of the first record of the chunk
+     * @param to the index just past the last record of the chunk
+     * @return the chunk
+     */
+    private FlowChunk decodeChunk(List<ParsedRecord> records, int from, int to) {
+        FlowChunk chunk = new FlowChunk();
+        try {
+            for (int i = from; i < to; i++) {
+                ParsedRecord record = records.get(i);
+                if (record.getFieldCount() < CsvSchema.PRODUCT.getColumnCount()) {
+                    throw new InvalidParseDataException("Missing product values in line " + record.getLineNumber());
+                }
+                ProcessType processType = decodeProcessType(record);
+                chunk.add(processType, record.getField(PRODUCT_FLOW_NAME), createFlow(record));
             }
+        } catch (InvalidParseDataException e) {
+            chunk.error = e;
+        }
+        return chunk;
+    }
 
-            String productFlowName = values[5];
-            String flowName = values[6];
-            Unit flowUnit;
-            try {
-                flowUnit = Unit.valueOf(values[7]);
-            } catch (IllegalArgumentException e) {
-                throw new InvalidParseDataException("Invalid flow unit value: " + values[7]);
+    /**
+     * Builds the product flows of a process from the flows of every chunk, in record order.
+     * 
+     * @param chunks the chunks, in record order
+     * @param processType the type of the process
+     * @return the product flows of the process by name, in the order they first appear
+     */
+    private Map<String, ProductFlow> buildProductFlows(List<FlowChunk> chunks, ProcessType processType) {
+        Map<String, ProductFlow> productFlows = new LinkedHashMap<>();
+        for (FlowChunk chunk : chunks) {
+            List<String> names = chunk.productFlowNames[processType.ordinal()];
+            List<Flow> flows = chunk.flows[processType.ordinal()];
+            if (names == null) {
+                continue;
             }
+            for (int i = 0; i < names.size(); i++) {
+                ProductFlow productFlow = productFlows.get(names.get(i));
+                if (productFlow == null) {
+                    productFlow = new ProductFlow(names.get(i), new ArrayList<>());
+                    productFlow.setSymbolTable(symbols);
+                    productFlows.put(names.get(i), productFlow);
+                }
+                productFlow.addFlow(flows.get(i));
+            }
+        }
+        return productFlows;
+    }
 
-            Category flowCategory;
-            try {
-                flowCategory = Category.valueOf(values[8]);
-            } catch (IllegalArgumentException e) {
-                throw new InvalidParseDataException("Invalid flow category value: " + values[8]);
+    /**
+     * Waits for the results of parallel tasks.
+     * 
+     * @param futures the futures of the tasks
+     * @return the results, in task order
+     * @throws InvalidParseDataException if a task failed
+     */
+    private static <T> List<T> collect(List<Future<T>> futures) throws InvalidParseDataException {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidParseDataException("Modeling of the product was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new InvalidParseDataException("Error modeling the product: " + e.getCause().getMessage(), e.getCause());
+        }
+        return results;
+    }
 
-            double flowQuantity;
-            flowQuantity = Double.parseDouble(values[9]);
+    /**
+     * Models the product from the parsed data into a flow table, the columnar alternative to the
+     * object graph that {@link #modelProduct(ParsedData)} builds, with the same grouping of flows.
+     * 
+     * @param parsedData the parsed data
+     * @param offHeap whether the flows are held off the heap
+     * @return the flow table
+     * @throws InvalidParseDataException if the parsed data is invalid
+     */
+    public FlowTable modelFlowTable(ParsedData parsedData, boolean offHeap) throws InvalidParseDataException {
+        List<ParsedRecord> records = decodeProductRecords(parsedData);
 
-            Tag flowTag;
-            try {
-                flowTag = Tag.valueOf(values[10]);
-            } catch (IllegalArgumentException e) {
-                throw new InvalidParseDataException("Invalid flow tag value: " + values[10]);
+        FlowTable table = new FlowTable(symbols, offHeap, records.size());
+        boolean first = true;
+        for (ParsedRecord record : records) {
+            if (record.getFieldCount() < CsvSchema.PRODUCT.getColumnCount()) {
+                throw new InvalidParseDataException("Missing product values in line " + record.getLineNumber());
             }
 
-            FlowType flowType;
+            if (first) {
+                table.setName(record.getField(PRODUCT_NAME));
+                table.setCountry(record.getField(PRODUCT_COUNTRY));
+                table.setWeight(record.getNumber(PRODUCT_WEIGHT));
+                table.setUnit(decode(UNITS, record, PRODUCT_UNIT,
+                        () -> new InvalidParseDataException("Invalid product unit value: " + record.getField(PRODUCT_UNIT))));
+                first = false;
+            }
+            addFlow(table, record);
+        }
+
+        if (Double.isNaN(table.getWeight())) {
+            throw new InvalidParseDataException("Invalid product weight value");
+        }
+        return table;
+    }
+
+    /**
+     * Models the product from the parsed data into a flow table, and returns it as a product whose
+     * processes, product flows and flows are created from the table only when they are first read.
+     * 
+     * @param parsedData the parsed data
+     * @param offHeap whether the flows are held off the heap
+     * @return the product
+     * @throws InvalidParseDataException if the parsed data is invalid
+     */
+    public LazyProduct modelLazyProduct(ParsedData parsedData, boolean offHeap) throws InvalidParseDataException {
+        return new LazyProduct(modelFlowTable(parsedData, offHeap));
+    }
+
+    /**
+     * Models every product in the parsed data, in a single pass over its records. Records are
+     * grouped by product name, and each product takes its country, weight and unit from its first
+     * record; a later record of the same name with another country, weight or unit is rejected.
+     * 
+     * @param parsedData the parsed data
+     * @return the products by name, in the order their first record appears
+     * @throws InvalidParseDataException if the parsed data is invalid
+     */
+    public Map<String, Product> modelProducts(ParsedData parsedData) throws InvalidParseDataException {
+        List<ParsedRecord> records = decodeProductRecords(parsedData);
+
+        Map<String, Product> products = new LinkedHashMap<>();
+        productFlowIndex = new HashMap<>();
+        for (ParsedRecord record : records) {
+            modelProductRecord(products, record);
+        }
+        return products;
+    }
+
+    /**
+     * Models one record into the product of its name, which is created from the record and added
+     * to the products if they hold none of that name yet. A record whose country, weight or unit
+     * differs from those of the product of its name is rejected rather than folded into it.
+     * 
+     * @param products the products by name
+     * @param record the record
+     * @return the product the record was modeled into
+     * @throws InvalidParseDataException if the record is invalid or conflicts with the product of its name
+     */
+    public Product modelProductRecord(Map<String, Product> products, ParsedRecord record) throws InvalidParseDataException {
+        if (record == null) {
+            throw new InvalidParseDataException("ParsedRecord is null");
+        }
+        if (record.getFieldCount() < CsvSchema.PRODUCT.getColumnCount()) {
+            throw new InvalidParseDataException("Missing product values in line " + record.getLineNumber());
+        }
+
+        String productName = record.getField(PRODUCT_NAME);
+        String productCountry = record.getField(PRODUCT_COUNTRY);
+        double productWeight = record.getNumber(PRODUCT_WEIGHT);
+        if (Double.isNaN(productWeight)) {
+            throw new InvalidParseDataException("Invalid product weight value");
+        }
+        Unit productUnit = decode(UNITS, record, PRODUCT_UNIT,
+                () -> new InvalidParseDataException("Invalid product unit value: " + record.getField(PRODUCT_UNIT)));
+
+        Product recordProduct = products.get(productName);
+        if (recordProduct == null) {
+            recordProduct = new Product(productName, productCountry, productWeight, productUnit,
+                    new ProductSystem(new ArrayList<>()));
+            products.put(productName, recordProduct);
+        } else if (!productCountry.equals(recordProduct.getCountry()) || productWeight != recordProduct.getWeight()
+                || productUnit != recordProduct.getUnit()) {
+            throw new InvalidParseDataException("Conflicting country, weight or unit for product " + productName
+                    + " in line " + record.getLineNumber());
+        }
+        addRecord(recordProduct, record);
+        return recordProduct;
+    }
+
+    /**
+     * Creates a handler that models each streamed record into the given products, so a file holding
+     * many products is modeled while it is read, without keeping its records. A record that cannot
+     * be modeled stops the stream with an {@link InvalidDataException} for its line.
+     * 
+     * @param products the products by name, filled as records arrive
+     * @return the handler
+     */
+    public ParsedRecordHandler productHandler(Map<String, Product> products) {
+        return record -> {
             try {
-                flowType = FlowType.valueOf(values[11]);
-            } catch (IllegalArgumentException e) {
-                throw new InvalidParseDataException("Invalid flow type value: " + values[11]);
+                modelProductRecord(products, record);
+            } catch (InvalidParseDataException e) {
+                InvalidDataException invalid = new InvalidDataException(e.getMessage(), record.getLineNumber());
+                invalid.initCause(e);
+                throw invalid;
             }
+        };
+    }
+
+    /**
+     * Decodes the records of parsed product data, unless the parser already decoded them.
+     * 
+     * @param parsedData the parsed data
+     * @return the records
+     * @throws InvalidParseDataException if the parsed data is invalid
+     */
+    private List<ParsedRecord> decodeProductRecords(ParsedData parsedData) throws InvalidParseDataException {
+        if (parsedData == null) {
+            throw new InvalidParseDataException("ParsedData is null");
+        }
 
-            String flowOriginCountry = values[12];
+        List<ParsedRecord> records = parsedData.getRecords();
+        if (records == null) {
+            String productString = parsedData.getProductString();
+            if (productString == null || productString.isEmpty()) {
+                throw new InvalidParseDataException("ParsedData productString is null or empty");
+            }
+            try {
+                records = new RecordDecoder(CsvSchema.PRODUCT).decode(productString);
+            } catch (InvalidDataException e) {
+                throw new InvalidParseDataException("Invalid product data: " + e.getMessage(), e);
+            }
+        }
+        return records;
+    }
 
-            validateUnitForCategory(flowUnit, flowCategory, () -> new InvalidParseDataException("Invalid unit " + flowUnit + " for category " + flowCategory));
+    /**
+     * Models a record appended to the data of a product that was already modeled, adding its flow
+     * to the product flow of its name in the process of its type, either of which is created if the
+     * product has none yet. The flow is the last flow of that product flow, which
+     * {@link #findProductFlow(Process, ParsedRecord)} returns.
+     *
+     * @param product the product
+     * @param record the appended record
+     * @return the process the flow was added to
+     * @throws InvalidParseDataException if the product or the record is invalid
+     */
+    public Process appendProductFlow(Product product, ParsedRecord record) throws InvalidParseDataException {
+        if (product == null || product.getProductSystem() == null) {
+            throw new InvalidParseDataException("Product must have a product system");
+        }
+        if (record == null) {
+            throw new InvalidParseDataException("ParsedRecord is null");
+        }
+        if (record.getFieldCount() < CsvSchema.PRODUCT.getColumnCount()) {
+            throw new InvalidParseDataException("Missing product values in line " + record.getLineNumber());
+        }
+        return addRecord(product, record);
+    }
 
-            Flow flow = new Flow(flowName, flowUnit, flowCategory, flowQuantity, flowTag, flowType, flowOriginCountry);
-            ProductFlow productFlow = new ProductFlow(productFlowName, new ArrayList<>());
-            productFlow.addFlow(flow);
+    /**
+     * Adds the flow of a record to the product flow of its name in the process of its type, either
+     * of which is created if the product has none yet.
+     *
+     * @param product the product
+     * @param record the record
+     * @return the process the flow was added to
+     * @throws InvalidParseDataException if a value of the record is invalid
+     */
+    private Process addRecord(Product product, ParsedRecord record) throws InvalidParseDataException {
+        ProcessType processType = decodeProcessType(record);
+        Flow flow = createFlow(record);
 
-            Process process = processMap.get(processType);
-            if (process == null) {
-                process = new Process(processType, new ArrayList<>());
-                processMap.put(processType, process);
-                productSystem.addProcess(process);
+        ProductSystem productSystem = product.getProductSystem();
+        Process process = null;
+        for (Process candidate : productSystem.getProcesses()) {
+            if (candidate.getProcessType() == processType) {
+                process = candidate;
+                break;
             }
+        }
+        if (process == null) {
+            process = new Process(processType, new ArrayList<>());
+            productSystem.addProcess(process);
+        }
+        addFlow(process, record.getField(PRODUCT_FLOW_NAME), flow);
+        return process;
+    }
+
+    /**
+     * Finds the product flow of a process named by a product record.
+     *
+     * @param process the process
+     * @param record the record
+     * @return the product flow, or null if the process has none of that name
+     */
+    public ProductFlow findProductFlow(Process process, ParsedRecord record) {
+        return indexProductFlows(process).get(record.getField(PRODUCT_FLOW_NAME));
+    }
+
+    /**
+     * Adds a flow to the product flow of a process with the given name, creating the product flow
+     * if the process has none of that name yet, so rows sharing a product flow share one object.
+     *
+     * @param process the process
+     * @param productFlowName the name of the product flow
+     * @param flow the flow
+     */
+    private void addFlow(Process process, String productFlowName, Flow flow) {
+        Map<String, ProductFlow> productFlows = indexProductFlows(process);
+        ProductFlow productFlow = productFlows.get(productFlowName);
+        if (productFlow == null) {
+            productFlow = new ProductFlow(productFlowName, new ArrayList<>());
+            productFlow.setSymbolTable(symbols);
+            productFlows.put(productFlowName, productFlow);
             process.addProductFlow(productFlow);
         }
+        productFlow.addFlow(flow);
+    }
 
-        product = new Product(productName, productCountry, productWeight, productUnit, productSystem);
-        return product;
+    /**
+     * Returns the index of the product flows of a process by name. The processes of the product
+     * last modeled are indexed as they are built; any other process is indexed on first use, after
+     * which its product flows are expected to be added through this modeler.
+     *
+     * @param process the process
+     * @return the product flows of the process by name
+     */
+    private Map<String, ProductFlow> indexProductFlows(Process process) {
+        Map<String, ProductFlow> productFlows = productFlowIndex.get(process);
+        if (productFlows == null) {
+            productFlows = new HashMap<>();
+            for (ProductFlow productFlow : process.getProductFlows()) {
+                productFlows.putIfAbsent(productFlow.getName(), productFlow);
+            }
+            productFlowIndex.put(process, productFlows);
+        }
+        return productFlows;
+    }
+
+    /**
+     * Decodes the process type of a product record.
+     *
+     * @param record the record
+     * @return the process type
+     * @throws InvalidParseDataException if the value is invalid
+     */
+    private ProcessType decodeProcessType(ParsedRecord record) throws InvalidParseDataException {
+        return decode(PROCESS_TYPES, record, PROCESS_TYPE,
+                () -> new InvalidParseDataException("Invalid process type value: " + record.getField(PROCESS_TYPE)));
+    }
+
+    /**
+     * Creates the flow of a product record.
+     *
+     * @param record the record
+     * @return the flow
+     * @throws InvalidParseDataException if a value is invalid
+     */
+    private Flow createFlow(ParsedRecord record) throws InvalidParseDataException {
+        Unit flowUnit = decodeFlowUnit(record);
+        Category flowCategory = decodeFlowCategory(record);
+        double flowQuantity = decodeFlowQuantity(record);
+        Tag flowTag = decodeFlowTag(record);
+        FlowType flowType = decodeFlowType(record);
+
+        validateUnitForCategory(flowUnit, flowCategory, () -> new InvalidParseDataException("Invalid unit " + flowUnit + " for category " + flowCategory));
+
+        Flow flow = new Flow(record.getField(FLOW_NAME), flowUnit, flowCategory, flowQuantity, flowTag, flowType,
+                record.getField(FLOW_ORIGIN_COUNTRY));
+        flow.setSymbolTable(symbols);
+        return flow;
+    }
+
+    /**
+     * Adds the flow of a product record to a flow table, in the product flow of its name in the
+     * process of its type.
+     *
+     * @param table the flow table
+     * @param record the record
+     * @throws InvalidParseDataException if a value is invalid
+     */
+    private void addFlow(FlowTable table, ParsedRecord record) throws InvalidParseDataException {
+        ProcessType processType = decodeProcessType(record);
+        Unit flowUnit = decodeFlowUnit(record);
+        Category flowCategory = decodeFlowCategory(record);
+        double flowQuantity = decodeFlowQuantity(record);
+        Tag flowTag = decodeFlowTag(record);
+        FlowType flowType = decodeFlowType(record);
+
+        validateUnitForCategory(flowUnit, flowCategory, () -> new InvalidParseDataException("Invalid unit " + flowUnit + " for category " + flowCategory));
+
+        int productFlow = table.productFlowOf(processType, symbols.encode(record.getField(PRODUCT_FLOW_NAME)));
+        table.addFlow(productFlow, symbols.encode(record.getField(FLOW_NAME)), flowUnit, flowCategory, flowQuantity,
+                flowTag, flowType, symbols.encode(record.getField(FLOW_ORIGIN_COUNTRY)));
+    }
+
+    /**
+     * Decodes the flow unit of a product record.
+     *
+     * @param record the record
+     * @return the unit
+     * @throws InvalidParseDataException if the value is invalid
+     */
+    private Unit decodeFlowUnit(ParsedRecord record) throws InvalidParseDataException {
+        return decode(UNITS, record, FLOW_UNIT,
+                () -> new InvalidParseDataException("Invalid flow unit value: " + record.getField(FLOW_UNIT)));
+    }
+
+    /**
+     * Decodes the flow category of a product record.
+     *
+     * @param record the record
+     * @return the category
+     * @throws InvalidParseDataException if the value is invalid
+     */
+    private Category decodeFlowCategory(ParsedRecord record) throws InvalidParseDataException {
+        return decode(CATEGORIES, record, FLOW_CATEGORY,
+                () -> new InvalidParseDataException("Invalid flow category value: " + record.getField(FLOW_CATEGORY)));
+    }
+
+    /**
+     * Decodes the flow quantity of a product record.
+     *
+     * @param record the record
+     * @return the quantity
+     * @throws InvalidParseDataException if the value is invalid
+     */
+    private double decodeFlowQuantity(ParsedRecord record) throws InvalidParseDataException {
+        double flowQuantity = record.getNumber(FLOW_QUANTITY);
+        if (Double.isNaN(flowQuantity)) {
+            throw new InvalidParseDataException("Invalid flow quantity value: " + record.getField(FLOW_QUANTITY));
+        }
+        return flowQuantity;
+    }
+
+    /**
+     * Decodes the flow tag of a product record.
+     *
+     * @param record the record
+     * @return the tag
+     * @throws InvalidParseDataException if the value is invalid
+     */
+    private Tag decodeFlowTag(ParsedRecord record) throws InvalidParseDataException {
+        return decode(TAGS, record, FLOW_TAG,
+                () -> new InvalidParseDataException("Invalid flow tag value: " + record.getField(FLOW_TAG)));
+    }
+
+    /**
+     * Decodes the flow type of a product record.
+     *
+     * @param record the record
+     * @return the type
+     * @throws InvalidParseDataException if the value is invalid
+     */
+    private FlowType decodeFlowType(ParsedRecord record) throws InvalidParseDataException {
+        return decode(FLOW_TYPES, record, FLOW_TYPE,
+                () -> new InvalidParseDataException("Invalid flow type value: " + record.getField(FLOW_TYPE)));
     }
 
     /**
@@ -144,44 +703,42 @@ public class Modeler implements ModelerService {
         if (parsedEmissionsData == null) {
             throw new InvalidParsedEmissionsDataException("ParsedEmissionsData is null");
         }
-    
-        String emissionsString = parsedEmissionsData.getEmissionsString();
-        if (emissionsString == null || emissionsString.isEmpty()) {
-            throw new InvalidParsedEmissionsDataException("ParsedEmissionsData emissionsString is null or empty");
+
+        List<ParsedRecord> records = parsedEmissionsData.getRecords();
+        if (records == null) {
+            String emissionsString = parsedEmissionsData.getEmissionsString();
+            if (emissionsString == null || emissionsString.isEmpty()) {
+                throw new InvalidParsedEmissionsDataException("ParsedEmissionsData emissionsString is null or empty");
+            }
+            try {
+                records = new RecordDecoder(CsvSchema.EMISSIONS).decode(emissionsString);
+            } catch (InvalidDataException e) {
+                throw new InvalidParsedEmissionsDataException("Invalid emissions data: " + e.getMessage(), e);
+            }
         }
     
-        String[] lines = emissionsString.split("\n");
-        String[] headers = lines[0].split(",");
-    
         emissionsList = new ArrayList<>();
     
-        for (int i = 1; i < lines.length; i++) {
-            String[] values = lines[i].split(",");
-    
-            String name = values[0];
-            Category category;
-            try {
-                category = Category.valueOf(values[1]);
-            } catch (IllegalArgumentException e) {
-                throw new InvalidParsedEmissionsDataException("Invalid emissions category value: " + values[1]);
+        for (ParsedRecord record : records) {
+            if (record.getFieldCount() < CsvSchema.EMISSIONS.getColumnCount()) {
+                throw new InvalidParsedEmissionsDataException("Missing emissions values in line " + record.getLineNumber());
             }
-    
-            Unit unit;
-            try {
-                unit = Unit.valueOf(values[2]);
-            } catch (IllegalArgumentException e) {
-                throw new InvalidParsedEmissionsDataException("Invalid emissions unit value: " + values[2]);
+
+            String name = record.getField(EMISSION_NAME);
+            Category category = decode(CATEGORIES, record, EMISSION_CATEGORY,
+                    () -> new InvalidParsedEmissionsDataException("Invalid emissions category value: " + record.getField(EMISSION_CATEGORY)));
+            Unit unit = decode(UNITS, record, EMISSION_UNIT,
+                    () -> new InvalidParsedEmissionsDataException("Invalid emissions unit value: " + record.getField(EMISSION_UNIT)));
+            double quantity = record.getNumber(EMISSION_QUANTITY);
+            double emissionFactor = record.getNumber(EMISSION_FACTOR);
+            if (Double.isNaN(quantity) || Double.isNaN(emissionFactor)) {
+                throw new InvalidParsedEmissionsDataException("Invalid emissions numeric value in line " + record.getLineNumber());
             }
     
-            double quantity;
-            quantity = Double.parseDouble(values[3]);
-    
-            double emissionFactor;
-            emissionFactor = Double.parseDouble(values[4]);
-    
             validateUnitForCategory(unit, category, () -> new InvalidParsedEmissionsDataException("Invalid unit " + unit + " for category " + category));
 
             Emission emission = new Emission(name, category, unit, quantity, emissionFactor);
+            emission.setSymbolTable(symbols);
             emissionsList.add(emission);
         }
     
@@ -189,7 +746,25 @@ public class Modeler implements ModelerService {
     }
 
     /**
-     * Validates the unit for the category.
+     * Decodes the enum constant named by a column of a record from its resolved ordinal.
+     *
+     * @param constants the constants of the enum
+     * @param record the record
+     * @param column the column index
+     * @param exceptionSupplier the supplier for the exception to be thrown
+     * @return the constant
+     * @throws Exception if the value names no constant
+     */
+    private <E, T extends Exception> E decode(E[] constants, ParsedRecord record, int column, Supplier<T> exceptionSupplier) throws T {
+        int ordinal = record.getOrdinal(column);
+        if (ordinal < 0) {
+            throw exceptionSupplier.get();
+        }
+        return constants[ordinal];
+    }
+
+    /**
+     * Validates the unit for the category, with a lookup in the validity matrix.
      * 
      * @param unit the unit
      * @param category the category
@@ -197,48 +772,91 @@ public class Modeler implements ModelerService {
      * @throws Exception if the unit is invalid for the category
      */
     private <T extends Exception> void validateUnitForCategory(Unit unit, Category category, Supplier<T> exceptionSupplier) throws T {
+        if ((VALID_UNITS[category.ordinal()] & (1L << unit.ordinal())) == 0) {
+            throw exceptionSupplier.get();
+        }
+    }
+
+    /**
+     * Builds the validity matrix, with one row of bits per category, where the bit at the ordinal of
+     * a unit is set if that unit is valid for the category.
+     * 
+     * @return the validity matrix
+     */
+    private static long[] buildValidUnits() {
+        long[] validUnits = new long[CATEGORIES.length];
+        for (Category category : CATEGORIES) {
+            for (Unit unit : UNITS) {
+                if (isValidUnitForCategory(unit, category)) {
+                    validUnits[category.ordinal()] |= 1L << unit.ordinal();
+                }
+            }
+        }
+        return validUnits;
+    }
+
+    /**
+     * Checks whether the unit is valid for the category.
+     * 
+     * @param unit the unit
+     * @param category the category
+     * @return true if the unit is valid for the category, false otherwise
+     */
+    private static boolean isValidUnitForCategory(Unit unit, Category category) {
         switch (category) {
             case Water:
-                if (unit != Unit.Liters) {
-                    throw exceptionSupplier.get();
-                }
-                break;
+                return unit == Unit.Liters;
             case RawMaterial:
-                if (unit == Unit.Joules || unit == Unit.Watts || unit == Unit.Kilowatts || unit == Unit.KgCO2) {
-                    throw exceptionSupplier.get();
-                }
-                break;
+                return unit != Unit.Joules && unit != Unit.Watts && unit != Unit.Kilowatts && unit != Unit.KgCO2;
             case WindEnergy:
             case HydroPowerEnergy:
             case SolarEnergy:
             case NaturalGasEnergy:
             case BiomassEnergy:
             case RadioactiveEnergy:
-                if (unit != Unit.Joules && unit != Unit.Watts && unit != Unit.Kilowatts) {
-                    throw exceptionSupplier.get();
-                }
-                break;
+                return unit == Unit.Joules || unit == Unit.Watts || unit == Unit.Kilowatts;
             case AirEmission:
             case WaterEmission:
             case GroundEmission:
-                if (unit != Unit.KgCO2) {
-                    throw exceptionSupplier.get();
-                }
-                break;
+                return unit == Unit.KgCO2;
             case LandOccupation:
-                if (unit != Unit.SquareMeters && unit != Unit.SquareKilometers) {
-                    throw exceptionSupplier.get();
-                }
-                break;
+                return unit == Unit.SquareMeters || unit == Unit.SquareKilometers;
             case LandTransport:
             case AirTransport:
             case SeaTransport:
-                if (unit != Unit.Kilometers) {
-                    throw exceptionSupplier.get();
-                }
-                break;
+                return unit == Unit.Kilometers;
             default:
-                throw exceptionSupplier.get();
+                return false;
+        }
+    }
+
+    /**
+     * Flows of a chunk of product records, grouped by process type in record order.
+     */
+    private static class FlowChunk {
+        private final List<ProcessType> processTypes = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        private final List<String>[] productFlowNames = new List[PROCESS_TYPES.length];
+        @SuppressWarnings("unchecked")
+        private final List<Flow>[] flows = new List[PROCESS_TYPES.length];
+        private InvalidParseDataException error;
+
+        /**
+         * Adds the flow of a record.
+         *
+         * @param processType the process type of the record
+         * @param productFlowName the product flow name of the record
+         * @param flow the flow of the record
+         */
+        private void add(ProcessType processType, String productFlowName, Flow flow) {
+            int type = processType.ordinal();
+            if (flows[type] == null) {
+                processTypes.add(processType);
+                productFlowNames[type] = new ArrayList<>();
+                flows[type] = new ArrayList<>();
+            }
+            productFlowNames[type].add(productFlowName);
+            flows[type].add(flow);
         }
     }
-}
\ No newline at end of file
+}
@@ -12,6 +12,8 @@ public class Emission {
     private Unit unit;
     private double quantity;
     private double emissionFactor;
+    private int nameId;
+    private SymbolTable symbols;
 
     /**
      * Constructor.
@@ -23,7 +25,7 @@ public class Emission {
      * @param emissionFactor Emission factor.
      */
     public Emission(String name, Category category, Unit unit, double quantity, double emissionFactor) {
-        this.name = name;
+        setName(name);
         this.category = category;
         this.unit = unit;
         this.quantity = quantity;
@@ -42,7 +44,31 @@ public class Emission {
      * @param name
      */
     public void setName(String name) {
-        this.name = name;
+        this.nameId = symbols == null ? SymbolTable.NO_SYMBOL : symbols.encode(name);
+        this.name = symbols == null ? name : symbols.decode(nameId);
+    }
+
+    /**
+     * Get the id of the emission name in its symbol table, or {@link SymbolTable#NO_SYMBOL} if it has none.
+     */
+    public int getNameId() {
+        return nameId;
+    }
+
+    /**
+     * Get the symbol table that encodes the emission name, or null if it is not encoded.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * Encode the emission name, and any set later, in a symbol table.
+     * @param symbols the symbol table of the run
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
+        setName(name);
     }
 
     /**
@@ -13,6 +13,10 @@ public class Flow {
     private Tag tag;
     private FlowType type;
     private String originCountry;
+    private int nameId;
+    private int originCountryId;
+    private SymbolTable symbols;
+    private boolean derived;
 
     /*
      * Constructor for the Flow class.
@@ -25,13 +29,13 @@ public class Flow {
      * @param originCountry The country of origin of the flow
      */
     public Flow(String name, Unit unit, Category category, double quantity, Tag tag, FlowType type, String originCountry) {
-        this.name = name;
+        setName(name);
         this.unit = unit;
         this.category = category;
         this.quantity = quantity;
         this.tag = tag;
         this.type = type;
-        this.originCountry = originCountry;
+        setOriginCountry(originCountry);
     }
 
     /*
@@ -44,12 +48,12 @@ public class Flow {
      * @param originCountry The country of origin of the flow
      */
     public Flow(String name, Unit unit, Category category, double quantity, FlowType type, String originCountry) {
-        this.name = name;
+        setName(name);
         this.unit = unit;
         this.category = category;
         this.quantity = quantity;
         this.type = type;
-        this.originCountry = originCountry;
+        setOriginCountry(originCountry);
     }
 
     /*
@@ -64,7 +68,15 @@ public class Flow {
      * @param name The name to set
      */
     public void setName(String name) {
-        this.name = name;
+        this.nameId = symbols == null ? SymbolTable.NO_SYMBOL : symbols.encode(name);
+        this.name = symbols == null ? name : symbols.decode(nameId);
+    }
+
+    /*
+     * Returns the id of the name of the flow in its symbol table, or NO_SYMBOL if it has none.
+     */
+    public int getNameId() {
+        return nameId;
     }
 
     /*
@@ -154,6 +166,46 @@ public class Flow {
      * @param originCountry The country to set
      */
     public void setOriginCountry(String originCountry) {
-        this.originCountry = originCountry;
+        this.originCountryId = symbols == null ? SymbolTable.NO_SYMBOL : symbols.encode(originCountry);
+        this.originCountry = symbols == null ? originCountry : symbols.decode(originCountryId);
+    }
+
+    /*
+     * Returns the id of the country of origin of the flow in its symbol table, or NO_SYMBOL if it has none.
+     */
+    public int getOriginCountryId() {
+        return originCountryId;
+    }
+
+    /*
+     * Returns whether the flow was derived by a PCF calculation, as the emission flow of an input flow.
+     */
+    public boolean isDerived() {
+        return derived;
+    }
+
+    /*
+     * Sets whether the flow was derived by a PCF calculation.
+     * @param derived Whether the flow is derived
+     */
+    public void setDerived(boolean derived) {
+        this.derived = derived;
+    }
+
+    /*
+     * Returns the symbol table that encodes the strings of the flow, or null if they are not encoded.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /*
+     * Encodes the name and country of origin of the flow, and any set later, in a symbol table.
+     * @param symbols The symbol table of the run
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
+        setName(name);
+        setOriginCountry(originCountry);
     }
 }
\ No newline at end of file
@@ -0,0 +1,601 @@
+package esiim.modeler.entity;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import esiim.modeler.entity.enums.Category;
+import esiim.modeler.entity.enums.FlowType;
+import esiim.modeler.entity.enums.ProcessType;
+import esiim.modeler.entity.enums.Tag;
+import esiim.modeler.entity.enums.Unit;
+
+/**
+ * Columnar representation of a product, as an alternative to the {@link Product} object graph.
+ * Each field of the flows is a column of its own, indexed by flow: the quantities, the ids of the
+ * names and origin countries in the {@link SymbolTable} of the table, the product flows, the next
+ * flow of each product flow, the ordinals of the units, categories, tags and types, and whether
+ * each flow was derived by a PCF calculation. A scan
+ * over one field therefore reads only that column, and each column is aligned to its element size.
+ * The columns are on the heap, or off the heap when the table is created so, which keeps large
+ * products out of the garbage-collected heap; adding a flow allocates nothing until a column grows.
+ * Processes and product flows, which are few, are held in arrays, and each links its product
+ * flows or flows in insertion order, so a table is walked in the same order as the object graph.
+ * Indexes of processes, product flows and flows start at 0, and {@link #NONE} ends each list.
+ */
+public class FlowTable {
+    /** Index that ends a list, or marks a missing value. */
+    public static final int NONE = -1;
+
+    private static final int MAX_FLOWS = Integer.MAX_VALUE / Double.BYTES;
+    private static final long NO_KEY = -1;
+
+    private static final Unit[] UNITS = Unit.values();
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Tag[] TAGS = Tag.values();
+    private static final FlowType[] FLOW_TYPES = FlowType.values();
+    private static final ProcessType[] PROCESS_TYPES = ProcessType.values();
+
+    private final SymbolTable symbols;
+    private final boolean offHeap;
+    private int flowCount;
+    private DoubleBuffer quantities;
+    private IntBuffer names;
+    private IntBuffer originCountries;
+    private IntBuffer flowProductFlows;
+    private IntBuffer nextFlows;
+    private ByteBuffer units;
+    private ByteBuffer categories;
+    private ByteBuffer tags;
+    private ByteBuffer types;
+    private ByteBuffer derived;
+
+    private String name;
+    private String country;
+    private double weight;
+    private Unit unit;
+    private double pcf;
+
+    private final int[] processByType = new int[PROCESS_TYPES.length];
+    private int processCount;
+    private byte[] processTypes = new byte[PROCESS_TYPES.length];
+    private int[] firstProductFlows = new int[PROCESS_TYPES.length];
+    private int[] lastProductFlows = new int[PROCESS_TYPES.length];
+    private double[] processPcfs = new double[PROCESS_TYPES.length];
+
+    private long[] slotKeys = new long[32];
+    private int[] slotProductFlows = new int[32];
+    private int productFlowCount;
+    private int[] productFlowNames = new int[16];
+    private int[] productFlowProcesses = new int[16];
+    private int[] nextProductFlows = new int[16];
+    private int[] firstFlows = new int[16];
+    private int[] lastFlows = new int[16];
+    private double[] productFlowPcfs = new double[16];
+
+    /**
+     * Constructor for a table on the heap, with its own symbol table.
+     */
+    public FlowTable() {
+        this(new SymbolTable(), false, 1024);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param symbols the symbol table that encodes the names and countries of the table
+     * @param offHeap whether the flows are held off the heap
+     * @param capacity the number of flows the table holds before it grows
+     */
+    public FlowTable(SymbolTable symbols, boolean offHeap, int capacity) {
+        this.symbols = symbols;
+        this.offHeap = offHeap;
+        allocateColumns(Math.max(1, Math.min(capacity, MAX_FLOWS)));
+        Arrays.fill(processByType, NONE);
+        Arrays.fill(slotKeys, NO_KEY);
+    }
+
+    /**
+     * Returns the symbol table that encodes the names and countries of the table.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * Returns whether the flows are held off the heap.
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Returns the name of the product.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the product.
+     * @param name the name to set
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the country of the product.
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    /**
+     * Sets the country of the product.
+     * @param country the country to set
+     */
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    /**
+     * Returns the weight of the product.
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets the weight of the product.
+     * @param weight the weight to set
+     */
+    public void setWeight(double weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Returns the unit of the weight of the product.
+     */
+    public Unit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Sets the unit of the weight of the product.
+     * @param unit the unit to set
+     */
+    public void setUnit(Unit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Returns the product carbon footprint of the product.
+     */
+    public double getPcf() {
+        return pcf;
+    }
+
+    /**
+     * Sets the product carbon footprint of the product.
+     * @param pcf the product carbon footprint to set
+     */
+    public void setPcf(double pcf) {
+        this.pcf = pcf;
+    }
+
+    /**
+     * Returns the product flow of a process type with the given name, creating it, and the process,
+     * if the table has none yet.
+     *
+     * @param processType the process type
+     * @param nameId the symbol id of the name of the product flow
+     * @return the product flow
+     */
+    public int productFlowOf(ProcessType processType, int nameId) {
+        int process = processByType[processType.ordinal()];
+        if (process == NONE) {
+            process = processCount++;
+            processByType[processType.ordinal()] = process;
+            processTypes[process] = (byte) processType.ordinal();
+            firstProductFlows[process] = NONE;
+            lastProductFlows[process] = NONE;
+        }
+
+        long key = ((long) process << 32) | (nameId & 0xFFFFFFFFL);
+        int slot = findSlot(key);
+        if (slotKeys[slot] == key) {
+            return slotProductFlows[slot];
+        }
+
+        int productFlow = productFlowCount++;
+        if (productFlow == productFlowNames.length) {
+            int length = productFlow * 2;
+            productFlowNames = Arrays.copyOf(productFlowNames, length);
+            productFlowProcesses = Arrays.copyOf(productFlowProcesses, length);
+            nextProductFlows = Arrays.copyOf(nextProductFlows, length);
+            firstFlows = Arrays.copyOf(firstFlows, length);
+            lastFlows = Arrays.copyOf(lastFlows, length);
+            productFlowPcfs = Arrays.copyOf(productFlowPcfs, length);
+        }
+        productFlowNames[productFlow] = nameId;
+        productFlowProcesses[productFlow] = process;
+        nextProductFlows[productFlow] = NONE;
+        firstFlows[productFlow] = NONE;
+        lastFlows[productFlow] = NONE;
+        if (lastProductFlows[process] == NONE) {
+            firstProductFlows[process] = productFlow;
+        } else {
+            nextProductFlows[lastProductFlows[process]] = productFlow;
+        }
+        lastProductFlows[process] = productFlow;
+        slotKeys[slot] = key;
+        slotProductFlows[slot] = productFlow;
+        if (productFlowCount * 2 > slotKeys.length) {
+            rehash();
+        }
+        return productFlow;
+    }
+
+    /**
+     * Adds a flow as the last flow of a product flow.
+     *
+     * @param productFlow the product flow
+     * @param nameId the symbol id of the name of the flow
+     * @param unit the unit of the flow, or null
+     * @param category the category of the flow, or null
+     * @param quantity the quantity of the flow
+     * @param tag the tag of the flow, or null
+     * @param type the type of the flow, or null
+     * @param originCountryId the symbol id of the country of origin of the flow
+     * @return the flow
+     */
+    public int addFlow(int productFlow, int nameId, Unit unit, Category category, double quantity, Tag tag,
+            FlowType type, int originCountryId) {
+        if (flowCount == MAX_FLOWS) {
+            throw new IllegalStateException("Flow table cannot hold more than " + MAX_FLOWS + " flows");
+        }
+        if (flowCount == quantities.capacity()) {
+            growColumns((int) Math.min((long) flowCount * 2, MAX_FLOWS));
+        }
+
+        int flow = flowCount++;
+        quantities.put(flow, quantity);
+        names.put(flow, nameId);
+        originCountries.put(flow, originCountryId);
+        flowProductFlows.put(flow, productFlow);
+        nextFlows.put(flow, NONE);
+        units.put(flow, ordinal(unit));
+        categories.put(flow, ordinal(category));
+        tags.put(flow, ordinal(tag));
+        types.put(flow, ordinal(type));
+        derived.put(flow, (byte) 0);
+
+        if (lastFlows[productFlow] == NONE) {
+            firstFlows[productFlow] = flow;
+        } else {
+            nextFlows.put(lastFlows[productFlow], flow);
+        }
+        lastFlows[productFlow] = flow;
+        return flow;
+    }
+
+    /**
+     * Returns the number of flows.
+     */
+    public int getFlowCount() {
+        return flowCount;
+    }
+
+    /**
+     * Returns the quantity of a flow.
+     * @param flow the flow
+     */
+    public double getQuantity(int flow) {
+        return quantities.get(flow);
+    }
+
+    /**
+     * Returns whether a flow was derived by a PCF calculation, as the emission flow of an input flow.
+     * @param flow the flow
+     */
+    public boolean isDerived(int flow) {
+        return derived.get(flow) != 0;
+    }
+
+    /**
+     * Sets whether a flow was derived by a PCF calculation.
+     * @param flow the flow
+     * @param isDerived whether the flow is derived
+     */
+    public void setDerived(int flow, boolean isDerived) {
+        derived.put(flow, (byte) (isDerived ? 1 : 0));
+    }
+
+    /**
+     * Sets the quantity of a flow.
+     * @param flow the flow
+     * @param quantity the quantity to set
+     */
+    public void setQuantity(int flow, double quantity) {
+        quantities.put(flow, quantity);
+    }
+
+    /**
+     * Returns the symbol id of the name of a flow.
+     * @param flow the flow
+     */
+    public int getNameId(int flow) {
+        return names.get(flow);
+    }
+
+    /**
+     * Returns the symbol id of the country of origin of a flow.
+     * @param flow the flow
+     */
+    public int getOriginCountryId(int flow) {
+        return originCountries.get(flow);
+    }
+
+    /**
+     * Returns the unit of a flow.
+     * @param flow the flow
+     */
+    public Unit getUnit(int flow) {
+        int ordinal = units.get(flow);
+        return ordinal < 0 ? null : UNITS[ordinal];
+    }
+
+    /**
+     * Returns the category of a flow.
+     * @param flow the flow
+     */
+    public Category getCategory(int flow) {
+        int ordinal = categories.get(flow);
+        return ordinal < 0 ? null : CATEGORIES[ordinal];
+    }
+
+    /**
+     * Returns the tag of a flow.
+     * @param flow the flow
+     */
+    public Tag getTag(int flow) {
+        int ordinal = tags.get(flow);
+        return ordinal < 0 ? null : TAGS[ordinal];
+    }
+
+    /**
+     * Returns the type of a flow.
+     * @param flow the flow
+     */
+    public FlowType getType(int flow) {
+        int ordinal = types.get(flow);
+        return ordinal < 0 ? null : FLOW_TYPES[ordinal];
+    }
+
+    /**
+     * Returns the product flow of a flow.
+     * @param flow the flow
+     */
+    public int getProductFlow(int flow) {
+        return flowProductFlows.get(flow);
+    }
+
+    /**
+     * Returns the flow after a flow in its product flow, or {@link #NONE} if it is the last.
+     * @param flow the flow
+     */
+    public int getNextFlow(int flow) {
+        return nextFlows.get(flow);
+    }
+
+    /**
+     * Returns the number of processes.
+     */
+    public int getProcessCount() {
+        return processCount;
+    }
+
+    /**
+     * Returns the type of a process.
+     * @param process the process
+     */
+    public ProcessType getProcessType(int process) {
+        return PROCESS_TYPES[processTypes[process]];
+    }
+
+    /**
+     * Returns the first product flow of a process.
+     * @param process the process
+     */
+    public int getFirstProductFlow(int process) {
+        return firstProductFlows[process];
+    }
+
+    /**
+     * Returns the product carbon footprint of a process.
+     * @param process the process
+     */
+    public double getProcessPcf(int process) {
+        return processPcfs[process];
+    }
+
+    /**
+     * Sets the product carbon footprint of a process.
+     * @param process the process
+     * @param pcf the product carbon footprint to set
+     */
+    public void setProcessPcf(int process, double pcf) {
+        processPcfs[process] = pcf;
+    }
+
+    /**
+     * Returns the number of product flows.
+     */
+    public int getProductFlowCount() {
+        return productFlowCount;
+    }
+
+    /**
+     * Returns the symbol id of the name of a product flow.
+     * @param productFlow the product flow
+     */
+    public int getProductFlowNameId(int productFlow) {
+        return productFlowNames[productFlow];
+    }
+
+    /**
+     * Returns the process of a product flow.
+     * @param productFlow the product flow
+     */
+    public int getProductFlowProcess(int productFlow) {
+        return productFlowProcesses[productFlow];
+    }
+
+    /**
+     * Returns the product flow after a product flow in its process, or {@link #NONE} if it is the last.
+     * @param productFlow the product flow
+     */
+    public int getNextProductFlow(int productFlow) {
+        return nextProductFlows[productFlow];
+    }
+
+    /**
+     * Returns the first flow of a product flow.
+     * @param productFlow the product flow
+     */
+    public int getFirstFlow(int productFlow) {
+        return firstFlows[productFlow];
+    }
+
+    /**
+     * Returns the last flow of a product flow.
+     * @param productFlow the product flow
+     */
+    public int getLastFlow(int productFlow) {
+        return lastFlows[productFlow];
+    }
+
+    /**
+     * Returns the product carbon footprint of a product flow.
+     * @param productFlow the product flow
+     */
+    public double getProductFlowPcf(int productFlow) {
+        return productFlowPcfs[productFlow];
+    }
+
+    /**
+     * Sets the product carbon footprint of a product flow.
+     * @param productFlow the product flow
+     * @param pcf the product carbon footprint to set
+     */
+    public void setProductFlowPcf(int productFlow, double pcf) {
+        productFlowPcfs[productFlow] = pcf;
+    }
+
+    /**
+     * Returns the slot of the index of product flows that holds a key, or the empty slot where it
+     * belongs, probing linearly from the slot its hash picks.
+     *
+     * @param key the process and name id of the product flow
+     * @return the slot
+     */
+    private int findSlot(long key) {
+        int mask = slotKeys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (slotKeys[slot] != NO_KEY && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the slots of the index of product flows, which is kept at most half full.
+     */
+    private void rehash() {
+        long[] keys = slotKeys;
+        int[] productFlows = slotProductFlows;
+        slotKeys = new long[keys.length * 2];
+        slotProductFlows = new int[keys.length * 2];
+        Arrays.fill(slotKeys, NO_KEY);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != NO_KEY) {
+                int slot = findSlot(keys[i]);
+                slotKeys[slot] = keys[i];
+                slotProductFlows[slot] = productFlows[i];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty columns for the flows.
+     *
+     * @param capacity the number of flows the columns hold
+     */
+    private void allocateColumns(int capacity) {
+        quantities = offHeap ? allocate(capacity * Double.BYTES).asDoubleBuffer() : DoubleBuffer.allocate(capacity);
+        names = allocateInts(capacity);
+        originCountries = allocateInts(capacity);
+        flowProductFlows = allocateInts(capacity);
+        nextFlows = allocateInts(capacity);
+        units = allocate(capacity);
+        categories = allocate(capacity);
+        tags = allocate(capacity);
+        types = allocate(capacity);
+        derived = allocate(capacity);
+    }
+
+    /**
+     * Grows the columns of the flows, keeping the flows added so far.
+     *
+     * @param capacity the number of flows the grown columns hold
+     */
+    private void growColumns(int capacity) {
+        DoubleBuffer oldQuantities = quantities;
+        IntBuffer[] oldInts = { names, originCountries, flowProductFlows, nextFlows };
+        ByteBuffer[] oldBytes = { units, categories, tags, types, derived };
+        allocateColumns(capacity);
+        quantities.put(oldQuantities.duplicate().position(0).limit(flowCount)).clear();
+        IntBuffer[] ints = { names, originCountries, flowProductFlows, nextFlows };
+        for (int i = 0; i < ints.length; i++) {
+            ints[i].put(oldInts[i].duplicate().position(0).limit(flowCount)).clear();
+        }
+        ByteBuffer[] bytes = { units, categories, tags, types, derived };
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i].put(oldBytes[i].duplicate().position(0).limit(flowCount)).clear();
+        }
+    }
+
+    /**
+     * Allocates a column of ints, on the heap or off it.
+     *
+     * @param capacity the number of ints
+     * @return the column
+     */
+    private IntBuffer allocateInts(int capacity) {
+        return offHeap ? allocate(capacity * Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+    }
+
+    /**
+     * Allocates a buffer, on the heap or off it, in native byte order.
+     *
+     * @param bytes the size of the buffer
+     * @return the buffer
+     */
+    private ByteBuffer allocate(int bytes) {
+        ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+        return buffer.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Returns the ordinal of an enum constant as a byte.
+     *
+     * @param constant the constant, or null
+     * @return the ordinal, or -1 for null
+     */
+    private static byte ordinal(Enum<?> constant) {
+        return (byte) (constant == null ? NONE : constant.ordinal());
+    }
+}
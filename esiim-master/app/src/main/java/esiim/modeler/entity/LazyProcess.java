@@ -0,0 +1,118 @@
+package esiim.modeler.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process of a {@link LazyProduct}, which creates its product flows from the flow table on the
+ * first call to {@link #getProductFlows()}, and keeps its PCF in the table.
+ */
+public class LazyProcess extends Process {
+    private final LazyProductSystem productSystem;
+    private final FlowTable table;
+    private final int process;
+    private boolean materialized;
+
+    /**
+     * Constructor.
+     *
+     * @param productSystem the product system that holds the process
+     * @param process the index of the process in the table
+     */
+    public LazyProcess(LazyProductSystem productSystem, int process) {
+        super(productSystem.getFlowTable().getProcessType(process), null);
+        this.productSystem = productSystem;
+        this.table = productSystem.getFlowTable();
+        this.process = process;
+    }
+
+    /**
+     * Returns whether this is the process of the given index in the product system, with the
+     * product flows of the table in the same order, if they were created.
+     * @param owner the product system
+     * @param index the index of the process in the table
+     */
+    synchronized boolean matchesTable(LazyProductSystem owner, int index) {
+        if (owner != productSystem || index != process) {
+            return false;
+        }
+        if (!materialized) {
+            return true;
+        }
+        List<ProductFlow> productFlows = super.getProductFlows();
+        if (productFlows == null) {
+            return false;
+        }
+        int productFlow = table.getFirstProductFlow(process);
+        for (ProductFlow entity : productFlows) {
+            if (productFlow == FlowTable.NONE || !(entity instanceof LazyProductFlow)
+                    || !((LazyProductFlow) entity).matchesTable(productSystem, productFlow)) {
+                return false;
+            }
+            productFlow = table.getNextProductFlow(productFlow);
+        }
+        return productFlow == FlowTable.NONE;
+    }
+
+    /**
+     * Returns the list of product flows that make up the process, creating them on the first call.
+     */
+    @Override
+    public synchronized List<ProductFlow> getProductFlows() {
+        if (!materialized) {
+            List<ProductFlow> productFlows = new ArrayList<>();
+            for (int productFlow = table.getFirstProductFlow(process); productFlow != FlowTable.NONE;
+                    productFlow = table.getNextProductFlow(productFlow)) {
+                productFlows.add(new LazyProductFlow(productSystem, productFlow));
+            }
+            super.setProductFlows(productFlows);
+            materialized = true;
+        }
+        return super.getProductFlows();
+    }
+
+    /**
+     * Sets the list of product flows that make up the process.
+     * @param productFlows The list of product flows to set
+     */
+    @Override
+    public synchronized void setProductFlows(List<ProductFlow> productFlows) {
+        super.setProductFlows(productFlows);
+        materialized = true;
+    }
+
+    /**
+     * Returns the product carbon footprint of the process.
+     */
+    @Override
+    public double getPcf() {
+        return table.getProcessPcf(process);
+    }
+
+    /**
+     * Sets the product carbon footprint of the process.
+     * @param pcf The product carbon footprint to set
+     */
+    @Override
+    public void setPcf(double pcf) {
+        table.setProcessPcf(process, pcf);
+    }
+
+    /**
+     * Adds a product flow to the process.
+     * @param productFlow The product flow to add
+     */
+    @Override
+    public void addProductFlow(ProductFlow productFlow) {
+        getProductFlows().add(productFlow);
+    }
+
+    /**
+     * Removes a product flow from the process.
+     * @param productFlow The product flow to remove
+     */
+    @Override
+    public void removeProductFlow(ProductFlow productFlow) {
+        getProductFlows().remove(productFlow);
+    }
+}
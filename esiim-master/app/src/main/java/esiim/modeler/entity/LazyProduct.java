@@ -0,0 +1,62 @@
+package esiim.modeler.entity;
+
+/**
+ * Product backed by a {@link FlowTable}, whose object graph is created only when it is walked.
+ * The product system is a {@link LazyProductSystem} that creates its processes on the first call to
+ * {@link ProductSystem#getProcesses()}, each process its product flows on the first call to
+ * {@link Process#getProductFlows()}, and each product flow its flows on the first call to
+ * {@link ProductFlow#getFlows()}. The PCF of the product, of its processes and of its product flows
+ * is read from and written to the table, so a product whose PCF was calculated on the table, and
+ * which is only asked for its processes, product flows and totals, never creates a flow.
+ * Each list is created under the lock of its owner, so several threads can read a lazy product at
+ * once; changing it is no more thread-safe than changing any other product.
+ */
+public class LazyProduct extends Product {
+    private final FlowTable table;
+    private final LazyProductSystem productSystem;
+
+    /**
+     * Constructor.
+     *
+     * @param table the flow table that holds the product
+     */
+    public LazyProduct(FlowTable table) {
+        super(table.getName(), table.getCountry(), table.getWeight(), table.getUnit(), null);
+        this.table = table;
+        this.productSystem = new LazyProductSystem(table);
+        setProductSystem(productSystem);
+    }
+
+    /**
+     * Returns the flow table that holds the product.
+     */
+    public FlowTable getFlowTable() {
+        return table;
+    }
+
+    /**
+     * Returns whether the flows of the product were created, or its product system, processes or
+     * product flows replaced, after which the table no longer reflects the object graph. Reading
+     * the processes, product flows and totals alone leaves the product unmaterialized.
+     */
+    public boolean isMaterialized() {
+        return getProductSystem() != productSystem || !productSystem.matchesTable();
+    }
+
+    /**
+     * Returns the product carbon footprint of the product.
+     */
+    @Override
+    public double getPcf() {
+        return table.getPcf();
+    }
+
+    /**
+     * Sets the product carbon footprint of the product.
+     * @param pcf the product carbon footprint to set
+     */
+    @Override
+    public void setPcf(double pcf) {
+        table.setPcf(pcf);
+    }
+}
@@ -0,0 +1,108 @@
+package esiim.modeler.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Product flow of a {@link LazyProduct}, which creates its flows from the rows of the flow table on
+ * the first call to {@link #getFlows()}, and keeps its PCF in the table.
+ */
+public class LazyProductFlow extends ProductFlow {
+    private final LazyProductSystem productSystem;
+    private final FlowTable table;
+    private final int productFlow;
+    private boolean materialized;
+
+    /**
+     * Constructor.
+     *
+     * @param productSystem the product system that holds the product flow
+     * @param productFlow the index of the product flow in the table
+     */
+    public LazyProductFlow(LazyProductSystem productSystem, int productFlow) {
+        super(productSystem.getFlowTable().getSymbolTable().decode(
+                productSystem.getFlowTable().getProductFlowNameId(productFlow)), null);
+        setSymbolTable(productSystem.getFlowTable().getSymbolTable());
+        this.productSystem = productSystem;
+        this.table = productSystem.getFlowTable();
+        this.productFlow = productFlow;
+    }
+
+    /**
+     * Returns whether this is the product flow of the given index in the product system.
+     * @param owner the product system
+     * @param index the index of the product flow in the table
+     */
+    boolean matchesTable(LazyProductSystem owner, int index) {
+        return owner == productSystem && index == productFlow;
+    }
+
+    /**
+     * Returns the list of flows that make up the product flow, creating them on the first call.
+     */
+    @Override
+    public synchronized List<Flow> getFlows() {
+        if (!materialized) {
+            SymbolTable symbols = table.getSymbolTable();
+            List<Flow> flows = new ArrayList<>();
+            for (int flow = table.getFirstFlow(productFlow); flow != FlowTable.NONE; flow = table.getNextFlow(flow)) {
+                Flow entity = new Flow(symbols.decode(table.getNameId(flow)), table.getUnit(flow), table.getCategory(flow),
+                        table.getQuantity(flow), table.getTag(flow), table.getType(flow),
+                        symbols.decode(table.getOriginCountryId(flow)));
+                entity.setSymbolTable(symbols);
+                entity.setDerived(table.isDerived(flow));
+                flows.add(entity);
+            }
+            super.setFlows(flows);
+            materialized = true;
+            productSystem.flowsMaterialized();
+        }
+        return super.getFlows();
+    }
+
+    /**
+     * Sets the list of flows that make up the product flow.
+     * @param flows The list of flows to set
+     */
+    @Override
+    public synchronized void setFlows(List<Flow> flows) {
+        super.setFlows(flows);
+        materialized = true;
+        productSystem.flowsMaterialized();
+    }
+
+    /**
+     * Returns the product carbon footprint of the product flow.
+     */
+    @Override
+    public double getPcf() {
+        return table.getProductFlowPcf(productFlow);
+    }
+
+    /**
+     * Sets the product carbon footprint of the product flow.
+     * @param pcf The product carbon footprint to set
+     */
+    @Override
+    public void setPcf(double pcf) {
+        table.setProductFlowPcf(productFlow, pcf);
+    }
+
+    /**
+     * Adds a flow to the product flow.
+     * @param flow The flow to add
+     */
+    @Override
+    public void addFlow(Flow flow) {
+        getFlows().add(flow);
+    }
+
+    /**
+     * Removes a flow from the product flow.
+     * @param flow The flow to remove
+     */
+    @Override
+    public void removeFlow(Flow flow) {
+        getFlows().remove(flow);
+    }
+}
@@ -0,0 +1,114 @@
+package esiim.modeler.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Product system of a {@link LazyProduct}, which creates its processes from the flow table on the
+ * first call to {@link #getProcesses()}.
+ */
+public class LazyProductSystem extends ProductSystem {
+    private final FlowTable table;
+    private boolean materialized;
+    private volatile boolean flowsMaterialized;
+
+    /**
+     * Constructor.
+     *
+     * @param table the flow table that holds the product
+     */
+    public LazyProductSystem(FlowTable table) {
+        super(null);
+        this.table = table;
+    }
+
+    /**
+     * Returns the flow table that holds the product.
+     */
+    public FlowTable getFlowTable() {
+        return table;
+    }
+
+    /**
+     * Returns whether the processes were created.
+     */
+    public synchronized boolean isMaterialized() {
+        return materialized;
+    }
+
+    /**
+     * Records that the flows of one of the product flows were created or set.
+     */
+    void flowsMaterialized() {
+        flowsMaterialized = true;
+    }
+
+    /**
+     * Returns whether the table still reflects the object graph: no flows were created or set, and
+     * the processes, if created, are still those of the table in the same order, as are their
+     * product flows. Only the processes and product flows are walked, never the flows.
+     */
+    synchronized boolean matchesTable() {
+        if (flowsMaterialized) {
+            return false;
+        }
+        if (!materialized) {
+            return true;
+        }
+        List<Process> processes = super.getProcesses();
+        if (processes == null || processes.size() != table.getProcessCount()) {
+            return false;
+        }
+        for (int process = 0; process < processes.size(); process++) {
+            if (!(processes.get(process) instanceof LazyProcess)
+                    || !((LazyProcess) processes.get(process)).matchesTable(this, process)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the list of processes that make up the product system, creating them on the first call.
+     */
+    @Override
+    public synchronized List<Process> getProcesses() {
+        if (!materialized) {
+            List<Process> processes = new ArrayList<>(table.getProcessCount());
+            for (int process = 0; process < table.getProcessCount(); process++) {
+                processes.add(new LazyProcess(this, process));
+            }
+            super.setProcesses(processes);
+            materialized = true;
+        }
+        return super.getProcesses();
+    }
+
+    /**
+     * Sets the list of processes that make up the product system.
+     * @param processes The list of processes to set
+     */
+    @Override
+    public synchronized void setProcesses(List<Process> processes) {
+        super.setProcesses(processes);
+        materialized = true;
+    }
+
+    /**
+     * Adds a process to the product system.
+     * @param process The process to add
+     */
+    @Override
+    public void addProcess(Process process) {
+        getProcesses().add(process);
+    }
+
+    /**
+     * Removes a process from the product system.
+     * @param process The process to remove
+     */
+    @Override
+    public void removeProcess(Process process) {
+        getProcesses().remove(process);
+    }
+}
@@ -9,6 +9,8 @@ public class ProductFlow {
     private String name;
     private List<Flow> flows;
     private double pcf;
+    private int nameId;
+    private SymbolTable symbols;
 
     /*
      * Constructor for the ProductFlow class.
@@ -16,7 +18,7 @@ public class ProductFlow {
      * @param flows The list of flows that make up the product flow
      */
     public ProductFlow(String name, List<Flow> flows) {
-        this.name = name;
+        setName(name);
         this.flows = flows;
     }
 
@@ -32,7 +34,31 @@ public class ProductFlow {
      * @param name The name to set
      */
     public void setName(String name) {
-        this.name = name;
+        this.nameId = symbols == null ? SymbolTable.NO_SYMBOL : symbols.encode(name);
+        this.name = symbols == null ? name : symbols.decode(nameId);
+    }
+
+    /*
+     * Returns the id of the name of the product flow in its symbol table, or NO_SYMBOL if it has none.
+     */
+    public int getNameId() {
+        return nameId;
+    }
+
+    /*
+     * Returns the symbol table that encodes the name of the product flow, or null if it is not encoded.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /*
+     * Encodes the name of the product flow, and any set later, in a symbol table.
+     * @param symbols The symbol table of the run
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
+        setName(name);
     }
 
     /*
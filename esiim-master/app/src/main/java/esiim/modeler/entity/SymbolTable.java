@@ -0,0 +1,95 @@
+package esiim.modeler.entity;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the strings repeated across the entities of a run, such as flow names, product flow
+ * names and countries. Each distinct string is encoded once as an int id and kept as one canonical
+ * instance, so entities holding equal strings share it and can be compared by id.
+ * A run creates its own dictionary and hands it to the modeler and the cache that build its
+ * entities, so the dictionary is released with them. Ids are only comparable within one dictionary;
+ * they are dense, start at 0 and are never reused, so they stay valid for the whole run.
+ * Lookups are lock-free; adding a new string is synchronized.
+ */
+public class SymbolTable {
+    /** Id of a missing string. */
+    public static final int NO_SYMBOL = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[256];
+    private int size;
+
+    /**
+     * Returns whether two strings, each with its id in the dictionary that encoded it, are equal.
+     * Ids from the same dictionary are compared, and the strings themselves otherwise.
+     *
+     * @param symbols the dictionary of the first string, or null
+     * @param id the id of the first string
+     * @param symbol the first string
+     * @param otherSymbols the dictionary of the second string, or null
+     * @param otherId the id of the second string
+     * @param otherSymbol the second string
+     * @return true if both strings are present and equal, false otherwise
+     */
+    public static boolean sameSymbol(SymbolTable symbols, int id, String symbol, SymbolTable otherSymbols, int otherId,
+            String otherSymbol) {
+        if (symbols != null && symbols == otherSymbols) {
+            return id != NO_SYMBOL && id == otherId;
+        }
+        return symbol != null && symbol.equals(otherSymbol);
+    }
+
+    /**
+     * Encodes a string, adding it to the dictionary if it is new.
+     *
+     * @param symbol the string
+     * @return the id of the string, or {@link #NO_SYMBOL} if it is null
+     */
+    public int encode(String symbol) {
+        if (symbol == null) {
+            return NO_SYMBOL;
+        }
+        Integer id = ids.get(symbol);
+        return id != null ? id : add(symbol);
+    }
+
+    /**
+     * Decodes an id into the canonical instance of its string.
+     *
+     * @param id the id
+     * @return the string, or null for {@link #NO_SYMBOL}
+     */
+    public String decode(int id) {
+        return id == NO_SYMBOL ? null : symbols[id];
+    }
+
+    /**
+     * Returns the number of strings in the dictionary.
+     *
+     * @return the number of strings
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Adds a string to the dictionary, unless another thread added it first. The string is stored
+     * before its id is published, so any thread that obtains the id can decode it.
+     *
+     * @param symbol the string
+     * @return the id of the string
+     */
+    private synchronized int add(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+        }
+        symbols[size] = symbol;
+        ids.put(symbol, size);
+        return size++;
+    }
+}
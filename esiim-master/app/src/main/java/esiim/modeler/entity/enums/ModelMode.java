@@ -0,0 +1,9 @@
+package esiim.modeler.entity.enums;
+
+/*
+ * Enum for the ways the records of a product can be modeled.
+ */
+public enum ModelMode {
+    SEQUENTIAL,
+    PARALLEL
+}
@@ -0,0 +1,12 @@
+package esiim.parser.boundary;
+
+import esiim.parser.entity.ParsedRecord;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Callback that receives the records of a streamed CSV file, one at a time.
+ */
+@FunctionalInterface
+public interface ParsedRecordHandler {
+    public void handle(ParsedRecord record) throws InvalidDataException;
+}
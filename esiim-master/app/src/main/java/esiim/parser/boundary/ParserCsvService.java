@@ -1,7 +1,15 @@
 package esiim.parser.boundary;
 
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+import esiim.parser.entity.CsvCursor;
 import esiim.parser.entity.ParsedData;
 import esiim.parser.entity.ParsedEmissionsData;
+import esiim.parser.entity.ParsedFileResult;
+import esiim.parser.entity.ParseSummary;
+import esiim.parser.entity.enums.ParseMode;
 import esiim.parser.exception.InvalidDataException;
 
 /**
@@ -10,4 +18,23 @@ import esiim.parser.exception.InvalidDataException;
 public interface ParserCsvService {
     public ParsedData parseCsv(String filePath) throws InvalidDataException;
     public ParsedEmissionsData parseEmissionsCsv(String filePath) throws InvalidDataException;
-}
\ No newline at end of file
+    public ParsedData parseCsv(InputStream in) throws InvalidDataException;
+    public ParsedEmissionsData parseEmissionsCsv(InputStream in) throws InvalidDataException;
+    public ParsedData parseCsv(ReadableByteChannel channel) throws InvalidDataException;
+    public ParsedEmissionsData parseEmissionsCsv(ReadableByteChannel channel) throws InvalidDataException;
+    public long streamCsv(String filePath, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamEmissionsCsv(String filePath, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamCsv(String filePath, ParseMode mode, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamEmissionsCsv(String filePath, ParseMode mode, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamCsv(InputStream in, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamEmissionsCsv(InputStream in, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamCsv(ReadableByteChannel channel, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamEmissionsCsv(ReadableByteChannel channel, ParsedRecordHandler handler) throws InvalidDataException;
+    public ParseSummary bulkCsv(String filePath, String quarantinePath, ParsedRecordHandler handler) throws InvalidDataException;
+    public ParseSummary bulkEmissionsCsv(String filePath, String quarantinePath, ParsedRecordHandler handler) throws InvalidDataException;
+    public List<ParsedFileResult> parseCsvBatch(List<String> filePaths) throws InvalidDataException;
+    public List<ParsedFileResult> parseCsvBatch(List<String> filePaths, int filesInFlight) throws InvalidDataException;
+    public List<ParsedFileResult> parseCsvDirectory(String directoryPath) throws InvalidDataException;
+    public CsvCursor followCsv(String filePath, CsvCursor cursor, ParsedRecordHandler handler) throws InvalidDataException;
+    public CsvCursor followCsv(String filePath, CsvCursor cursor, ParsedRecordHandler handler, RejectedRowHandler rejected) throws InvalidDataException;
+}
@@ -0,0 +1,19 @@
+package esiim.parser.boundary;
+
+import java.io.InputStream;
+
+import esiim.parser.entity.ParsedData;
+import esiim.parser.entity.ParsedEmissionsData;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Parser JSON Lines service interface.
+ */
+public interface ParserJsonlService {
+    public ParsedData parseJsonl(String filePath) throws InvalidDataException;
+    public ParsedEmissionsData parseEmissionsJsonl(String filePath) throws InvalidDataException;
+    public long streamJsonl(String filePath, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamEmissionsJsonl(String filePath, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamJsonl(InputStream in, ParsedRecordHandler handler) throws InvalidDataException;
+    public long streamEmissionsJsonl(InputStream in, ParsedRecordHandler handler) throws InvalidDataException;
+}
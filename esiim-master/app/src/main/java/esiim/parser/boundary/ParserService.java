@@ -3,6 +3,6 @@ package esiim.parser.boundary;
 /**
  * Parser service interface.
  */
-public interface ParserService extends ParserCsvService {
+public interface ParserService extends ParserCsvService, ParserJsonlService {
     
 }
\ No newline at end of file
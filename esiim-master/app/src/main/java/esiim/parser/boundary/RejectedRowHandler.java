@@ -0,0 +1,11 @@
+package esiim.parser.boundary;
+
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Callback that receives the rows of a CSV file rejected by a lenient parse, one at a time.
+ */
+@FunctionalInterface
+public interface RejectedRowHandler {
+    public void reject(long lineNumber, String reason, CharSequence line) throws InvalidDataException;
+}
@@ -0,0 +1,135 @@
+package esiim.parser.controller;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Scans ranges of bytes for the structural characters of a CSV file: line feeds between lines, and
+ * commas, {@code null} values and characters that need the full rules within a line.
+ * This implementation reads one byte at a time. When the {@code jdk.incubator.vector} module is
+ * enabled, {@link #get()} returns a {@link VectorByteScanner} instead, which compares a whole vector
+ * of bytes at a time; setting the {@code esiim.vector} system property to false turns it off.
+ */
+class ByteScanner {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_PROPERTY = "esiim.vector";
+    private static final ByteScanner INSTANCE = create();
+
+    /**
+     * Returns the fastest scanner the running platform supports.
+     * @return the scanner
+     */
+    static ByteScanner get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns whether the scanner compares several bytes at a time.
+     * @return true if the scanner is vectorized, false otherwise
+     */
+    boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * Returns the index of the next occurrence of a byte.
+     *
+     * @param buffer the buffer
+     * @param from the index to search from
+     * @param to the end of the range searched
+     * @param value the byte
+     * @return the index of the byte, or the end of the range if there is none
+     */
+    int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Counts the occurrences of a byte.
+     *
+     * @param buffer the buffer
+     * @param from the start of the range
+     * @param to the end of the range
+     * @param value the byte
+     * @return the number of occurrences
+     */
+    long count(ByteBuffer buffer, int from, int to, byte value) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Indexes a line whose characters only need the comma split and the null, blank and numeric
+     * checks. A line is plain when every byte is a letter, a digit, an underscore, a period, a
+     * hyphen, a comma or whitespace other than a line feed or carriage return, and no two spaces
+     * are adjacent; anything else, such as a quote, a semicolon or a non-ASCII byte, needs the full
+     * rules.
+     *
+     * @param buffer the buffer
+     * @param from the start of the line
+     * @param to the end of the line
+     * @param index the index that receives the commas and null values
+     * @return true if the line is plain, false otherwise
+     */
+    boolean indexPlainLine(ByteBuffer buffer, int from, int to, StructuralIndex index) {
+        index.clear();
+        return indexPlainRange(buffer, from, from, to, index);
+    }
+
+    /**
+     * Indexes part of a line, as {@link #indexPlainLine} does.
+     *
+     * @param buffer the buffer
+     * @param lineStart the start of the line, which positions are relative to
+     * @param from the start of the part
+     * @param to the end of the line
+     * @param index the index that receives the commas and null values
+     * @return true if the part is plain, false otherwise
+     */
+    boolean indexPlainRange(ByteBuffer buffer, int lineStart, int from, int to, StructuralIndex index) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < 0 || (RowValidator.CHAR_CLASSES[b] & RowValidator.ALLOWED) == 0 || b == '\n' || b == '\r') {
+                return false;
+            }
+            if (b == ' ' && i + 1 < to && buffer.get(i + 1) == ' ') {
+                return false;
+            }
+            if (b == ',') {
+                index.addComma(i - lineStart);
+            } else if (b == 'n' && i + 3 < to && buffer.get(i + 1) == 'u' && buffer.get(i + 2) == 'l'
+                    && buffer.get(i + 3) == 'l') {
+                index.addNull(i - lineStart);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the scanner, loading the vectorized one by name so this class never links against the
+     * vector module when it is not enabled.
+     *
+     * @return the scanner
+     */
+    private static ByteScanner create() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return new ByteScanner();
+        }
+        try {
+            return (ByteScanner) Class.forName(ByteScanner.class.getPackageName() + ".VectorByteScanner")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ByteScanner();
+        }
+    }
+}
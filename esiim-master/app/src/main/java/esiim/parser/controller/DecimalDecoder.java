@@ -0,0 +1,140 @@
+package esiim.parser.controller;
+
+/**
+ * Decodes decimal numbers straight from a range of characters, without creating a string.
+ * Numbers with at most 18 significant digits and a small decimal exponent are decoded exactly
+ * with a single multiplication or division by a power of ten, which both operands represent
+ * exactly. Any other number falls back to {@link Double#parseDouble(String)}, so the result is
+ * always the one {@code Double.parseDouble} would give.
+ */
+public final class DecimalDecoder {
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_EXACT_EXPONENT = 22;
+    private static final int MAX_DIGITS = 18;
+    private static final int MAX_EXPONENT_DIGITS = 100000;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_EXPONENT + 1];
+
+    static {
+        double power = 1;
+        for (int i = 0; i <= MAX_EXACT_EXPONENT; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    /**
+     * Constructor, not used: the class only has static methods.
+     */
+    private DecimalDecoder() {
+    }
+
+    /**
+     * Decodes a decimal number.
+     *
+     * @param text the characters
+     * @param start the index of the first character of the number
+     * @param end the index just past the last character of the number
+     * @return the value, or NaN if the characters are not a number
+     */
+    public static double parse(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa == 0 && c == '0') {
+                    if (point) {
+                        exponent--;
+                    }
+                    continue;
+                }
+                if (++significantDigits > MAX_DIGITS) {
+                    return fallback(text, start, end);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    exponent--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return fallback(text, start, end);
+        }
+
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int value = 0;
+            for (; i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                if (value < MAX_EXPONENT_DIGITS) {
+                    value = value * 10 + (text.charAt(i) - '0');
+                }
+            }
+            if (i == exponentStart) {
+                return fallback(text, start, end);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i < end && "fFdD".indexOf(text.charAt(i)) >= 0) {
+            i++;
+        }
+        if (i != end) {
+            return fallback(text, start, end);
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (mantissa > MAX_EXACT_MANTISSA || exponent < -MAX_EXACT_EXPONENT || exponent > MAX_EXACT_EXPONENT) {
+            return fallback(text, start, end);
+        } else if (exponent < 0) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decodes a number that the fast path does not cover.
+     *
+     * @param text the characters
+     * @param start the index of the first character of the number
+     * @param end the index just past the last character of the number
+     * @return the value, or NaN if the characters are not a number
+     */
+    private static double fallback(CharSequence text, int start, int end) {
+        try {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package esiim.parser.controller;
+
+import java.util.Arrays;
+
+import esiim.parser.entity.CsvColumn;
+import esiim.parser.entity.ParsedRecord;
+import esiim.parser.entity.enums.CsvSchema;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Validates JSON Lines records against a {@link CsvSchema}, with a hand-written tokenizer that
+ * walks each line once and records the bounds of each value, without building a tree.
+ * Every line holds one flat object whose keys are the headers of the CSV format: a key is matched
+ * to a column as a header is, ignoring case and surrounding whitespace, and a key that appears more
+ * than once in the schema is matched in order of occurrence. Keys that name no column are ignored,
+ * and a missing key leaves its column missing, as a short CSV row does.
+ * Values are strings, numbers, booleans or null, and the CSV formatting rules are enforced on their
+ * text, so a line is accepted or rejected exactly as the same row would be in a CSV file.
+ * A validator is reused from line to line and is not thread-safe.
+ */
+public class JsonlValidator {
+    private final CsvSchema schema;
+    private final int[] starts;
+    private final int[] ends;
+    private final boolean[] escaped;
+    private final int[] order;
+    private int matched;
+    private CharSequence text;
+    private boolean stringEscaped;
+
+    /**
+     * Constructor.
+     *
+     * @param schema the schema of the records being validated
+     */
+    public JsonlValidator(CsvSchema schema) {
+        this.schema = schema;
+        int columnCount = schema.getColumnCount();
+        this.starts = new int[columnCount];
+        this.ends = new int[columnCount];
+        this.escaped = new boolean[columnCount];
+        this.order = new int[columnCount];
+    }
+
+    /**
+     * Validates a line holding one record.
+     *
+     * @param line the line
+     * @param lineNumber the line number
+     * @return the number of columns the record has a value for
+     * @throws InvalidDataException if the line is not a flat JSON object or a value is invalid
+     */
+    public int validateRow(CharSequence line, long lineNumber) throws InvalidDataException {
+        Arrays.fill(starts, -1);
+        matched = 0;
+        text = line;
+        boolean anyEscaped = false;
+        int length = line.length();
+
+        int i = skipWhitespace(line, 0);
+        if (i == length || line.charAt(i) != '{') {
+            throw malformed(lineNumber);
+        }
+        i = skipWhitespace(line, i + 1);
+        if (i < length && line.charAt(i) == '}') {
+            i++;
+        } else {
+            while (true) {
+                if (i == length || line.charAt(i) != '"') {
+                    throw malformed(lineNumber);
+                }
+                int keyEnd = skipString(line, i + 1, lineNumber);
+                int column = matchColumn(line, i + 1, keyEnd, stringEscaped);
+                i = skipWhitespace(line, keyEnd + 1);
+                if (i == length || line.charAt(i) != ':') {
+                    throw malformed(lineNumber);
+                }
+                i = skipWhitespace(line, i + 1);
+                if (i == length) {
+                    throw malformed(lineNumber);
+                }
+
+                int valueStart;
+                int valueEnd;
+                boolean valueEscaped = false;
+                char c = line.charAt(i);
+                if (c == '"') {
+                    valueStart = i + 1;
+                    valueEnd = skipString(line, valueStart, lineNumber);
+                    valueEscaped = stringEscaped;
+                    i = valueEnd + 1;
+                } else if (c == '{' || c == '[') {
+                    throw new InvalidDataException("JSONL file contains nested values.", lineNumber);
+                } else {
+                    valueStart = i;
+                    valueEnd = skipLiteral(line, i, lineNumber);
+                    i = valueEnd;
+                }
+                if (column >= 0) {
+                    starts[column] = valueStart;
+                    ends[column] = valueEnd;
+                    escaped[column] = valueEscaped;
+                    order[matched++] = column;
+                    anyEscaped |= valueEscaped;
+                }
+
+                i = skipWhitespace(line, i);
+                if (i == length) {
+                    throw malformed(lineNumber);
+                }
+                c = line.charAt(i++);
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw malformed(lineNumber);
+                }
+                i = skipWhitespace(line, i);
+            }
+        }
+        if (skipWhitespace(line, i) != length) {
+            throw malformed(lineNumber);
+        }
+
+        if (anyEscaped) {
+            decodeEscapes(line);
+        }
+        String error = checkValues();
+        if (error != null) {
+            throw new InvalidDataException(error, lineNumber);
+        }
+        return matched;
+    }
+
+    /**
+     * Creates a record from the last validated line, indexed by schema column, decoding its numeric
+     * and enum columns. The record refers to the line itself, unless a value held escapes, in which
+     * case it refers to the decoded values.
+     *
+     * @param lineNumber the line number
+     * @return the record
+     */
+    public ParsedRecord toRecord(long lineNumber) {
+        int columnCount = schema.getColumnCount();
+        int[] bounds = new int[2 * columnCount];
+        double[] numbers = new double[columnCount];
+        int[] ordinals = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            numbers[i] = Double.NaN;
+            ordinals[i] = -1;
+            bounds[2 * i] = starts[i];
+            bounds[2 * i + 1] = starts[i] < 0 ? -1 : ends[i];
+            if (starts[i] < 0) {
+                continue;
+            }
+            CsvColumn column = schema.getColumn(i);
+            if (column.isNumeric()) {
+                numbers[i] = DecimalDecoder.parse(text, starts[i], ends[i]);
+            } else if (column.isEnum()) {
+                ordinals[i] = column.ordinalOf(text, starts[i], ends[i]);
+            }
+        }
+        return new ParsedRecord(lineNumber, text, bounds, numbers, ordinals);
+    }
+
+    /**
+     * Matches a key to the first column with that header that has no value yet.
+     *
+     * @param line the line
+     * @param start the index of the first character of the key
+     * @param end the index just past the last character of the key
+     * @param keyEscaped whether the key holds escapes
+     * @return the column index, or -1 if the key names no column
+     */
+    private int matchColumn(CharSequence line, int start, int end, boolean keyEscaped) {
+        CharSequence key = line;
+        if (keyEscaped) {
+            StringBuilder decoded = new StringBuilder(end - start);
+            unescape(line, start, end, decoded);
+            key = decoded;
+            start = 0;
+            end = decoded.length();
+        }
+        for (int column = 0; column < starts.length; column++) {
+            if (starts[column] < 0 && RowValidator.equalsIgnoreCase(key, start, end, schema.getHeader(column))) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks the text of each value in the order of the line, with the rules of the CSV format and
+     * in the same order of precedence. A quote can only come from an escape, so it is allowed, as an
+     * escaped quote is in a quoted CSV field.
+     *
+     * @return the message of the violation, or null if every value is valid
+     */
+    private String checkValues() {
+        boolean doubleSpace = false;
+        boolean semicolon = false;
+        boolean nullValue = false;
+        boolean emptyValue = false;
+        boolean invalidCharacter = false;
+        String numericError = null;
+
+        for (int k = 0; k < matched; k++) {
+            int column = order[k];
+            int start = starts[column];
+            int end = ends[column];
+            boolean blank = true;
+            boolean letter = false;
+            boolean lineTerminator = false;
+            boolean negative = false;
+            boolean nonZeroDigit = false;
+            int number = RowValidator.NUMBER_START;
+            char previous = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                int charClass = c == '"' ? RowValidator.ALLOWED : c < 128 ? RowValidator.CHAR_CLASSES[c] : 0;
+                doubleSpace |= c == ' ' && previous == ' ';
+                semicolon |= c == ';';
+                nullValue |= c == 'l' && i - start >= 3 && text.charAt(i - 1) == 'l' && text.charAt(i - 2) == 'u'
+                        && text.charAt(i - 3) == 'n';
+                invalidCharacter |= (charClass & RowValidator.ALLOWED) == 0;
+                previous = c;
+
+                blank &= c <= ' ';
+                letter |= (charClass & RowValidator.LETTER) != 0;
+                lineTerminator |= c == '\n' || c == '\r';
+                number = RowValidator.nextNumberState(number, c, charClass);
+                negative |= c == '-' && number == RowValidator.NUMBER_SIGN;
+                nonZeroDigit |= (charClass & RowValidator.DIGIT) != 0 && c != '0';
+            }
+            emptyValue |= blank;
+
+            if (numericError == null && schema.isNumeric(column)) {
+                if (letter && !lineTerminator) {
+                    numericError = "JSONL file contains letters in numeric fields.";
+                } else if ((number == RowValidator.NUMBER_INTEGER || number == RowValidator.NUMBER_FRACTION)
+                        && !RowValidator.isPositive(text, start, end, negative, nonZeroDigit)) {
+                    numericError = "JSONL file contains numeric fields with 0 or negative values.";
+                }
+            }
+        }
+
+        if (doubleSpace) {
+            return "JSONL file has inconsistent spacing.";
+        }
+        if (semicolon) {
+            return "JSONL file has inconsistent delimiters.";
+        }
+        if (nullValue) {
+            return "JSONL file contains null values.";
+        }
+        if (emptyValue) {
+            return "JSONL file contains empty fields.";
+        }
+        if (invalidCharacter) {
+            return "JSONL file contains invalid characters.";
+        }
+        return numericError;
+    }
+
+    /**
+     * Copies the values of the last validated line into a new text with their escapes decoded, and
+     * points the bounds of every value at it.
+     *
+     * @param line the line
+     */
+    private void decodeEscapes(CharSequence line) {
+        StringBuilder decoded = new StringBuilder(line.length());
+        for (int k = 0; k < matched; k++) {
+            int column = order[k];
+            int start = decoded.length();
+            if (escaped[column]) {
+                unescape(line, starts[column], ends[column], decoded);
+            } else {
+                decoded.append(line, starts[column], ends[column]);
+            }
+            starts[column] = start;
+            ends[column] = decoded.length();
+        }
+        text = decoded.toString();
+    }
+
+    /**
+     * Finds the closing quote of a string, checking its escapes. Whether the string held an escape
+     * is left in {@code stringEscaped}.
+     *
+     * @param line the line
+     * @param start the index just past the opening quote
+     * @param lineNumber the line number
+     * @return the index of the closing quote
+     * @throws InvalidDataException if the string is not terminated or holds an invalid escape
+     */
+    private int skipString(CharSequence line, int start, long lineNumber) throws InvalidDataException {
+        stringEscaped = false;
+        int length = line.length();
+        for (int i = start; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                return i;
+            }
+            if (c < ' ') {
+                throw malformed(lineNumber);
+            }
+            if (c == '\\') {
+                stringEscaped = true;
+                if (++i == length) {
+                    throw malformed(lineNumber);
+                }
+                c = line.charAt(i);
+                if (c == 'u') {
+                    if (i + 4 >= length) {
+                        throw malformed(lineNumber);
+                    }
+                    for (int j = i + 1; j <= i + 4; j++) {
+                        if (Character.digit(line.charAt(j), 16) < 0) {
+                            throw malformed(lineNumber);
+                        }
+                    }
+                    i += 4;
+                } else if ("\"\\/bfnrt".indexOf(c) < 0) {
+                    throw malformed(lineNumber);
+                }
+            }
+        }
+        throw malformed(lineNumber);
+    }
+
+    /**
+     * Finds the end of a literal: a number, true, false or null.
+     *
+     * @param line the line
+     * @param start the index of the first character of the literal
+     * @param lineNumber the line number
+     * @return the index just past the literal
+     * @throws InvalidDataException if the characters are not a literal
+     */
+    private static int skipLiteral(CharSequence line, int start, long lineNumber) throws InvalidDataException {
+        for (String word : new String[] { "true", "false", "null" }) {
+            if (regionEquals(line, start, word)) {
+                return start + word.length();
+            }
+        }
+
+        int length = line.length();
+        int i = start;
+        if (i < length && line.charAt(i) == '-') {
+            i++;
+        }
+        if (i < length && line.charAt(i) == '0') {
+            i++;
+        } else {
+            i = skipDigits(line, i, lineNumber);
+        }
+        if (i < length && line.charAt(i) == '.') {
+            i = skipDigits(line, i + 1, lineNumber);
+        }
+        if (i < length && (line.charAt(i) == 'e' || line.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+                i++;
+            }
+            i = skipDigits(line, i, lineNumber);
+        }
+        return i;
+    }
+
+    /**
+     * Skips one or more digits.
+     *
+     * @param line the line
+     * @param start the index of the first digit
+     * @param lineNumber the line number
+     * @return the index just past the last digit
+     * @throws InvalidDataException if there is no digit
+     */
+    private static int skipDigits(CharSequence line, int start, long lineNumber) throws InvalidDataException {
+        int i = start;
+        while (i < line.length() && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == start) {
+            throw malformed(lineNumber);
+        }
+        return i;
+    }
+
+    /**
+     * Skips JSON whitespace.
+     *
+     * @param line the line
+     * @param start the index to start from
+     * @return the index of the first character that is not whitespace
+     */
+    private static int skipWhitespace(CharSequence line, int start) {
+        int i = start;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Checks if the characters at an index spell a word.
+     *
+     * @param line the line
+     * @param start the index
+     * @param word the word
+     * @return true if they do, false otherwise
+     */
+    private static boolean regionEquals(CharSequence line, int start, String word) {
+        if (start + word.length() > line.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (line.charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the escapes of the contents of a string, which have already been checked.
+     *
+     * @param line the line
+     * @param start the index just past the opening quote
+     * @param end the index of the closing quote
+     * @param decoded the builder that receives the decoded characters
+     */
+    private static void unescape(CharSequence line, int start, int end, StringBuilder decoded) {
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c != '\\') {
+                decoded.append(c);
+                continue;
+            }
+            c = line.charAt(++i);
+            switch (c) {
+                case 'b':
+                    decoded.append('\b');
+                    break;
+                case 'f':
+                    decoded.append('\f');
+                    break;
+                case 'n':
+                    decoded.append('\n');
+                    break;
+                case 'r':
+                    decoded.append('\r');
+                    break;
+                case 't':
+                    decoded.append('\t');
+                    break;
+                case 'u':
+                    decoded.append((char) Integer.parseInt(line.subSequence(i + 1, i + 5).toString(), 16));
+                    i += 4;
+                    break;
+                default:
+                    decoded.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Creates the exception for a line that is not a flat JSON object.
+     *
+     * @param lineNumber the line number
+     * @return the exception
+     */
+    private static InvalidDataException malformed(long lineNumber) {
+        return new InvalidDataException("JSONL file has a malformed record.", lineNumber);
+    }
+}
@@ -0,0 +1,322 @@
+package esiim.parser.controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import esiim.parser.boundary.ParsedRecordHandler;
+import esiim.parser.entity.ByteSlice;
+import esiim.parser.entity.ParsedRecord;
+import esiim.parser.entity.enums.CsvSchema;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Reads a memory-mapped CSV file by splitting it into byte ranges that start and end on line
+ * boundaries and validating the ranges in parallel on the common {@link ForkJoinPool}.
+ * The records are handed over in file order, and errors carry their line number in the file.
+ */
+class ParallelCsvReader {
+    private static final int MAP_WINDOW_SIZE = 1 << 30;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final byte LINE_FEED = '\n';
+    private static final ByteScanner SCANNER = ByteScanner.get();
+
+    private final CsvSchema schema;
+    private final ParsedRecordHandler handler;
+    private final RecordAssembler head;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private CharSequence pendingLine;
+    private long pendingLineNumber;
+    private boolean pendingHasText;
+    private long lineNumber;
+    private long records;
+
+    /**
+     * Constructor.
+     *
+     * @param schema the schema of the file
+     * @param handler the handler that receives each record
+     */
+    ParallelCsvReader(CsvSchema schema, ParsedRecordHandler handler) {
+        this.schema = schema;
+        this.handler = handler;
+        this.head = new RecordAssembler(schema, handler);
+    }
+
+    /**
+     * Reads the whole file. The lines up to the header are read in order, and the rest of each
+     * mapped window is split into chunks that are validated in parallel.
+     *
+     * @param channel the channel of the file
+     * @return the number of records handed over
+     * @throws IOException if the file cannot be read
+     * @throws InvalidDataException if the data is invalid
+     */
+    long read(FileChannel channel) throws IOException, InvalidDataException {
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            int length = (int) Math.min(MAP_WINDOW_SIZE, size - position);
+            boolean lastWindow = position + length == size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            int end = lastWindow ? length : lastLineEnd(buffer, length);
+            if (end == 0) {
+                throw new InvalidDataException("CSV file has a line longer than " + MAP_WINDOW_SIZE + " bytes.");
+            }
+
+            int offset = 0;
+            while (!head.hasHeader() && offset < end) {
+                int lineEnd = indexOf(buffer, offset, end);
+                head.accept(line(buffer, offset, lineEnd));
+                offset = Math.min(lineEnd + 1, end);
+                lineNumber = head.getLineNumber();
+            }
+            if (head.hasHeader() && offset < end) {
+                readChunks(buffer, offset, end);
+            }
+            position += end;
+        }
+
+        if (!head.hasHeader()) {
+            return head.finish();
+        }
+        if (pendingLine != null && pendingHasText) {
+            new RowValidator(schema, head.getColumns()).validateRow(pendingLine, pendingLineNumber);
+        }
+        return records;
+    }
+
+    /**
+     * Validates a range of a mapped window in parallel chunks and merges the results in order.
+     *
+     * @param buffer the mapped window
+     * @param start the start of the range, at the start of a line
+     * @param end the end of the range, at the end of a line or of the file
+     * @throws InvalidDataException if the data is invalid
+     */
+    private void readChunks(ByteBuffer buffer, int start, int end) throws InvalidDataException {
+        int[] bounds = chunkBounds(buffer, start, end);
+        int chunks = bounds.length - 1;
+
+        List<Callable<Long>> counters = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            counters.add(() -> countLines(buffer, from, to));
+        }
+        List<Long> lineCounts = collect(pool.invokeAll(counters));
+
+        List<Callable<Chunk>> readers = new ArrayList<>(chunks);
+        long firstLine = lineNumber;
+        for (int i = 0; i < chunks; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            long before = firstLine;
+            readers.add(() -> readChunk(buffer, from, to, before));
+            firstLine += lineCounts.get(i);
+        }
+        lineNumber = firstLine;
+
+        for (Chunk chunk : collect(pool.invokeAll(readers))) {
+            merge(chunk);
+        }
+    }
+
+    /**
+     * Merges the result of a chunk, in file order, into what has been read so far.
+     *
+     * @param chunk the chunk
+     * @throws InvalidDataException if the data is invalid
+     */
+    private void merge(Chunk chunk) throws InvalidDataException {
+        RecordAssembler assembler = chunk.assembler;
+        if (pendingLine != null && (assembler.hasRecords() || chunk.error != null)) {
+            new RowValidator(schema, head.getColumns()).validateRow(pendingLine, pendingLineNumber);
+        }
+        for (ParsedRecord record : chunk.records) {
+            handler.handle(record);
+        }
+        records += chunk.records.size();
+        if (chunk.error != null) {
+            throw chunk.error;
+        }
+
+        if (assembler.getPendingLine() != null) {
+            if (pendingLine == null) {
+                pendingLine = assembler.getPendingLine();
+                pendingLineNumber = assembler.getPendingLineNumber();
+            }
+            pendingHasText |= assembler.pendingHasText();
+        }
+    }
+
+    /**
+     * Validates the lines of a chunk, collecting its records.
+     *
+     * @param buffer the mapped window
+     * @param start the start of the chunk
+     * @param end the end of the chunk
+     * @param lineNumber the number of lines in the file before the chunk
+     * @return the chunk
+     */
+    private Chunk readChunk(ByteBuffer buffer, int start, int end, long lineNumber) {
+        List<ParsedRecord> chunkRecords = new ArrayList<>();
+        RecordAssembler assembler = new RecordAssembler(schema, chunkRecords::add, lineNumber, head.getColumns());
+        InvalidDataException error = null;
+        try {
+            int offset = start;
+            while (offset < end) {
+                int lineEnd = indexOf(buffer, offset, end);
+                assembler.accept(line(buffer, offset, lineEnd));
+                offset = lineEnd + 1;
+            }
+        } catch (InvalidDataException e) {
+            error = e;
+        }
+        return new Chunk(assembler, chunkRecords, error);
+    }
+
+    /**
+     * Splits a range into chunks of about the same size, moving each split to the next line start.
+     *
+     * @param buffer the mapped window
+     * @param start the start of the range
+     * @param end the end of the range
+     * @return the bounds of the chunks, the first being the start and the last the end
+     */
+    private int[] chunkBounds(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        int chunks = (int) Math.max(1, Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD, length / MIN_CHUNK_SIZE));
+        int chunkSize = length / chunks;
+
+        int[] bounds = new int[chunks + 1];
+        int count = 0;
+        bounds[count++] = start;
+        for (int i = 1; i < chunks; i++) {
+            int split = Math.max(start + i * chunkSize, bounds[count - 1]);
+            int lineEnd = indexOf(buffer, split, end);
+            if (lineEnd + 1 >= end) {
+                break;
+            }
+            if (lineEnd + 1 > bounds[count - 1]) {
+                bounds[count++] = lineEnd + 1;
+            }
+        }
+        bounds[count++] = end;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Counts the lines of a chunk, including a last line without a line feed.
+     *
+     * @param buffer the mapped window
+     * @param start the start of the chunk
+     * @param end the end of the chunk
+     * @return the number of lines
+     */
+    private static long countLines(ByteBuffer buffer, int start, int end) {
+        long lines = SCANNER.count(buffer, start, end, LINE_FEED);
+        if (end > start && buffer.get(end - 1) != '\n') {
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the end of the last complete line of a window.
+     *
+     * @param buffer the mapped window
+     * @param length the length of the window
+     * @return the index just past the last line feed, or 0 if there is none
+     */
+    private static int lastLineEnd(ByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the index of the next line feed.
+     *
+     * @param buffer the mapped window
+     * @param from the index to search from
+     * @param end the end of the range searched
+     * @return the index of the line feed, or the end if there is none
+     */
+    private static int indexOf(ByteBuffer buffer, int from, int end) {
+        return SCANNER.indexOf(buffer, from, end, LINE_FEED);
+    }
+
+    /**
+     * Creates a slice over a line, leaving out a trailing carriage return.
+     *
+     * @param buffer the mapped window
+     * @param start the index of the first byte of the line
+     * @param end the index just past the last byte of the line
+     * @return the line
+     */
+    private static ByteSlice line(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        return new ByteSlice(buffer, start, end - start);
+    }
+
+    /**
+     * Waits for the results of parallel tasks.
+     *
+     * @param futures the futures of the tasks
+     * @return the results, in task order
+     * @throws InvalidDataException if a task failed
+     */
+    private static <T> List<T> collect(List<Future<T>> futures) throws InvalidDataException {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidDataException("Parsing of the CSV file was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new InvalidDataException("Error parsing the CSV file: " + e.getCause().getMessage(), e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Result of the validation of one chunk.
+     */
+    private static class Chunk {
+        private final RecordAssembler assembler;
+        private final List<ParsedRecord> records;
+        private final InvalidDataException error;
+
+        /**
+         * Constructor.
+         *
+         * @param assembler the assembler that validated the chunk
+         * @param records the records of the chunk
+         * @param error the first error of the chunk, or null if it is valid
+         */
+        Chunk(RecordAssembler assembler, List<ParsedRecord> records, InvalidDataException error) {
+            this.assembler = assembler;
+            this.records = records;
+            this.error = error;
+        }
+    }
+}
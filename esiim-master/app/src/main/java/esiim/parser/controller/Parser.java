@@ -1,19 +1,54 @@
 package esiim.parser.controller;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.regex.Pattern;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 
 import esiim.parser.entity.*;
+import esiim.parser.entity.enums.CsvSchema;
+import esiim.parser.entity.enums.ParseMode;
 import esiim.parser.exception.InvalidDataException;
+import esiim.parser.boundary.ParsedRecordHandler;
+import esiim.parser.boundary.RejectedRowHandler;
 import esiim.parser.boundary.ParserService;
 
 /**
- * Parser class to parse CSV files.
+ * Parser class to parse CSV and JSON Lines files.
  */
 public class Parser implements ParserService {
+    // One byte per character in every mode, as the memory-mapped and parallel modes read them
+    static final Charset CHARSET = StandardCharsets.ISO_8859_1;
+
     private static final int MAX_LINES = 50;
+    private static final int MAP_WINDOW_SIZE = 1 << 30;
+    private static final int DEFAULT_FILES_IN_FLIGHT = 64;
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+    private static final byte LINE_FEED = '\n';
+    private static final ByteScanner SCANNER = ByteScanner.get();
     private ParsedData parsedData;
     private ParsedEmissionsData parsedEmissionsData;
 
@@ -25,8 +60,83 @@ public class Parser implements ParserService {
      * @throws InvalidDataException if the data is invalid
      */
     public ParsedData parseCsv(String filePath) throws InvalidDataException {
-        if (!filePath.toLowerCase().endsWith(".csv")) {
-            throw new InvalidDataException("Invalid file type. Only .csv files are supported.");
+        parsedData = readCsv(filePath);
+        return parsedData;
+    }
+
+    /**
+     * Parses the CSV file without keeping the result, so several files can be parsed at once.
+     *
+     * @param filePath the file path
+     * @return the parsed data
+     * @throws InvalidDataException if the data is invalid
+     */
+    private ParsedData readCsv(String filePath) throws InvalidDataException {
+        if (!isCsvFile(filePath)) {
+            throw new InvalidDataException("Invalid file type. Only .csv and .csv.gz files are supported.");
+        }
+
+        String data;
+        try {
+            data = readFile(filePath);
+        } catch (Exception e) {
+            throw new InvalidDataException("Error reading the CSV file: " + e.getMessage(), e);
+        }
+        return decodeProductData(data);
+    }
+
+    /**
+     * Parses CSV data read from a stream, such as a pipe or the standard input, as
+     * {@link #parseCsv(String)} parses a file. Gzip-compressed data is recognised by its magic
+     * number and decompressed on the fly. The stream is read to its end but not closed.
+     *
+     * @param in the stream
+     * @return the parsed data
+     * @throws InvalidDataException if the stream cannot be read or the data is invalid
+     */
+    public ParsedData parseCsv(InputStream in) throws InvalidDataException {
+        parsedData = decodeProductData(readStream(in));
+        return parsedData;
+    }
+
+    /**
+     * Parses CSV data read from a channel, as {@link #parseCsv(InputStream)} does.
+     * The channel is read to its end but not closed.
+     *
+     * @param channel the channel
+     * @return the parsed data
+     * @throws InvalidDataException if the channel cannot be read or the data is invalid
+     */
+    public ParsedData parseCsv(ReadableByteChannel channel) throws InvalidDataException {
+        return parseCsv(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Decodes the data of a CSV file.
+     *
+     * @param data the file data
+     * @return the parsed data
+     * @throws InvalidDataException if the data is invalid
+     */
+    private ParsedData decodeProductData(String data) throws InvalidDataException {
+        List<ParsedRecord> records = new RecordDecoder(CsvSchema.PRODUCT).decode(checkLines(data));
+
+        ParsedData parsed = new ParsedData();
+        parsed.setProductString(data);
+        parsed.setRecords(records);
+        return parsed;
+    }
+
+    /**
+     * Parses the CSV emissions file.
+     *
+     * @param filePath the file path
+     * @return the parsed emissions data
+     * @throws InvalidDataException if the data is invalid
+     */
+    public ParsedEmissionsData parseEmissionsCsv(String filePath) throws InvalidDataException {
+        if (!isCsvFile(filePath)) {
+            throw new InvalidDataException("Invalid file type. Only .csv and .csv.gz files are supported.");
         }
 
         String data;
@@ -35,7 +145,57 @@ public class Parser implements ParserService {
         } catch (Exception e) {
             throw new InvalidDataException("Error reading the CSV file: " + e.getMessage(), e);
         }
+        return decodeEmissionsData(data);
+    }
+
+    /**
+     * Parses CSV emissions data read from a stream, as {@link #parseCsv(InputStream)} does.
+     * The stream is read to its end but not closed.
+     *
+     * @param in the stream
+     * @return the parsed emissions data
+     * @throws InvalidDataException if the stream cannot be read or the data is invalid
+     */
+    public ParsedEmissionsData parseEmissionsCsv(InputStream in) throws InvalidDataException {
+        return decodeEmissionsData(readStream(in));
+    }
+
+    /**
+     * Parses CSV emissions data read from a channel, as {@link #parseCsv(InputStream)} does.
+     * The channel is read to its end but not closed.
+     *
+     * @param channel the channel
+     * @return the parsed emissions data
+     * @throws InvalidDataException if the channel cannot be read or the data is invalid
+     */
+    public ParsedEmissionsData parseEmissionsCsv(ReadableByteChannel channel) throws InvalidDataException {
+        return parseEmissionsCsv(Channels.newInputStream(channel));
+    }
 
+    /**
+     * Decodes the data of a CSV emissions file.
+     *
+     * @param data the file data
+     * @return the parsed emissions data
+     * @throws InvalidDataException if the data is invalid
+     */
+    private ParsedEmissionsData decodeEmissionsData(String data) throws InvalidDataException {
+        List<ParsedRecord> records = new RecordDecoder(CsvSchema.EMISSIONS).decode(checkLines(data));
+
+        parsedEmissionsData = new ParsedEmissionsData();
+        parsedEmissionsData.setEmissionsString(data);
+        parsedEmissionsData.setRecords(records);
+        return parsedEmissionsData;
+    }
+
+    /**
+     * Splits the data of a CSV file into lines, checking that it is neither empty nor too large.
+     *
+     * @param data the file data
+     * @return the lines
+     * @throws InvalidDataException if the data is empty or too large
+     */
+    private static String[] checkLines(String data) throws InvalidDataException {
         if (data.trim().isEmpty()) {
             throw new InvalidDataException("CSV file is empty.");
         }
@@ -44,212 +204,802 @@ public class Parser implements ParserService {
         if (lines.length > MAX_LINES) {
             throw new InvalidDataException("CSV file is too large.");
         }
+        return lines;
+    }
 
-        boolean isFirstLine = true;
-        int weightIndex = -1;
-        int quantityIndex = -1;
-        for (String line : lines) {
-            if (line.contains("  ")) {
-                throw new InvalidDataException("CSV file has inconsistent spacing.");
-            }
+    /**
+     * Streams the CSV file leniently: invalid rows are written to a quarantine file with their line
+     * number and the reason they were rejected, and every valid row is still handed over.
+     * Blank lines carry no row and are skipped. An invalid header still stops the parse.
+     *
+     * @param filePath the file path
+     * @param quarantinePath the path of the quarantine file, which is created or replaced
+     * @param handler the handler that receives each valid record
+     * @return the number of valid and rejected rows
+     * @throws InvalidDataException if the file cannot be read, its header is invalid or the quarantine file cannot be written
+     */
+    public ParseSummary bulkCsv(String filePath, String quarantinePath, ParsedRecordHandler handler)
+            throws InvalidDataException {
+        return bulkFile(filePath, quarantinePath, CsvSchema.PRODUCT, handler);
+    }
 
-            if (line.contains(";")) {
-                throw new InvalidDataException("CSV file has inconsistent delimiters.");
+    /**
+     * Streams the CSV emissions file leniently, as {@link #bulkCsv(String, String, ParsedRecordHandler)} does.
+     *
+     * @param filePath the file path
+     * @param quarantinePath the path of the quarantine file, which is created or replaced
+     * @param handler the handler that receives each valid record
+     * @return the number of valid and rejected rows
+     * @throws InvalidDataException if the file cannot be read, its header is invalid or the quarantine file cannot be written
+     */
+    public ParseSummary bulkEmissionsCsv(String filePath, String quarantinePath, ParsedRecordHandler handler)
+            throws InvalidDataException {
+        return bulkFile(filePath, quarantinePath, CsvSchema.EMISSIONS, handler);
+    }
+
+    /**
+     * Streams a CSV file leniently through a memory mapping.
+     *
+     * @param filePath the file path
+     * @param quarantinePath the path of the quarantine file
+     * @param schema the schema of the file
+     * @param handler the handler that receives each valid record
+     * @return the number of valid and rejected rows
+     * @throws InvalidDataException if the file cannot be read, its header is invalid or the quarantine file cannot be written
+     */
+    private ParseSummary bulkFile(String filePath, String quarantinePath, CsvSchema schema, ParsedRecordHandler handler)
+            throws InvalidDataException {
+        if (!isCsvFile(filePath)) {
+            throw new InvalidDataException("Invalid file type. Only .csv and .csv.gz files are supported.");
+        }
+
+        try (QuarantineWriter quarantine = new QuarantineWriter(quarantinePath)) {
+            RecordAssembler assembler = new RecordAssembler(schema, handler, quarantine);
+            if (isGzipFile(filePath)) {
+                readBufferedFile(filePath, assembler);
+            } else {
+                readMappedFile(filePath, assembler);
             }
+            long valid = assembler.finish();
+            return new ParseSummary(valid, quarantine.getRejected(), quarantinePath);
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the CSV file: " + e.getMessage(), e);
+        }
+    }
 
-            if (line.contains("null")) {
-                throw new InvalidDataException("CSV file contains null values.");
+    /**
+     * Parses several CSV files concurrently, with at most 64 files in flight.
+     *
+     * @param filePaths the file paths
+     * @return the result of each file, in the order of the paths
+     * @throws InvalidDataException if the batch is interrupted
+     */
+    public List<ParsedFileResult> parseCsvBatch(List<String> filePaths) throws InvalidDataException {
+        return parseCsvBatch(filePaths, DEFAULT_FILES_IN_FLIGHT);
+    }
+
+    /**
+     * Parses several CSV files concurrently, each as {@link #streamCsv(String, ParsedRecordHandler)}
+     * would, so unlike {@link #parseCsv(String)} there is no limit on the length of a file. The
+     * parsed data of each file holds its records, but not the text of the file.
+     * Every file is parsed on a thread of a pool as large as the number of files in flight, so a
+     * file waiting on I/O never holds back the others. A file that fails to parse does not stop
+     * the batch: its error is returned in its result instead.
+     *
+     * @param filePaths the file paths
+     * @param filesInFlight the maximum number of files parsed at the same time
+     * @return the result of each file, in the order of the paths
+     * @throws InvalidDataException if the number of files in flight is not positive or the batch is interrupted
+     */
+    public List<ParsedFileResult> parseCsvBatch(List<String> filePaths, int filesInFlight) throws InvalidDataException {
+        if (filesInFlight < 1) {
+            throw new InvalidDataException("The number of files in flight must be positive.");
+        }
+        List<ParsedFileResult> results = new ArrayList<>(filePaths.size());
+        if (filePaths.isEmpty()) {
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(filesInFlight, filePaths.size()), runnable -> {
+            Thread thread = new Thread(runnable, "csv-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<ParsedFileResult>> futures = new ArrayList<>(filePaths.size());
+            for (String filePath : filePaths) {
+                futures.add(executor.submit(() -> parseFile(filePath)));
+            }
+            for (Future<ParsedFileResult> future : futures) {
+                results.add(future.get());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidDataException("Parsing of the CSV files was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new InvalidDataException("Error parsing the CSV files: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
 
-            String[] fields = line.split(",");
-            for (String field : fields) {
-                if (field.trim().isEmpty()) {
-                    throw new InvalidDataException("CSV file contains empty fields.");
+    /**
+     * Parses every CSV file of a directory, compressed or not, concurrently, in the order of their names.
+     * Subdirectories are not searched.
+     *
+     * @param directoryPath the directory path
+     * @return the result of each file, in the order of their names
+     * @throws InvalidDataException if the directory cannot be listed or the batch is interrupted
+     */
+    public List<ParsedFileResult> parseCsvDirectory(String directoryPath) throws InvalidDataException {
+        List<String> filePaths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directoryPath), "*.{csv,CSV,csv.gz,CSV.GZ}")) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    filePaths.add(file.toString());
                 }
             }
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the CSV directory: " + e.getMessage(), e);
+        }
+        Collections.sort(filePaths);
+        return parseCsvBatch(filePaths);
+    }
 
-            if (!Pattern.matches("[\\w\\s,.-]+", line)) {
-                throw new InvalidDataException("CSV file contains invalid characters.");
-            }
+    /**
+     * Parses one file of a batch, turning its error into its result.
+     *
+     * @param filePath the file path
+     * @return the result of the file
+     */
+    private ParsedFileResult parseFile(String filePath) {
+        try {
+            List<ParsedRecord> records = new ArrayList<>();
+            streamFile(filePath, ParseMode.BUFFERED, CsvSchema.PRODUCT, records::add);
+            ParsedData parsed = new ParsedData();
+            parsed.setRecords(records);
+            return new ParsedFileResult(filePath, parsed, null);
+        } catch (InvalidDataException e) {
+            return new ParsedFileResult(filePath, null, e);
+        }
+    }
 
-            if (isFirstLine) {
-                for (int i = 0; i < fields.length; i++) {
-                    if (fields[i].trim().equalsIgnoreCase("Weight")) {
-                        weightIndex = i;
-                    } else if (fields[i].trim().equalsIgnoreCase("Quantity")) {
-                        quantityIndex = i;
-                    }
-                }
-                if (!isValidProductHeaders(fields)) {
-                    throw new InvalidDataException("CSV file has invalid headers.");
-                }
+    /**
+     * Opens a buffered reader over a file, decompressing it on the fly if it is gzip-compressed.
+     *
+     * @param filePath the file path
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    private BufferedReader openReader(String filePath) throws IOException {
+        if (!isGzipFile(filePath)) {
+            return new BufferedReader(new InputStreamReader(new FileInputStream(filePath), CHARSET));
+        }
+        InputStream in = new FileInputStream(filePath);
+        try {
+            return new BufferedReader(new InputStreamReader(new GZIPInputStream(in, GZIP_BUFFER_SIZE), CHARSET));
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
 
-                isFirstLine = false;
-                continue;
+    /**
+     * Checks if a file has a CSV extension, optionally followed by a gzip extension.
+     *
+     * @param filePath the file path
+     * @return true if the file is a CSV file, false otherwise
+     */
+    private static boolean isCsvFile(String filePath) {
+        String path = filePath.toLowerCase();
+        return path.endsWith(".csv") || path.endsWith(".csv.gz");
+    }
+
+    /**
+     * Checks if a file has a JSON Lines extension, optionally followed by a gzip extension.
+     *
+     * @param filePath the file path
+     * @return true if the file is a JSON Lines file, false otherwise
+     */
+    private static boolean isJsonlFile(String filePath) {
+        String path = filePath.toLowerCase();
+        return path.endsWith(".jsonl") || path.endsWith(".jsonl.gz");
+    }
+
+    /**
+     * Checks if a file has a gzip extension.
+     *
+     * @param filePath the file path
+     * @return true if the file is gzip-compressed, false otherwise
+     */
+    private static boolean isGzipFile(String filePath) {
+        return filePath.toLowerCase().endsWith(".gz");
+    }
+
+    /**
+     * Reads the file.
+     *
+     * @param filePath the file path
+     * @return the file data
+     * @throws IOException if the file cannot be read, or a compressed file is truncated or corrupt
+     */
+    private String readFile(String filePath) throws IOException {
+        StringBuilder data = new StringBuilder();
+        try (BufferedReader br = openReader(filePath)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                data.append(line).append("\n");
             }
+        }
+        return data.toString();
+    }
 
-            for (int i = 0; i < fields.length; i++) {
-                String field = fields[i];
-                if (i == weightIndex || i == quantityIndex) {
-                    if (field.matches(".*[a-zA-Z].*")) {
-                        throw new InvalidDataException("CSV file contains letters in numeric fields.");
-                    }
-                    if (field.matches("-?\\d*\\.?\\d+") && Double.parseDouble(field) <= 0) {
-                        throw new InvalidDataException("CSV file contains numeric fields with 0 or negative values.");
-                    }
-                }
+    /**
+     * Reads a stream to its end, without closing it.
+     *
+     * @param in the stream
+     * @return the stream data
+     * @throws InvalidDataException if the stream cannot be read
+     */
+    private String readStream(InputStream in) throws InvalidDataException {
+        StringBuilder data = new StringBuilder();
+        try {
+            BufferedReader br = openReader(in);
+            String line;
+            while ((line = br.readLine()) != null) {
+                data.append(line).append("\n");
             }
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the CSV stream: " + e.getMessage(), e);
         }
+        return data.toString();
+    }
+
+    /**
+     * Opens a buffered reader over a stream, decompressing it on the fly if it starts with the gzip magic number.
+     * Closing the reader closes the stream.
+     *
+     * @param in the stream
+     * @return the reader
+     * @throws IOException if the stream cannot be read
+     */
+    private BufferedReader openReader(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, GZIP_BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        InputStream data = buffered;
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            data = new GZIPInputStream(buffered, GZIP_BUFFER_SIZE);
+        }
+        return new BufferedReader(new InputStreamReader(data, CHARSET));
+    }
+
+    /**
+     * Streams the CSV file, validating and handing over one record at a time.
+     * Unlike {@link #parseCsv(String)}, the file is never held in memory and there is no limit on its length.
+     *
+     * @param filePath the file path
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    public long streamCsv(String filePath, ParsedRecordHandler handler) throws InvalidDataException {
+        return streamCsv(filePath, ParseMode.BUFFERED, handler);
+    }
+
+    /**
+     * Streams the CSV file in the given mode, validating and handing over one record at a time.
+     *
+     * @param filePath the file path
+     * @param mode the way the file is read
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    public long streamCsv(String filePath, ParseMode mode, ParsedRecordHandler handler) throws InvalidDataException {
+        return streamFile(filePath, mode, CsvSchema.PRODUCT, handler);
+    }
+
+    /**
+     * Streams the CSV emissions file, validating and handing over one record at a time.
+     * Unlike {@link #parseEmissionsCsv(String)}, the file is never held in memory and there is no limit on its length.
+     *
+     * @param filePath the file path
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    public long streamEmissionsCsv(String filePath, ParsedRecordHandler handler) throws InvalidDataException {
+        return streamEmissionsCsv(filePath, ParseMode.BUFFERED, handler);
+    }
+
+    /**
+     * Streams the CSV emissions file in the given mode, validating and handing over one record at a time.
+     *
+     * @param filePath the file path
+     * @param mode the way the file is read
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    public long streamEmissionsCsv(String filePath, ParseMode mode, ParsedRecordHandler handler)
+            throws InvalidDataException {
+        return streamFile(filePath, mode, CsvSchema.EMISSIONS, handler);
+    }
+
+    /**
+     * Streams CSV data from a stream, such as a pipe or the standard input, validating and handing
+     * over one record at a time as it arrives. Nothing is written to disk and there is no limit on
+     * the length of the data. Gzip-compressed data is recognised by its magic number and
+     * decompressed on the fly. The stream is read to its end but not closed.
+     *
+     * @param in the stream
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the stream cannot be read or the data is invalid
+     */
+    public long streamCsv(InputStream in, ParsedRecordHandler handler) throws InvalidDataException {
+        return streamInput(in, CsvSchema.PRODUCT, handler);
+    }
+
+    /**
+     * Streams CSV data from a channel, as {@link #streamCsv(InputStream, ParsedRecordHandler)} does.
+     * The channel is read to its end but not closed.
+     *
+     * @param channel the channel
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the channel cannot be read or the data is invalid
+     */
+    public long streamCsv(ReadableByteChannel channel, ParsedRecordHandler handler) throws InvalidDataException {
+        return streamInput(Channels.newInputStream(channel), CsvSchema.PRODUCT, handler);
+    }
+
+    /**
+     * Streams CSV emissions data from a stream, as {@link #streamCsv(InputStream, ParsedRecordHandler)} does.
+     * The stream is read to its end but not closed.
+     *
+     * @param in the stream
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the stream cannot be read or the data is invalid
+     */
+    public long streamEmissionsCsv(InputStream in, ParsedRecordHandler handler) throws InvalidDataException {
+        return streamInput(in, CsvSchema.EMISSIONS, handler);
+    }
+
+    /**
+     * Streams CSV emissions data from a channel, as {@link #streamCsv(InputStream, ParsedRecordHandler)} does.
+     * The channel is read to its end but not closed.
+     *
+     * @param channel the channel
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the channel cannot be read or the data is invalid
+     */
+    public long streamEmissionsCsv(ReadableByteChannel channel, ParsedRecordHandler handler)
+            throws InvalidDataException {
+        return streamInput(Channels.newInputStream(channel), CsvSchema.EMISSIONS, handler);
+    }
+
+    /**
+     * Streams CSV data from a stream through a buffered reader.
+     *
+     * @param in the stream
+     * @param schema the schema of the data
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the stream cannot be read or the data is invalid
+     */
+    private long streamInput(InputStream in, CsvSchema schema, ParsedRecordHandler handler) throws InvalidDataException {
+        RecordAssembler assembler = new RecordAssembler(schema, handler);
+        try {
+            BufferedReader br = openReader(in);
+            String line;
+            while ((line = br.readLine()) != null) {
+                assembler.accept(line);
+            }
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the CSV stream: " + e.getMessage(), e);
+        }
+        return assembler.finish();
+    }
+
+    /**
+     * Parses the JSON Lines file, with one flat object per line keyed by the CSV headers, into the
+     * same records as {@link #parseCsv(String)} would give for the CSV file. Blank lines are skipped.
+     *
+     * @param filePath the file path
+     * @return the parsed data
+     * @throws InvalidDataException if the data is invalid
+     */
+    public ParsedData parseJsonl(String filePath) throws InvalidDataException {
+        String data = readJsonlFile(filePath);
+        List<ParsedRecord> records = decodeJsonl(data, CsvSchema.PRODUCT);
 
         parsedData = new ParsedData();
         parsedData.setProductString(data);
+        parsedData.setRecords(records);
         return parsedData;
     }
 
     /**
-     * Parses the CSV emissions file.
+     * Parses the JSON Lines emissions file, as {@link #parseJsonl(String)} does.
      *
      * @param filePath the file path
      * @return the parsed emissions data
      * @throws InvalidDataException if the data is invalid
      */
-    public ParsedEmissionsData parseEmissionsCsv(String filePath) throws InvalidDataException {
-        if (!filePath.toLowerCase().endsWith(".csv")) {
-            throw new InvalidDataException("Invalid file type. Only .csv files are supported.");
+    public ParsedEmissionsData parseEmissionsJsonl(String filePath) throws InvalidDataException {
+        String data = readJsonlFile(filePath);
+        List<ParsedRecord> records = decodeJsonl(data, CsvSchema.EMISSIONS);
+
+        parsedEmissionsData = new ParsedEmissionsData();
+        parsedEmissionsData.setEmissionsString(data);
+        parsedEmissionsData.setRecords(records);
+        return parsedEmissionsData;
+    }
+
+    /**
+     * Streams the JSON Lines file, validating and handing over one record at a time.
+     * Unlike {@link #parseJsonl(String)}, the file is never held in memory and there is no limit on its length.
+     *
+     * @param filePath the file path
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    public long streamJsonl(String filePath, ParsedRecordHandler handler) throws InvalidDataException {
+        return streamJsonlFile(filePath, CsvSchema.PRODUCT, handler);
+    }
+
+    /**
+     * Streams the JSON Lines emissions file, validating and handing over one record at a time.
+     *
+     * @param filePath the file path
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    public long streamEmissionsJsonl(String filePath, ParsedRecordHandler handler) throws InvalidDataException {
+        return streamJsonlFile(filePath, CsvSchema.EMISSIONS, handler);
+    }
+
+    /**
+     * Streams JSON Lines data from a stream, such as a pipe or the standard input, validating and
+     * handing over one record at a time as it arrives. Gzip-compressed data is recognised by its
+     * magic number. The stream is read to its end but not closed.
+     *
+     * @param in the stream
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the stream cannot be read or the data is invalid
+     */
+    public long streamJsonl(InputStream in, ParsedRecordHandler handler) throws InvalidDataException {
+        try {
+            return readJsonl(openReader(in), CsvSchema.PRODUCT, handler);
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the JSONL stream: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Streams JSON Lines emissions data from a stream, as {@link #streamJsonl(InputStream, ParsedRecordHandler)} does.
+     *
+     * @param in the stream
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the stream cannot be read or the data is invalid
+     */
+    public long streamEmissionsJsonl(InputStream in, ParsedRecordHandler handler) throws InvalidDataException {
+        try {
+            return readJsonl(openReader(in), CsvSchema.EMISSIONS, handler);
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the JSONL stream: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a JSON Lines file into memory, checking that it is neither empty nor too large.
+     *
+     * @param filePath the file path
+     * @return the file data
+     * @throws InvalidDataException if the file cannot be read, is empty or is too large
+     */
+    private String readJsonlFile(String filePath) throws InvalidDataException {
+        if (!isJsonlFile(filePath)) {
+            throw new InvalidDataException("Invalid file type. Only .jsonl and .jsonl.gz files are supported.");
         }
 
         String data;
         try {
             data = readFile(filePath);
         } catch (Exception e) {
-            throw new InvalidDataException("Error reading the CSV file: " + e.getMessage(), e);
+            throw new InvalidDataException("Error reading the JSONL file: " + e.getMessage(), e);
         }
 
         if (data.trim().isEmpty()) {
-            throw new InvalidDataException("CSV file is empty.");
+            throw new InvalidDataException("JSONL file is empty.");
+        }
+        if (data.split("\n").length > MAX_LINES) {
+            throw new InvalidDataException("JSONL file is too large.");
         }
+        return data;
+    }
 
-        String[] lines = data.split("\n");
-        if (lines.length > MAX_LINES) {
-            throw new InvalidDataException("CSV file is too large.");
+    /**
+     * Validates and decodes JSON Lines data held in memory.
+     *
+     * @param data the data
+     * @param schema the schema of the data
+     * @return the records, in line order
+     * @throws InvalidDataException if the data is invalid
+     */
+    private static List<ParsedRecord> decodeJsonl(String data, CsvSchema schema) throws InvalidDataException {
+        List<ParsedRecord> records = new ArrayList<>();
+        try {
+            readJsonl(new BufferedReader(new StringReader(data)), schema, records::add);
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the JSONL file: " + e.getMessage(), e);
         }
+        return records;
+    }
 
-        boolean isFirstLine = true;
-        int quantityIndex = -1;
-        int emissionFactorIndex = -1;
-        for (String line : lines) {
-            if (line.contains("  ")) {
-                throw new InvalidDataException("CSV file has inconsistent spacing.");
-            }
+    /**
+     * Streams a JSON Lines file through a buffered reader.
+     *
+     * @param filePath the file path
+     * @param schema the schema of the file
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    private long streamJsonlFile(String filePath, CsvSchema schema, ParsedRecordHandler handler)
+            throws InvalidDataException {
+        if (!isJsonlFile(filePath)) {
+            throw new InvalidDataException("Invalid file type. Only .jsonl and .jsonl.gz files are supported.");
+        }
 
-            if (line.contains(";")) {
-                throw new InvalidDataException("CSV file has inconsistent delimiters.");
-            }
+        try (BufferedReader br = openReader(filePath)) {
+            return readJsonl(br, schema, handler);
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the JSONL file: " + e.getMessage(), e);
+        }
+    }
 
-            if (line.contains("null")) {
-                throw new InvalidDataException("CSV file contains null values.");
+    /**
+     * Reads JSON Lines data line by line, skipping blank lines.
+     *
+     * @param br the reader
+     * @param schema the schema of the data
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws IOException if the data cannot be read
+     * @throws InvalidDataException if the data is empty or invalid
+     */
+    private static long readJsonl(BufferedReader br, CsvSchema schema, ParsedRecordHandler handler)
+            throws IOException, InvalidDataException {
+        JsonlValidator validator = new JsonlValidator(schema);
+        long lineNumber = 0;
+        long records = 0;
+        String line;
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
             }
+            validator.validateRow(line, lineNumber);
+            handler.handle(validator.toRecord(lineNumber));
+            records++;
+        }
+        if (records == 0) {
+            throw new InvalidDataException("JSONL file is empty.");
+        }
+        return records;
+    }
+
+    /**
+     * Reads the lines appended to a CSV file since the cursor, validating and handing over one record at a time.
+     * Only complete lines are read: a last line without a line feed is left for a later call, as are
+     * trailing blank lines, so rows can be read while the file is still being written.
+     *
+     * @param filePath the file path
+     * @param cursor the position reached by the previous call, or null to start at the beginning of the file
+     * @param handler the handler that receives each record
+     * @return the position reached, to pass to the next call
+     * @throws InvalidDataException if the data is invalid or the file was truncated
+     */
+    public CsvCursor followCsv(String filePath, CsvCursor cursor, ParsedRecordHandler handler) throws InvalidDataException {
+        return followCsv(filePath, cursor, handler, null);
+    }
 
-            String[] fields = line.split(",");
-            for (String field : fields) {
-                if (field.trim().isEmpty()) {
-                    throw new InvalidDataException("CSV file contains empty fields.");
+    /**
+     * Reads the lines appended to a CSV file since the cursor leniently, as
+     * {@link #followCsv(String, CsvCursor, ParsedRecordHandler)} does, except that each invalid row
+     * is handed to the handler of rejected rows and the cursor moves past it, so a bad row is read
+     * only once. Blank lines carry no row and are skipped. An invalid header still stops the read.
+     *
+     * @param filePath the file path
+     * @param cursor the position reached by the previous call, or null to start at the beginning of the file
+     * @param handler the handler that receives each valid record
+     * @param rejected the handler that receives each invalid row, or null to fail on the first one
+     * @return the position reached, to pass to the next call
+     * @throws InvalidDataException if the file cannot be read, its header is invalid or it was truncated
+     */
+    public CsvCursor followCsv(String filePath, CsvCursor cursor, ParsedRecordHandler handler, RejectedRowHandler rejected)
+            throws InvalidDataException {
+        if (!filePath.toLowerCase().endsWith(".csv")) {
+            throw new InvalidDataException("Invalid file type. Only .csv files are supported.");
+        }
+        if (cursor == null) {
+            cursor = new CsvCursor();
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return followFile(channel, CsvSchema.PRODUCT, cursor, handler, rejected);
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the CSV file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the complete lines of a file past a cursor, window by window.
+     *
+     * @param channel the channel of the file
+     * @param schema the schema of the file
+     * @param cursor the position to start from
+     * @param handler the handler that receives each record
+     * @param rejected the handler that receives each invalid row, or null to fail on the first one
+     * @return the position just past the last line that is neither incomplete nor a trailing blank line
+     * @throws IOException if the file cannot be read
+     * @throws InvalidDataException if the data is invalid or the file was truncated
+     */
+    private CsvCursor followFile(FileChannel channel, CsvSchema schema, CsvCursor cursor, ParsedRecordHandler handler,
+            RejectedRowHandler rejected) throws IOException, InvalidDataException {
+        long size = channel.size();
+        if (size < cursor.getOffset()) {
+            throw new InvalidDataException("CSV file was truncated.", cursor.getLineNumber());
+        }
+
+        RecordAssembler assembler = new RecordAssembler(schema, handler, cursor.getLineNumber(), cursor.getColumns(), rejected);
+        CsvCursor reached = cursor;
+
+        long position = cursor.getOffset();
+        while (position < size) {
+            int length = (int) Math.min(MAP_WINDOW_SIZE, size - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            int lineStart = 0;
+            int lineEnd;
+            while ((lineEnd = SCANNER.indexOf(buffer, lineStart, length, LINE_FEED)) < length) {
+                assembler.accept(mappedLine(buffer, lineStart, lineEnd));
+                lineStart = lineEnd + 1;
+                if (assembler.getPendingLine() == null) {
+                    reached = new CsvCursor(position + lineStart, assembler.getLineNumber(), assembler.getColumns(),
+                            cursor.getRecords() + assembler.getRecords());
                 }
             }
-
-            if (!Pattern.matches("[\\w\\s,.-]+", line)) {
-                throw new InvalidDataException("CSV file contains invalid characters.");
+            if (position + length == size) {
+                break;
+            }
+            if (lineStart == 0) {
+                throw new InvalidDataException("CSV file has a line longer than " + MAP_WINDOW_SIZE + " bytes.");
             }
+            position += lineStart;
+        }
+        return reached;
+    }
 
-            if (isFirstLine) {
-                for (int i = 0; i < fields.length; i++) {
-                    if (fields[i].trim().equalsIgnoreCase("EmissionFactor")) {
-                        emissionFactorIndex = i;
-                    } else if (fields[i].trim().equalsIgnoreCase("Quantity")) {
-                        quantityIndex = i;
-                    }
-                }
-                if (!isValidEmissionsHeaders(fields)) {
-                    throw new InvalidDataException("CSV file has invalid headers.");
-                }
+    /**
+     * Streams a CSV file in the given mode.
+     *
+     * @param filePath the file path
+     * @param mode the way the file is read
+     * @param schema the schema of the file
+     * @param handler the handler that receives each record
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    private long streamFile(String filePath, ParseMode mode, CsvSchema schema, ParsedRecordHandler handler)
+            throws InvalidDataException {
+        if (!isCsvFile(filePath)) {
+            throw new InvalidDataException("Invalid file type. Only .csv and .csv.gz files are supported.");
+        }
 
-                isFirstLine = false;
-                continue;
-            }
+        if (isGzipFile(filePath)) {
+            mode = ParseMode.BUFFERED;
+        }
 
-            for (int i = 0; i < fields.length; i++) {
-                String field = fields[i];
-                if (i == quantityIndex || i == emissionFactorIndex) {
-                    if (field.matches(".*[a-zA-Z].*")) {
-                        throw new InvalidDataException("CSV file contains letters in numeric fields.");
-                    }
-                    if (field.matches("-?\\d*\\.?\\d+") && Double.parseDouble(field) <= 0) {
-                        throw new InvalidDataException("CSV file contains numeric fields with 0 or negative values.");
-                    }
+        try {
+            if (mode == ParseMode.PARALLEL) {
+                try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+                    return new ParallelCsvReader(schema, handler).read(channel);
                 }
             }
-        }
 
-        parsedEmissionsData = new ParsedEmissionsData();
-        parsedEmissionsData.setEmissionsString(data);
-        return parsedEmissionsData;
+            RecordAssembler assembler = new RecordAssembler(schema, handler);
+            if (mode == ParseMode.MAPPED) {
+                readMappedFile(filePath, assembler);
+            } else {
+                readBufferedFile(filePath, assembler);
+            }
+            return assembler.finish();
+        } catch (IOException e) {
+            throw new InvalidDataException("Error reading the CSV file: " + e.getMessage(), e);
+        }
     }
 
     /**
-     * Reads the file.
+     * Reads a file line by line through a buffered reader.
      *
      * @param filePath the file path
-     * @return the file data
+     * @param assembler the assembler that validates the lines
+     * @throws IOException if the file cannot be read
+     * @throws InvalidDataException if the data is invalid
      */
-    private String readFile(String filePath) {
-        StringBuilder data = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+    private void readBufferedFile(String filePath, RecordAssembler assembler) throws IOException, InvalidDataException {
+        try (BufferedReader br = openReader(filePath)) {
             String line;
             while ((line = br.readLine()) != null) {
-                data.append(line).append("\n");
+                assembler.accept(line);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        return data.toString();
     }
 
     /**
-     * Checks if the headers are valid.
+     * Reads a file by mapping it into memory, window by window, and handing each line over as a
+     * slice of the mapping. Lines end with a line feed, optionally preceded by a carriage return.
+     * A window always ends on a line boundary, so no line is split between two mappings.
      *
-     * @param headers the headers
-     * @return true if the headers are valid, false otherwise
+     * @param filePath the file path
+     * @param assembler the assembler that validates the lines
+     * @throws IOException if the file cannot be read
+     * @throws InvalidDataException if the data is invalid
      */
-    private boolean isValidProductHeaders(String[] headers) {
-        String[] expectedHeaders = { "Name", "Country", "Weight", "Unit", "Process Type", "ProductFlow Name",
-                "Flow Name", "Unit", "Category", "Quantity", "Tag", "Type", "Origin Country" };
-        if (headers.length != expectedHeaders.length) {
-            return false;
-        }
-        for (int i = 0; i < headers.length; i++) {
-            if (!headers[i].trim().equalsIgnoreCase(expectedHeaders[i])) {
-                return false;
+    private void readMappedFile(String filePath, RecordAssembler assembler) throws IOException, InvalidDataException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(MAP_WINDOW_SIZE, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int lineStart = 0;
+                int lineEnd;
+                while ((lineEnd = SCANNER.indexOf(buffer, lineStart, length, LINE_FEED)) < length) {
+                    assembler.accept(mappedLine(buffer, lineStart, lineEnd));
+                    lineStart = lineEnd + 1;
+                }
+                if (lastWindow) {
+                    if (lineStart < length) {
+                        assembler.accept(mappedLine(buffer, lineStart, length));
+                    }
+                    break;
+                }
+                if (lineStart == 0) {
+                    throw new InvalidDataException("CSV file has a line longer than " + MAP_WINDOW_SIZE + " bytes.");
+                }
+                position += lineStart;
             }
         }
-        return true;
     }
 
     /**
-     * Checks if the headers are valid.
+     * Creates a slice over a line of a mapped file, leaving out a trailing carriage return.
      *
-     * @param headers the headers
-     * @return true if the headers are valid, false otherwise
+     * @param buffer the mapped buffer
+     * @param start the index of the first byte of the line
+     * @param end the index just past the last byte of the line
+     * @return the line
      */
-    private boolean isValidEmissionsHeaders(String[] headers) {
-        String[] expectedHeaders = { "Name", "Category", "Unit", "Quantity", "EmissionFactor" };
-        if (headers.length != expectedHeaders.length) {
-            return false;
-        }
-        for (int i = 0; i < headers.length; i++) {
-            if (!headers[i].trim().equalsIgnoreCase(expectedHeaders[i])) {
-                return false;
-            }
+    private ByteSlice mappedLine(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
         }
-        return true;
+        return new ByteSlice(buffer, start, end - start);
     }
 }
\ No newline at end of file
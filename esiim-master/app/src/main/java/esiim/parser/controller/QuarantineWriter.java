@@ -0,0 +1,78 @@
+package esiim.parser.controller;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+
+import esiim.parser.boundary.RejectedRowHandler;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Writes the rows rejected by a lenient parse to a quarantine file, one line per row holding its
+ * line number, the reason it was rejected and the row as it was read.
+ */
+class QuarantineWriter implements RejectedRowHandler, Closeable {
+    private static final String HEADER = "Line,Reason,Row";
+
+    private final BufferedWriter writer;
+    private long rejected;
+
+    /**
+     * Constructor, creating or replacing the quarantine file.
+     *
+     * @param filePath the path of the quarantine file
+     * @throws InvalidDataException if the file cannot be created
+     */
+    QuarantineWriter(String filePath) throws InvalidDataException {
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePath), Parser.CHARSET));
+            writer.write(HEADER);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new InvalidDataException("Error writing the quarantine file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes a rejected row.
+     *
+     * @param lineNumber the line number of the row
+     * @param reason the reason the row was rejected
+     * @param line the row
+     * @throws InvalidDataException if the row cannot be written
+     */
+    @Override
+    public void reject(long lineNumber, String reason, CharSequence line) throws InvalidDataException {
+        try {
+            writer.write(Long.toString(lineNumber));
+            writer.write(',');
+            writer.write(reason);
+            writer.write(',');
+            writer.append(line);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new InvalidDataException("Error writing the quarantine file: " + e.getMessage(), e);
+        }
+        rejected++;
+    }
+
+    /**
+     * Returns the number of rows rejected so far.
+     * @return the number of rows
+     */
+    long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Flushes and closes the quarantine file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,217 @@
+package esiim.parser.controller;
+
+import esiim.parser.boundary.ParsedRecordHandler;
+import esiim.parser.boundary.RejectedRowHandler;
+import esiim.parser.entity.ColumnMap;
+import esiim.parser.entity.enums.CsvSchema;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Turns the lines of a CSV file, fed one at a time, into validated records.
+ * Blank lines are held back until a later line shows whether they are trailing, so the
+ * file is accepted or rejected exactly as the in-memory parser would.
+ * An assembler can also start in the middle of a file, to validate one chunk of it.
+ * A lenient assembler quarantines invalid rows instead of failing on them, and skips blank lines.
+ */
+class RecordAssembler {
+    private final RowValidator validator;
+    private final ParsedRecordHandler handler;
+    private final RejectedRowHandler quarantine;
+    private boolean hasHeader;
+    private boolean hasRecords;
+    private CharSequence pendingLine;
+    private long pendingLineNumber;
+    private boolean pendingHasText;
+    private long lineNumber;
+    private long records;
+
+    /**
+     * Constructor.
+     *
+     * @param schema the schema of the file
+     * @param handler the handler that receives each record
+     */
+    RecordAssembler(CsvSchema schema, ParsedRecordHandler handler) {
+        this(schema, handler, 0, null);
+    }
+
+    /**
+     * Constructor for an assembler that starts in the middle of a file.
+     *
+     * @param schema the schema of the file
+     * @param handler the handler that receives each record
+     * @param lineNumber the number of lines that come before the first line fed
+     * @param columns the columns resolved from the header, or null if the header has not been read yet
+     */
+    RecordAssembler(CsvSchema schema, ParsedRecordHandler handler, long lineNumber, ColumnMap columns) {
+        this(schema, handler, lineNumber, columns, null);
+    }
+
+    /**
+     * Constructor for a lenient assembler.
+     *
+     * @param schema the schema of the file
+     * @param handler the handler that receives each valid record
+     * @param quarantine the handler that receives each invalid row
+     */
+    RecordAssembler(CsvSchema schema, ParsedRecordHandler handler, RejectedRowHandler quarantine) {
+        this(schema, handler, 0, null, quarantine);
+    }
+
+    /**
+     * Constructor for an assembler that starts in the middle of a file, leniently unless no handler
+     * of invalid rows is given.
+     *
+     * @param schema the schema of the file
+     * @param handler the handler that receives each record
+     * @param lineNumber the number of lines that come before the first line fed
+     * @param columns the columns resolved from the header, or null if the header has not been read yet
+     * @param quarantine the handler that receives each invalid row, or null to fail on the first one
+     */
+    RecordAssembler(CsvSchema schema, ParsedRecordHandler handler, long lineNumber, ColumnMap columns,
+            RejectedRowHandler quarantine) {
+        this.validator = new RowValidator(schema, columns);
+        this.handler = handler;
+        this.lineNumber = lineNumber;
+        this.hasHeader = columns != null;
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Validates the next line of the file and hands it over if it is a record.
+     *
+     * @param line the line, without its line terminator
+     * @throws InvalidDataException if the data is invalid
+     */
+    void accept(CharSequence line) throws InvalidDataException {
+        lineNumber++;
+        if (isBlank(line)) {
+            if (quarantine != null) {
+                return;
+            }
+            if (pendingLine == null) {
+                pendingLine = line;
+                pendingLineNumber = lineNumber;
+            }
+            pendingHasText |= line.length() > 0;
+            return;
+        }
+        if (pendingLine != null) {
+            validator.validateRow(pendingLine, pendingLineNumber);
+        }
+
+        if (!hasHeader) {
+            validator.validateHeader(line, lineNumber);
+            hasHeader = true;
+            return;
+        }
+        hasRecords = true;
+        if (quarantine == null) {
+            validator.validateRow(line, lineNumber);
+        } else {
+            try {
+                validator.validateRow(line, lineNumber);
+            } catch (InvalidDataException e) {
+                quarantine.reject(lineNumber, e.getMessage(), line);
+                return;
+            }
+        }
+        handler.handle(validator.toRecord(lineNumber));
+        records++;
+    }
+
+    /**
+     * Completes the file once every line has been fed.
+     *
+     * @return the number of records handed over
+     * @throws InvalidDataException if the data is invalid
+     */
+    long finish() throws InvalidDataException {
+        if (!hasHeader) {
+            throw new InvalidDataException("CSV file is empty.");
+        }
+        if (pendingLine != null && pendingHasText) {
+            validator.validateRow(pendingLine, pendingLineNumber);
+        }
+        return records;
+    }
+
+    /**
+     * Returns whether the header line has been read.
+     * @return true if the header has been read, false otherwise
+     */
+    boolean hasHeader() {
+        return hasHeader;
+    }
+
+    /**
+     * Returns the columns resolved from the header.
+     * @return the columns, or null if the header has not been read
+     */
+    ColumnMap getColumns() {
+        return validator.getColumns();
+    }
+
+    /**
+     * Returns whether a non-blank line has been fed after the header.
+     * @return true if a record line has been fed, false otherwise
+     */
+    boolean hasRecords() {
+        return hasRecords;
+    }
+
+    /**
+     * Returns the first of the blank lines held back at the end of the lines fed so far.
+     * @return the line, or null if no line is held back
+     */
+    CharSequence getPendingLine() {
+        return pendingLine;
+    }
+
+    /**
+     * Returns the line number of the first blank line held back.
+     * @return the line number
+     */
+    long getPendingLineNumber() {
+        return pendingLineNumber;
+    }
+
+    /**
+     * Returns whether any of the blank lines held back is not empty.
+     * @return true if a held back line has whitespace, false otherwise
+     */
+    boolean pendingHasText() {
+        return pendingHasText;
+    }
+
+    /**
+     * Returns the number of records handed over so far.
+     * @return the number of records
+     */
+    long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the number of lines fed so far, including the lines before the first line fed.
+     * @return the line number of the last line fed
+     */
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Checks if a line only holds whitespace, as {@code String.trim().isEmpty()} would.
+     *
+     * @param line the line
+     * @return true if the line is blank, false otherwise
+     */
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
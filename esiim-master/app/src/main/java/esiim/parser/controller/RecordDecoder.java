@@ -0,0 +1,53 @@
+package esiim.parser.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import esiim.parser.entity.ParsedRecord;
+import esiim.parser.entity.enums.CsvSchema;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Validates CSV data held in memory and decodes it into typed records.
+ */
+public class RecordDecoder {
+    private final CsvSchema schema;
+
+    /**
+     * Constructor.
+     *
+     * @param schema the schema of the data
+     */
+    public RecordDecoder(CsvSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Validates and decodes CSV data.
+     *
+     * @param data the data, with a header line followed by data lines
+     * @return the records, in line order
+     * @throws InvalidDataException if the data is invalid
+     */
+    public List<ParsedRecord> decode(String data) throws InvalidDataException {
+        return decode(data.split("\n"));
+    }
+
+    /**
+     * Validates and decodes the lines of CSV data.
+     *
+     * @param lines the lines, with the header line first
+     * @return the records, in line order
+     * @throws InvalidDataException if the data is invalid
+     */
+    public List<ParsedRecord> decode(String[] lines) throws InvalidDataException {
+        RowValidator validator = new RowValidator(schema);
+        validator.validateHeader(lines[0], 1);
+        List<ParsedRecord> records = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            validator.validateRow(lines[i], i + 1);
+            records.add(validator.toRecord(i + 1));
+        }
+        return records;
+    }
+}
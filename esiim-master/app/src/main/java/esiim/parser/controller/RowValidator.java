@@ -0,0 +1,654 @@
+package esiim.parser.controller;
+
+import java.util.Arrays;
+
+import esiim.parser.entity.ByteSlice;
+import esiim.parser.entity.ColumnMap;
+import esiim.parser.entity.CsvColumn;
+import esiim.parser.entity.ParsedRecord;
+import esiim.parser.entity.enums.CsvSchema;
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Validates CSV lines against a {@link CsvSchema}, checking every formatting rule in a single pass
+ * over the characters of the line and recording the bounds of each field on the way.
+ * The header resolves where each schema column is held; fields whose header names no column are
+ * ignored, and the rules are only enforced on the fields that hold a column.
+ * Lines of a memory-mapped file are first indexed by the {@link ByteScanner} when it is vectorized:
+ * a line made only of plain characters is split at the commas it found, and only the null, blank and
+ * numeric rules are left to check; any other line goes through the full scan.
+ * A validator is reused from line to line and is not thread-safe.
+ */
+public class RowValidator {
+    static final byte ALLOWED = 1;
+    static final byte LETTER = 2;
+    static final byte DIGIT = 4;
+    static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] = ALLOWED | LETTER;
+            CHAR_CLASSES[Character.toUpperCase(c)] = ALLOWED | LETTER;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = ALLOWED | DIGIT;
+        }
+        for (char c : new char[] { '_', ' ', '\t', '\n', 0x0B, '\f', '\r', ',', '.', '-' }) {
+            CHAR_CLASSES[c] = ALLOWED;
+        }
+    }
+
+    private static final int KIND_OTHER = 0;
+    private static final int KIND_COMMA = 1;
+    private static final int KIND_QUOTE = 2;
+    private static final int KIND_END = 3;
+    private static final int KINDS = 4;
+
+    private static final int STATE_START = 0;
+    private static final int STATE_UNQUOTED = 1;
+    private static final int STATE_QUOTED = 2;
+    private static final int STATE_QUOTE = 3;
+
+    private static final int ACTION_CONTENT = 0;
+    private static final int ACTION_END = 1;
+    private static final int ACTION_OPEN = 2;
+    private static final int ACTION_CLOSE = 3;
+    private static final int ACTION_ESCAPE = 4;
+    private static final int ACTION_MALFORMED = 5;
+    private static final int ACTION_UNTERMINATED = 6;
+    private static final int ACTION_BITS = 3;
+    private static final int ACTION_MASK = (1 << ACTION_BITS) - 1;
+
+    /**
+     * Transitions of the RFC 4180 field tokenizer, indexed by state and kind of character, each
+     * holding the next state and the action to take on the character.
+     */
+    private static final int[] TRANSITIONS = {
+        // STATE_START: at the start of a field
+        transition(STATE_UNQUOTED, ACTION_CONTENT), transition(STATE_START, ACTION_END),
+        transition(STATE_QUOTED, ACTION_OPEN), transition(STATE_START, ACTION_END),
+        // STATE_UNQUOTED: inside a field that does not start with a quote
+        transition(STATE_UNQUOTED, ACTION_CONTENT), transition(STATE_START, ACTION_END),
+        transition(STATE_UNQUOTED, ACTION_CONTENT), transition(STATE_START, ACTION_END),
+        // STATE_QUOTED: inside a quoted field
+        transition(STATE_QUOTED, ACTION_CONTENT), transition(STATE_QUOTED, ACTION_CONTENT),
+        transition(STATE_QUOTE, ACTION_CLOSE), transition(STATE_START, ACTION_UNTERMINATED),
+        // STATE_QUOTE: just after a quote inside a quoted field, which closes or escapes it
+        transition(STATE_START, ACTION_MALFORMED), transition(STATE_START, ACTION_END),
+        transition(STATE_QUOTED, ACTION_ESCAPE), transition(STATE_START, ACTION_END),
+    };
+
+    static final int NUMBER_START = 0;
+    static final int NUMBER_SIGN = 1;
+    static final int NUMBER_INTEGER = 2;
+    static final int NUMBER_POINT = 3;
+    static final int NUMBER_FRACTION = 4;
+    static final int NUMBER_INVALID = 5;
+
+    private static final ByteScanner SCANNER = ByteScanner.get();
+
+    private final CsvSchema schema;
+    private final StructuralIndex index = new StructuralIndex();
+    private ColumnMap columns;
+    private CharSequence line;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private int fieldCount;
+
+    /**
+     * Constructor.
+     *
+     * @param schema the schema of the file being validated
+     */
+    public RowValidator(CsvSchema schema) {
+        this(schema, null);
+    }
+
+    /**
+     * Constructor for a validator that starts after the header of a file.
+     *
+     * @param schema the schema of the file being validated
+     * @param columns the columns resolved from the header, or null if the header has not been read
+     */
+    public RowValidator(CsvSchema schema, ColumnMap columns) {
+        this.schema = schema;
+        this.columns = columns;
+    }
+
+    /**
+     * Validates the header line of a file and resolves the field that holds each schema column.
+     * Every column must have a field, matched on its trimmed header ignoring case; a header that
+     * appears more than once in the schema is matched in order of occurrence. A header that breaks
+     * the line rules is reported by the rule it breaks, as before columns were resolved, unless it
+     * only breaks them in fields that hold no schema column, which are ignored.
+     *
+     * @param line the line
+     * @param lineNumber the line number
+     * @return the number of fields
+     * @throws InvalidDataException if the line or the headers are invalid
+     */
+    public int validateHeader(CharSequence line, long lineNumber) throws InvalidDataException {
+        columns = null;
+        String lineError = scan(line, false);
+        int[] fieldOfColumn = new int[schema.getColumnCount()];
+        Arrays.fill(fieldOfColumn, -1);
+        for (int field = 0; field < fieldCount; field++) {
+            for (int column = 0; column < fieldOfColumn.length; column++) {
+                if (fieldOfColumn[column] < 0 && fieldEqualsIgnoreCase(field, schema.getHeader(column))) {
+                    fieldOfColumn[column] = field;
+                    break;
+                }
+            }
+        }
+        for (int field : fieldOfColumn) {
+            if (field < 0) {
+                throw new InvalidDataException(lineError != null ? lineError : "CSV file has invalid headers.", lineNumber);
+            }
+        }
+
+        columns = new ColumnMap(fieldOfColumn, fieldCount);
+        String error = lineError == null ? null : scan(line, false);
+        if (error != null) {
+            throw new InvalidDataException(error, lineNumber);
+        }
+        return fieldCount;
+    }
+
+    /**
+     * Validates a data line of a file.
+     *
+     * @param line the line
+     * @param lineNumber the line number
+     * @return the number of fields
+     * @throws InvalidDataException if the line is invalid
+     */
+    public int validateRow(CharSequence line, long lineNumber) throws InvalidDataException {
+        String error = scan(line, true);
+        if (error != null) {
+            throw new InvalidDataException(error, lineNumber);
+        }
+        return fieldCount;
+    }
+
+    /**
+     * Returns the columns resolved from the header.
+     * @return the columns, or null if no header has been validated
+     */
+    public ColumnMap getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of fields of the last validated line.
+     * @return the number of fields
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns a field of the last validated line, without its quotes and with its escaped quotes undone.
+     *
+     * @param column the column index
+     * @return the field value
+     */
+    public String getField(int column) {
+        String field = line.subSequence(starts[column], ends[column]).toString();
+        return escaped[column] ? ParsedRecord.unescape(field) : field;
+    }
+
+    /**
+     * Returns the bounds of the fields of the last validated line.
+     * @return the start and end index of each field, in pairs
+     */
+    public int[] getFieldBounds() {
+        int[] bounds = new int[2 * fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            bounds[2 * i] = starts[i];
+            bounds[2 * i + 1] = ends[i];
+        }
+        return bounds;
+    }
+
+    /**
+     * Creates a record from the last validated line, indexed by schema column. Only the fields that
+     * hold a column are kept, and its numeric and enum columns are decoded.
+     *
+     * @param lineNumber the line number
+     * @return the record
+     */
+    public ParsedRecord toRecord(long lineNumber) {
+        int columnCount = schema.getColumnCount();
+        int[] bounds = new int[2 * columnCount];
+        double[] numbers = new double[columnCount];
+        int[] ordinals = new int[columnCount];
+        boolean[] escapedColumns = null;
+        for (int i = 0; i < columnCount; i++) {
+            numbers[i] = Double.NaN;
+            ordinals[i] = -1;
+            int field = columns == null ? i : columns.getField(i);
+            if (field >= fieldCount) {
+                bounds[2 * i] = -1;
+                bounds[2 * i + 1] = -1;
+                continue;
+            }
+            bounds[2 * i] = starts[field];
+            bounds[2 * i + 1] = ends[field];
+            if (escaped[field]) {
+                if (escapedColumns == null) {
+                    escapedColumns = new boolean[columnCount];
+                }
+                escapedColumns[i] = true;
+            }
+            CsvColumn column = schema.getColumn(i);
+            if (column.isNumeric()) {
+                numbers[i] = DecimalDecoder.parse(line, starts[field], ends[field]);
+            } else if (column.isEnum()) {
+                ordinals[i] = escaped[field] ? column.ordinalOf(getField(field))
+                        : column.ordinalOf(line, starts[field], ends[field]);
+            }
+        }
+        return new ParsedRecord(lineNumber, line, bounds, numbers, ordinals, escapedColumns);
+    }
+
+    /**
+     * Scans a line once, splitting it into fields with the quoting state machine, recording the field
+     * bounds and every rule violation, and then picks the violation to report in the same order of
+     * precedence as the original rule-by-rule checks. The rules apply to the contents of a field, so
+     * the quotes around a quoted field are not checked and an escaped quote is an allowed character.
+     * Field counting follows {@code String.split(",")}, which drops trailing empty fields.
+     *
+     * @param line the line
+     * @param checkNumbers whether the numeric columns must be checked
+     * @return the message of the violation, or null if the line is valid
+     */
+    private String scan(CharSequence line, boolean checkNumbers) {
+        if (SCANNER.isVectorized() && line instanceof ByteSlice && line.length() > 0) {
+            ByteSlice slice = (ByteSlice) line;
+            int from = slice.getOffset();
+            if (SCANNER.indexPlainLine(slice.getBuffer(), from, from + slice.length(), index)) {
+                return scanPlain(line, checkNumbers);
+            }
+        }
+
+        this.line = line;
+        int length = line.length();
+
+        boolean doubleSpace = false;
+        boolean semicolon = false;
+        boolean nullValue = false;
+        boolean invalidCharacter = length == 0;
+        boolean fieldDoubleSpace = false;
+        boolean fieldSemicolon = false;
+        boolean fieldNullValue = false;
+        boolean fieldInvalidCharacter = false;
+        int nullMatched = 0;
+        char previous = 0;
+
+        int fields = 0;
+        int fieldStart = 0;
+        int contentStart = 0;
+        int contentEnd = 0;
+        boolean fieldEscaped = false;
+        int firstBlankField = -1;
+        int lastNonEmptyField = -1;
+        String numericError = null;
+
+        boolean blank = true;
+        boolean letter = false;
+        boolean lineTerminator = false;
+        boolean negative = false;
+        boolean nonZeroDigit = false;
+        int number = NUMBER_START;
+
+        int state = STATE_START;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? line.charAt(i) : 0;
+            int kind = i == length ? KIND_END : c == ',' ? KIND_COMMA : c == '"' ? KIND_QUOTE : KIND_OTHER;
+            int transition = TRANSITIONS[state * KINDS + kind];
+            state = transition >> ACTION_BITS;
+            int charClass = c < 128 ? CHAR_CLASSES[c] : 0;
+
+            switch (transition & ACTION_MASK) {
+                case ACTION_OPEN:
+                    contentStart = i + 1;
+                    continue;
+                case ACTION_CLOSE:
+                    contentEnd = i;
+                    continue;
+                case ACTION_UNTERMINATED:
+                    return "CSV file has an unterminated quoted field.";
+                case ACTION_MALFORMED:
+                    return "CSV file has a malformed quoted field.";
+                case ACTION_ESCAPE:
+                    fieldEscaped = true;
+                    charClass = ALLOWED;
+                    break;
+                case ACTION_END:
+                    int end = contentStart > fieldStart ? contentEnd : i;
+                    if (fields == starts.length) {
+                        starts = Arrays.copyOf(starts, fields * 2);
+                        ends = Arrays.copyOf(ends, fields * 2);
+                        escaped = Arrays.copyOf(escaped, fields * 2);
+                    }
+                    starts[fields] = contentStart;
+                    ends[fields] = end;
+                    escaped[fields] = fieldEscaped;
+                    if (i > fieldStart) {
+                        lastNonEmptyField = fields;
+                    }
+                    int column = columns == null ? fields : columns.getColumn(fields);
+                    if (column >= 0) {
+                        doubleSpace |= fieldDoubleSpace;
+                        semicolon |= fieldSemicolon;
+                        nullValue |= fieldNullValue;
+                        invalidCharacter |= fieldInvalidCharacter;
+                        if (blank && firstBlankField < 0) {
+                            firstBlankField = fields;
+                        }
+                    }
+                    if (checkNumbers && numericError == null && schema.isNumeric(column)) {
+                        if (letter && !lineTerminator) {
+                            numericError = "CSV file contains letters in numeric fields.";
+                        } else if ((number == NUMBER_INTEGER || number == NUMBER_FRACTION)
+                                && !isPositive(line, contentStart, end, negative, nonZeroDigit)) {
+                            numericError = "CSV file contains numeric fields with 0 or negative values.";
+                        }
+                    }
+                    fields++;
+                    fieldStart = i + 1;
+                    contentStart = i + 1;
+                    fieldEscaped = false;
+                    fieldDoubleSpace = false;
+                    fieldSemicolon = false;
+                    fieldNullValue = false;
+                    fieldInvalidCharacter = false;
+                    nullMatched = 0;
+                    previous = c;
+                    blank = true;
+                    letter = false;
+                    lineTerminator = false;
+                    negative = false;
+                    nonZeroDigit = false;
+                    number = NUMBER_START;
+                    continue;
+                default:
+                    break;
+            }
+
+            if (c == ' ' && previous == ' ') {
+                fieldDoubleSpace = true;
+            }
+            if (c == ';') {
+                fieldSemicolon = true;
+            }
+            if (c == "null".charAt(nullMatched)) {
+                if (++nullMatched == 4) {
+                    fieldNullValue = true;
+                    nullMatched = 0;
+                }
+            } else {
+                nullMatched = c == 'n' ? 1 : 0;
+            }
+            if ((charClass & ALLOWED) == 0) {
+                fieldInvalidCharacter = true;
+            }
+            previous = c;
+
+            if (c > ' ') {
+                blank = false;
+            }
+            if ((charClass & LETTER) != 0) {
+                letter = true;
+            }
+            if (c == '\n' || c == '\r') {
+                lineTerminator = true;
+            }
+            number = nextNumberState(number, c, charClass);
+            if (c == '-' && number == NUMBER_SIGN) {
+                negative = true;
+            }
+            if ((charClass & DIGIT) != 0 && c != '0') {
+                nonZeroDigit = true;
+            }
+        }
+
+        fieldCount = length == 0 ? 1 : lastNonEmptyField + 1;
+
+        if (doubleSpace) {
+            return "CSV file has inconsistent spacing.";
+        }
+        if (semicolon) {
+            return "CSV file has inconsistent delimiters.";
+        }
+        if (nullValue) {
+            return "CSV file contains null values.";
+        }
+        if (firstBlankField >= 0 && firstBlankField < fieldCount) {
+            return "CSV file contains empty fields.";
+        }
+        if (invalidCharacter) {
+            return "CSV file contains invalid characters.";
+        }
+        return numericError;
+    }
+
+    /**
+     * Checks a line that the structural index found to be plain: it has no quotes and every
+     * character is allowed, so the fields are split at the indexed commas and the spacing, delimiter
+     * and character rules already hold. The null, empty field and numeric rules are checked as
+     * {@link #scan} checks them, on the fields that hold a column.
+     *
+     * @param line the line
+     * @param checkNumbers whether the numeric columns must be checked
+     * @return the message of the violation, or null if the line is valid
+     */
+    private String scanPlain(CharSequence line, boolean checkNumbers) {
+        this.line = line;
+        int length = line.length();
+        int commas = index.getCommaCount();
+        int fields = commas + 1;
+        if (fields > starts.length) {
+            int capacity = Math.max(fields, starts.length * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            escaped = Arrays.copyOf(escaped, capacity);
+        }
+
+        boolean nullValue = false;
+        int firstBlankField = -1;
+        int lastNonEmptyField = -1;
+        String numericError = null;
+        int nextNull = 0;
+        int start = 0;
+        for (int field = 0; field < fields; field++) {
+            int end = field < commas ? index.getComma(field) : length;
+            starts[field] = start;
+            ends[field] = end;
+            escaped[field] = false;
+            if (end > start) {
+                lastNonEmptyField = field;
+            }
+            boolean fieldNullValue = false;
+            while (nextNull < index.getNullCount() && index.getNull(nextNull) < end) {
+                fieldNullValue = true;
+                nextNull++;
+            }
+
+            int column = columns == null ? field : columns.getColumn(field);
+            if (column >= 0) {
+                nullValue |= fieldNullValue;
+                if (firstBlankField < 0 && isBlank(start, end)) {
+                    firstBlankField = field;
+                }
+                if (checkNumbers && numericError == null && schema.isNumeric(column)) {
+                    numericError = checkPlainNumber(start, end);
+                }
+            }
+            start = end + 1;
+        }
+
+        fieldCount = lastNonEmptyField + 1;
+
+        if (nullValue) {
+            return "CSV file contains null values.";
+        }
+        if (firstBlankField >= 0 && firstBlankField < fieldCount) {
+            return "CSV file contains empty fields.";
+        }
+        return numericError;
+    }
+
+    /**
+     * Checks a numeric field of a plain line, which holds no line terminator.
+     *
+     * @param start the start of the field
+     * @param end the end of the field
+     * @return the message of the violation, or null if the field is valid
+     */
+    private String checkPlainNumber(int start, int end) {
+        boolean letter = false;
+        boolean negative = false;
+        boolean nonZeroDigit = false;
+        int number = NUMBER_START;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            int charClass = CHAR_CLASSES[c];
+            if ((charClass & LETTER) != 0) {
+                letter = true;
+            }
+            number = nextNumberState(number, c, charClass);
+            if (c == '-' && number == NUMBER_SIGN) {
+                negative = true;
+            }
+            if ((charClass & DIGIT) != 0 && c != '0') {
+                nonZeroDigit = true;
+            }
+        }
+        if (letter) {
+            return "CSV file contains letters in numeric fields.";
+        }
+        if ((number == NUMBER_INTEGER || number == NUMBER_FRACTION)
+                && !isPositive(line, start, end, negative, nonZeroDigit)) {
+            return "CSV file contains numeric fields with 0 or negative values.";
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a range of the last validated line only holds whitespace.
+     *
+     * @param start the start of the range
+     * @param end the end of the range
+     * @return true if the range is blank, false otherwise
+     */
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs a transition of the field tokenizer.
+     *
+     * @param state the next state
+     * @param action the action to take on the character
+     * @return the transition
+     */
+    private static int transition(int state, int action) {
+        return state << ACTION_BITS | action;
+    }
+
+    /**
+     * Advances the state machine that recognises numbers of the form {@code -?\d*\.?\d+}.
+     *
+     * @param state the current state
+     * @param c the next character
+     * @param charClass the class of the character
+     * @return the next state
+     */
+    static int nextNumberState(int state, char c, int charClass) {
+        boolean digit = (charClass & DIGIT) != 0;
+        switch (state) {
+            case NUMBER_START:
+                if (c == '-') {
+                    return NUMBER_SIGN;
+                }
+                // fall through
+            case NUMBER_SIGN:
+            case NUMBER_INTEGER:
+                if (digit) {
+                    return NUMBER_INTEGER;
+                }
+                return c == '.' ? NUMBER_POINT : NUMBER_INVALID;
+            case NUMBER_POINT:
+            case NUMBER_FRACTION:
+                return digit ? NUMBER_FRACTION : NUMBER_INVALID;
+            default:
+                return NUMBER_INVALID;
+        }
+    }
+
+    /**
+     * Checks if a well-formed number is greater than zero. The sign and digits decide it, except for
+     * numbers long enough to underflow to zero, which are parsed to match {@link Double#parseDouble(String)}.
+     *
+     * @param text the characters
+     * @param start the start of the number
+     * @param end the end of the number
+     * @param negative whether the number has a minus sign
+     * @param nonZeroDigit whether the number has a digit other than zero
+     * @return true if the number is positive, false otherwise
+     */
+    static boolean isPositive(CharSequence text, int start, int end, boolean negative, boolean nonZeroDigit) {
+        if (negative || !nonZeroDigit) {
+            return false;
+        }
+        return end - start < 300 || DecimalDecoder.parse(text, start, end) > 0;
+    }
+
+    /**
+     * Compares a trimmed field of the last validated line with a value, ignoring case.
+     *
+     * @param column the column index
+     * @param value the value
+     * @return true if they are equal, false otherwise
+     */
+    private boolean fieldEqualsIgnoreCase(int column, String value) {
+        return equalsIgnoreCase(line, starts[column], ends[column], value);
+    }
+
+    /**
+     * Compares a trimmed range of characters with a value, ignoring case.
+     *
+     * @param text the characters
+     * @param start the index of the first character of the range
+     * @param end the index just past the last character of the range
+     * @param value the value
+     * @return true if they are equal, false otherwise
+     */
+    static boolean equalsIgnoreCase(CharSequence text, int start, int end, String value) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char a = text.charAt(start + i);
+            char b = value.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)
+                    && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package esiim.parser.controller;
+
+import java.util.Arrays;
+
+/**
+ * Structural index of a CSV line: the positions of its commas and of the {@code null} values in it,
+ * relative to the start of the line. An index is reused from line to line and is not thread-safe.
+ */
+class StructuralIndex {
+    private int[] commas = new int[16];
+    private int commaCount;
+    private int[] nulls = new int[4];
+    private int nullCount;
+
+    /**
+     * Empties the index before a line is indexed.
+     */
+    void clear() {
+        commaCount = 0;
+        nullCount = 0;
+    }
+
+    /**
+     * Records a comma.
+     *
+     * @param position the position of the comma in the line
+     */
+    void addComma(int position) {
+        if (commaCount == commas.length) {
+            commas = Arrays.copyOf(commas, commaCount * 2);
+        }
+        commas[commaCount++] = position;
+    }
+
+    /**
+     * Records a {@code null} value.
+     *
+     * @param position the position of its first character in the line
+     */
+    void addNull(int position) {
+        if (nullCount == nulls.length) {
+            nulls = Arrays.copyOf(nulls, nullCount * 2);
+        }
+        nulls[nullCount++] = position;
+    }
+
+    /**
+     * Returns the number of commas of the line.
+     * @return the number of commas
+     */
+    int getCommaCount() {
+        return commaCount;
+    }
+
+    /**
+     * Returns the position of a comma, in line order.
+     * @param i the index of the comma
+     * @return the position of the comma in the line
+     */
+    int getComma(int i) {
+        return commas[i];
+    }
+
+    /**
+     * Returns the number of {@code null} values of the line.
+     * @return the number of null values
+     */
+    int getNullCount() {
+        return nullCount;
+    }
+
+    /**
+     * Returns the position of a {@code null} value, in line order.
+     * @param i the index of the value
+     * @return the position of its first character in the line
+     */
+    int getNull(int i) {
+        return nulls[i];
+    }
+}
@@ -0,0 +1,123 @@
+package esiim.parser.controller;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Byte scanner that compares a whole vector of bytes at a time, 32 or 64 depending on the widest
+ * vectors the processor supports, and turns the comparisons into bit masks of structural characters,
+ * as simdjson builds its structural index. The bytes left over at the end of a range are scanned one
+ * at a time. This class needs the {@code jdk.incubator.vector} module and is only loaded by
+ * {@link ByteScanner#get()} when it is enabled.
+ */
+class VectorByteScanner extends ByteScanner {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final int NULL_LOOKAHEAD = 3;
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    /**
+     * Returns whether the scanner compares several bytes at a time.
+     * @return true
+     */
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    /**
+     * Returns the index of the next occurrence of a byte.
+     *
+     * @param buffer the buffer
+     * @param from the index to search from
+     * @param to the end of the range searched
+     * @param value the byte
+     * @return the index of the byte, or the end of the range if there is none
+     */
+    @Override
+    int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            VectorMask<Byte> found = ByteVector.fromByteBuffer(SPECIES, buffer, i, ORDER).eq(value);
+            if (found.anyTrue()) {
+                return i + found.firstTrue();
+            }
+        }
+        return super.indexOf(buffer, i, to, value);
+    }
+
+    /**
+     * Counts the occurrences of a byte.
+     *
+     * @param buffer the buffer
+     * @param from the start of the range
+     * @param to the end of the range
+     * @param value the byte
+     * @return the number of occurrences
+     */
+    @Override
+    long count(ByteBuffer buffer, int from, int to, byte value) {
+        long count = 0;
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            count += ByteVector.fromByteBuffer(SPECIES, buffer, i, ORDER).eq(value).trueCount();
+        }
+        return count + super.count(buffer, i, to, value);
+    }
+
+    /**
+     * Indexes part of a line a vector at a time. Adjacent spaces and null values span several bytes,
+     * so each vector is compared with the vectors that start one, two and three bytes later, and only
+     * vectors whose lookahead stays inside the line are scanned this way.
+     *
+     * @param buffer the buffer
+     * @param lineStart the start of the line, which positions are relative to
+     * @param from the start of the part
+     * @param to the end of the line
+     * @param index the index that receives the commas and null values
+     * @return true if the part is plain, false otherwise
+     */
+    @Override
+    boolean indexPlainRange(ByteBuffer buffer, int lineStart, int from, int to, StructuralIndex index) {
+        int i = from;
+        for (; i + LANES + NULL_LOOKAHEAD <= to; i += LANES) {
+            ByteVector bytes = ByteVector.fromByteBuffer(SPECIES, buffer, i, ORDER);
+            ByteVector next = ByteVector.fromByteBuffer(SPECIES, buffer, i + 1, ORDER);
+
+            ByteVector lower = bytes.lanewise(VectorOperators.OR, (byte) 0x20);
+            VectorMask<Byte> allowed = lower.compare(VectorOperators.GE, (byte) 'a')
+                    .and(lower.compare(VectorOperators.LE, (byte) 'z'))
+                    .or(bytes.compare(VectorOperators.GE, (byte) '0').and(bytes.compare(VectorOperators.LE, (byte) '9')))
+                    .or(bytes.compare(VectorOperators.GE, (byte) '\t').and(bytes.compare(VectorOperators.LE, (byte) '\f'))
+                            .and(bytes.eq((byte) '\n').not()))
+                    .or(bytes.eq((byte) ' '))
+                    .or(bytes.eq((byte) ','))
+                    .or(bytes.eq((byte) '.'))
+                    .or(bytes.eq((byte) '-'))
+                    .or(bytes.eq((byte) '_'));
+            VectorMask<Byte> doubleSpace = bytes.eq((byte) ' ').and(next.eq((byte) ' '));
+            if (allowed.not().or(doubleSpace).anyTrue()) {
+                return false;
+            }
+
+            int position = i - lineStart;
+            for (long commas = bytes.eq((byte) ',').toLong(); commas != 0; commas &= commas - 1) {
+                index.addComma(position + Long.numberOfTrailingZeros(commas));
+            }
+            VectorMask<Byte> nulls = bytes.eq((byte) 'n').and(next.eq((byte) 'u'));
+            if (nulls.anyTrue()) {
+                nulls = nulls.and(ByteVector.fromByteBuffer(SPECIES, buffer, i + 2, ORDER).eq((byte) 'l'))
+                        .and(ByteVector.fromByteBuffer(SPECIES, buffer, i + 3, ORDER).eq((byte) 'l'));
+                for (long bits = nulls.toLong(); bits != 0; bits &= bits - 1) {
+                    index.addNull(position + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+        return super.indexPlainRange(buffer, lineStart, i, to, index);
+    }
+}
@@ -0,0 +1,91 @@
+package esiim.parser.entity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only character view over a range of bytes, such as a line of a memory-mapped file.
+ * Each byte is read as one ISO-8859-1 character, the charset every reader of the parser uses.
+ * No copy of the bytes is made until {@link #toString()} is called.
+ */
+public class ByteSlice implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer the buffer holding the bytes
+     * @param offset the index of the first byte in the buffer
+     * @param length the number of bytes
+     */
+    public ByteSlice(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the buffer holding the bytes.
+     * @return the buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the index of the first byte in the buffer.
+     * @return the offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of characters in the slice.
+     * @return the length
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the character at the given index.
+     * @param index the index
+     * @return the character
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    /**
+     * Returns a slice over a subrange of this slice, sharing the same bytes.
+     * @param start the start index, inclusive
+     * @param end the end index, exclusive
+     * @return the sub slice
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new ByteSlice(buffer, offset + start, end - start);
+    }
+
+    /**
+     * Copies the bytes of the slice into a new string.
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
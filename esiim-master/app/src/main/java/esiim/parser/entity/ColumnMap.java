@@ -0,0 +1,54 @@
+package esiim.parser.entity;
+
+import java.util.Arrays;
+
+/**
+ * Mapping between the columns of a {@link esiim.parser.entity.enums.CsvSchema} and the fields of a
+ * CSV file, resolved once from its header. The columns can come in any order, and fields whose
+ * header names no column are ignored.
+ */
+public class ColumnMap {
+    private final int[] fieldOfColumn;
+    private final int[] columnOfField;
+
+    /**
+     * Constructor.
+     *
+     * @param fieldOfColumn the field index of each schema column
+     * @param fieldCount the number of fields of the header
+     */
+    public ColumnMap(int[] fieldOfColumn, int fieldCount) {
+        this.fieldOfColumn = fieldOfColumn.clone();
+        this.columnOfField = new int[fieldCount];
+        Arrays.fill(columnOfField, -1);
+        for (int column = 0; column < fieldOfColumn.length; column++) {
+            columnOfField[fieldOfColumn[column]] = column;
+        }
+    }
+
+    /**
+     * Returns the number of schema columns.
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return fieldOfColumn.length;
+    }
+
+    /**
+     * Returns the field that holds a schema column.
+     * @param column the column index
+     * @return the field index
+     */
+    public int getField(int column) {
+        return fieldOfColumn[column];
+    }
+
+    /**
+     * Returns the schema column held by a field.
+     * @param field the field index
+     * @return the column index, or -1 if the field is ignored
+     */
+    public int getColumn(int field) {
+        return field < columnOfField.length ? columnOfField[field] : -1;
+    }
+}
@@ -0,0 +1,164 @@
+package esiim.parser.entity;
+
+import java.util.Arrays;
+
+/**
+ * Entity class for a column of a CSV file, describing its header and the type of its values.
+ */
+public class CsvColumn {
+    private final String header;
+    private final boolean numeric;
+    private final Enum<?>[] constants;
+    private final int[] slotHashes;
+    private final int[] slotOrdinals;
+
+    /**
+     * Constructor for a text column.
+     *
+     * @param header the header of the column
+     */
+    public CsvColumn(String header) {
+        this(header, false, null);
+    }
+
+    /**
+     * Constructor for a text or numeric column.
+     *
+     * @param header the header of the column
+     * @param numeric whether the column holds numeric values
+     */
+    public CsvColumn(String header, boolean numeric) {
+        this(header, numeric, null);
+    }
+
+    /**
+     * Constructor for a column whose values are the names of an enum's constants.
+     *
+     * @param header the header of the column
+     * @param enumType the enum
+     */
+    public CsvColumn(String header, Class<? extends Enum<?>> enumType) {
+        this(header, false, enumType.getEnumConstants());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param header the header of the column
+     * @param numeric whether the column holds numeric values
+     * @param constants the enum constants the values name, or null
+     */
+    private CsvColumn(String header, boolean numeric, Enum<?>[] constants) {
+        this.header = header;
+        this.numeric = numeric;
+        this.constants = constants;
+        if (constants == null) {
+            this.slotHashes = null;
+            this.slotOrdinals = null;
+            return;
+        }
+
+        int slots = Integer.highestOneBit(Math.max(1, constants.length) * 4 - 1);
+        this.slotHashes = new int[slots];
+        this.slotOrdinals = new int[slots];
+        Arrays.fill(slotOrdinals, -1);
+        for (Enum<?> constant : constants) {
+            int hash = constant.name().hashCode();
+            int slot = spread(hash) & (slots - 1);
+            while (slotOrdinals[slot] >= 0) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            slotHashes[slot] = hash;
+            slotOrdinals[slot] = constant.ordinal();
+        }
+    }
+
+    /**
+     * Returns the header of the column.
+     * @return the header
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns whether the column holds numeric values.
+     * @return true if the column is numeric, false otherwise
+     */
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    /**
+     * Returns whether the column holds the names of enum constants.
+     * @return true if the column holds enum values, false otherwise
+     */
+    public boolean isEnum() {
+        return constants != null;
+    }
+
+    /**
+     * Resolves a value of the column to the ordinal of the enum constant it names.
+     *
+     * @param value the value
+     * @return the ordinal, or -1 if the value names no constant
+     */
+    public int ordinalOf(String value) {
+        return ordinalOf(value, 0, value.length());
+    }
+
+    /**
+     * Resolves a range of characters to the ordinal of the enum constant it names, without creating
+     * a string. The names are held in an open-addressing hash table, so an unknown value is rejected
+     * after a hash and, at most, a few slot comparisons.
+     *
+     * @param value the characters
+     * @param start the index of the first character of the value
+     * @param end the index just past the last character of the value
+     * @return the ordinal, or -1 if the value names no constant
+     */
+    public int ordinalOf(CharSequence value, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        int mask = slotOrdinals.length - 1;
+        for (int slot = spread(hash) & mask; slotOrdinals[slot] >= 0; slot = (slot + 1) & mask) {
+            if (slotHashes[slot] == hash && nameEquals(constants[slotOrdinals[slot]].name(), value, start, end)) {
+                return slotOrdinals[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the name of a constant with a range of characters.
+     *
+     * @param name the name
+     * @param value the characters
+     * @param start the index of the first character of the value
+     * @param end the index just past the last character of the value
+     * @return true if they are equal, false otherwise
+     */
+    private static boolean nameEquals(String name, CharSequence value, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != value.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spreads the high bits of a hash into the low bits that pick a slot.
+     *
+     * @param hash the hash
+     * @return the spread hash
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
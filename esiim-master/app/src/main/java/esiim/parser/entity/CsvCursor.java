@@ -0,0 +1,74 @@
+package esiim.parser.entity;
+
+/**
+ * Position reached while following a CSV file that is still being written.
+ * A cursor always points just past a complete line, so the next read starts on a line boundary.
+ */
+public class CsvCursor {
+    private final long offset;
+    private final long lineNumber;
+    private final ColumnMap columns;
+    private final long records;
+
+    /**
+     * Constructor for a cursor at the start of a file.
+     */
+    public CsvCursor() {
+        this(0, 0, null, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param offset the byte offset just past the last line read
+     * @param lineNumber the number of lines read
+     * @param columns the columns resolved from the header, or null if the header has not been read
+     * @param records the number of records read
+     */
+    public CsvCursor(long offset, long lineNumber, ColumnMap columns, long records) {
+        this.offset = offset;
+        this.lineNumber = lineNumber;
+        this.columns = columns;
+        this.records = records;
+    }
+
+    /**
+     * Returns the byte offset just past the last line read.
+     * @return the offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of lines read.
+     * @return the line number of the last line read
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns whether the header line has been read.
+     * @return true if the header has been read, false otherwise
+     */
+    public boolean hasHeader() {
+        return columns != null;
+    }
+
+    /**
+     * Returns the columns resolved from the header.
+     * @return the columns, or null if the header has not been read
+     */
+    public ColumnMap getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of records read.
+     * @return the number of records
+     */
+    public long getRecords() {
+        return records;
+    }
+}
@@ -0,0 +1,47 @@
+package esiim.parser.entity;
+
+/**
+ * Summary of a lenient parse, counting the rows that were handed over and the rows that were quarantined.
+ */
+public class ParseSummary {
+    private final long validRecords;
+    private final long rejectedRecords;
+    private final String quarantinePath;
+
+    /**
+     * Constructor.
+     *
+     * @param validRecords the number of valid rows handed over
+     * @param rejectedRecords the number of rows written to the quarantine file
+     * @param quarantinePath the path of the quarantine file
+     */
+    public ParseSummary(long validRecords, long rejectedRecords, String quarantinePath) {
+        this.validRecords = validRecords;
+        this.rejectedRecords = rejectedRecords;
+        this.quarantinePath = quarantinePath;
+    }
+
+    /**
+     * Returns the number of valid rows handed over.
+     * @return the number of rows
+     */
+    public long getValidRecords() {
+        return validRecords;
+    }
+
+    /**
+     * Returns the number of rows written to the quarantine file.
+     * @return the number of rows
+     */
+    public long getRejectedRecords() {
+        return rejectedRecords;
+    }
+
+    /**
+     * Returns the path of the quarantine file.
+     * @return the path
+     */
+    public String getQuarantinePath() {
+        return quarantinePath;
+    }
+}
@@ -1,10 +1,13 @@
 package esiim.parser.entity;
 
+import java.util.List;
+
 /**
  * Parsed data entity.
  */
 public class ParsedData {
     private String productString;
+    private List<ParsedRecord> records;
 
     /**
      * Returns the product string.
@@ -21,4 +24,20 @@ public class ParsedData {
     public void setProductString(String productString) {
         this.productString = productString;
     }
+
+    /**
+     * Returns the decoded product records.
+     * @return the records, or null if the data was not decoded
+     */
+    public List<ParsedRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * Sets the decoded product records.
+     * @param records the records to set
+     */
+    public void setRecords(List<ParsedRecord> records) {
+        this.records = records;
+    }
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package esiim.parser.entity;
 
+import java.util.List;
+
 /**
  * Entity class for parsed emissions data.
  */
 public class ParsedEmissionsData {
     private String emissionsString;
+    private List<ParsedRecord> records;
 
     public String getEmissionsString() {
         return emissionsString;
@@ -13,4 +16,12 @@ public class ParsedEmissionsData {
     public void setEmissionsString(String emissionsString) {
         this.emissionsString = emissionsString;
     }
+
+    public List<ParsedRecord> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<ParsedRecord> records) {
+        this.records = records;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package esiim.parser.entity;
+
+import esiim.parser.exception.InvalidDataException;
+
+/**
+ * Outcome of parsing one file of a batch: either its parsed data or the error that rejected it.
+ */
+public class ParsedFileResult {
+    private final String filePath;
+    private final ParsedData parsedData;
+    private final InvalidDataException error;
+
+    /**
+     * Constructor.
+     *
+     * @param filePath the file path
+     * @param parsedData the parsed data, or null if the file was rejected
+     * @param error the error, or null if the file was parsed
+     */
+    public ParsedFileResult(String filePath, ParsedData parsedData, InvalidDataException error) {
+        this.filePath = filePath;
+        this.parsedData = parsedData;
+        this.error = error;
+    }
+
+    /**
+     * Returns the file path.
+     * @return the file path
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Returns the parsed data.
+     * @return the parsed data, or null if the file was rejected
+     */
+    public ParsedData getParsedData() {
+        return parsedData;
+    }
+
+    /**
+     * Returns the error that rejected the file.
+     * @return the error, or null if the file was parsed
+     */
+    public InvalidDataException getError() {
+        return error;
+    }
+
+    /**
+     * Returns whether the file was parsed.
+     * @return true if the file was parsed, false otherwise
+     */
+    public boolean isValid() {
+        return error == null;
+    }
+}
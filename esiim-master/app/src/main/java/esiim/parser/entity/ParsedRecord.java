@@ -0,0 +1,139 @@
+package esiim.parser.entity;
+
+/**
+ * Entity class for a single validated CSV record, indexed by schema column.
+ * The numeric and enum columns are decoded once, when the record is parsed. The record keeps a
+ * reference to its source line and the bounds of each field, and only creates the strings of the
+ * text fields when they are asked for.
+ */
+public class ParsedRecord {
+    private final long lineNumber;
+    private final CharSequence line;
+    private final int[] bounds;
+    private final double[] numbers;
+    private final int[] ordinals;
+    private final boolean[] escaped;
+    private final int fieldCount;
+    private String[] fields;
+
+    /**
+     * Constructor.
+     *
+     * @param lineNumber the line number of the record in the source file
+     * @param line the source line
+     * @param bounds the start and end index of the field of each column in the line, in pairs, -1 for missing columns
+     * @param numbers the value of each numeric column, NaN for the other columns
+     * @param ordinals the enum ordinal of each enum column, -1 for the other columns or unknown values
+     */
+    public ParsedRecord(long lineNumber, CharSequence line, int[] bounds, double[] numbers, int[] ordinals) {
+        this(lineNumber, line, bounds, numbers, ordinals, null);
+    }
+
+    /**
+     * Constructor for a record with quoted fields holding escaped quotes.
+     *
+     * @param lineNumber the line number of the record in the source file
+     * @param line the source line
+     * @param bounds the start and end index of the field of each column in the line, in pairs, -1 for missing columns
+     * @param numbers the value of each numeric column, NaN for the other columns
+     * @param ordinals the enum ordinal of each enum column, -1 for the other columns or unknown values
+     * @param escaped whether the field of each column holds escaped quotes, or null if none does
+     */
+    public ParsedRecord(long lineNumber, CharSequence line, int[] bounds, double[] numbers, int[] ordinals,
+            boolean[] escaped) {
+        this.lineNumber = lineNumber;
+        this.line = line;
+        this.bounds = bounds;
+        this.numbers = numbers;
+        this.ordinals = ordinals;
+        this.escaped = escaped;
+        int count = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (bounds[i] >= 0) {
+                count++;
+            }
+        }
+        this.fieldCount = count;
+    }
+
+    /**
+     * Returns the line number of the record in the source file.
+     * @return the line number
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the number of columns the record has a field for.
+     * @return the number of fields
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the field at the given column, creating its string on first access.
+     * @param column the column index
+     * @return the field value, or null if the record has no field for the column
+     */
+    public String getField(int column) {
+        if (bounds[2 * column] < 0) {
+            return null;
+        }
+        if (fields == null) {
+            fields = new String[bounds.length / 2];
+        }
+        String field = fields[column];
+        if (field == null) {
+            field = line.subSequence(bounds[2 * column], bounds[2 * column + 1]).toString();
+            if (escaped != null && escaped[column]) {
+                field = unescape(field);
+            }
+            fields[column] = field;
+        }
+        return field;
+    }
+
+    /**
+     * Returns the field at the given column as a view over the source line, without creating a string.
+     * @param column the column index
+     * @return the field characters, or null if the record has no field for the column
+     */
+    public CharSequence getFieldSequence(int column) {
+        if (bounds[2 * column] < 0) {
+            return null;
+        }
+        if (escaped != null && escaped[column]) {
+            return getField(column);
+        }
+        return line.subSequence(bounds[2 * column], bounds[2 * column + 1]);
+    }
+
+    /**
+     * Returns the decoded value of a numeric column.
+     * @param column the column index
+     * @return the value, or NaN if the column is not numeric or its value is not a number
+     */
+    public double getNumber(int column) {
+        return column < numbers.length ? numbers[column] : Double.NaN;
+    }
+
+    /**
+     * Returns the ordinal of the enum constant named by an enum column.
+     * @param column the column index
+     * @return the ordinal, or -1 if the column is not an enum column or its value names no constant
+     */
+    public int getOrdinal(int column) {
+        return column < ordinals.length ? ordinals[column] : -1;
+    }
+
+    /**
+     * Undoes the escaped quotes of the contents of a quoted field.
+     * @param field the contents, with each quote doubled
+     * @return the value, with each doubled quote replaced by a single one
+     */
+    public static String unescape(String field) {
+        return field.replace("\"\"", "\"");
+    }
+}
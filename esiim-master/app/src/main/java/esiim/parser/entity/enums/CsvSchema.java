@@ -0,0 +1,62 @@
+package esiim.parser.entity.enums;
+
+import esiim.modeler.entity.enums.Category;
+import esiim.modeler.entity.enums.FlowType;
+import esiim.modeler.entity.enums.ProcessType;
+import esiim.modeler.entity.enums.Tag;
+import esiim.modeler.entity.enums.Unit;
+import esiim.parser.entity.CsvColumn;
+
+/*
+ * Enum for the layout of the supported CSV files.
+ */
+public enum CsvSchema {
+    PRODUCT(new CsvColumn("Name"), new CsvColumn("Country"), new CsvColumn("Weight", true),
+            new CsvColumn("Unit", Unit.class), new CsvColumn("Process Type", ProcessType.class),
+            new CsvColumn("ProductFlow Name"), new CsvColumn("Flow Name"), new CsvColumn("Unit", Unit.class),
+            new CsvColumn("Category", Category.class), new CsvColumn("Quantity", true),
+            new CsvColumn("Tag", Tag.class), new CsvColumn("Type", FlowType.class), new CsvColumn("Origin Country")),
+    EMISSIONS(new CsvColumn("Name"), new CsvColumn("Category", Category.class), new CsvColumn("Unit", Unit.class),
+            new CsvColumn("Quantity", true), new CsvColumn("EmissionFactor", true));
+
+    private final CsvColumn[] columns;
+
+    /*
+     * Constructor for the CsvSchema enum.
+     * @param columns The columns, in order
+     */
+    CsvSchema(CsvColumn... columns) {
+        this.columns = columns;
+    }
+
+    /*
+     * Returns the number of columns.
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /*
+     * Returns a column.
+     * @param column The column index
+     */
+    public CsvColumn getColumn(int column) {
+        return columns[column];
+    }
+
+    /*
+     * Returns the expected header of a column.
+     * @param column The column index
+     */
+    public String getHeader(int column) {
+        return columns[column].getHeader();
+    }
+
+    /*
+     * Returns whether a column holds numeric values.
+     * @param column The column index
+     */
+    public boolean isNumeric(int column) {
+        return column >= 0 && column < columns.length && columns[column].isNumeric();
+    }
+}
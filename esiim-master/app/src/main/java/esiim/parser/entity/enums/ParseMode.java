@@ -0,0 +1,10 @@
+package esiim.parser.entity.enums;
+
+/*
+ * Enum for the ways a CSV file can be read by the parser.
+ */
+public enum ParseMode {
+    BUFFERED,
+    MAPPED,
+    PARALLEL
+}
@@ -4,6 +4,8 @@ package esiim.parser.exception;
  * Thrown to indicate that the data is invalid.
  */
 public class InvalidDataException extends Exception{
+    private long lineNumber = -1;
+
     /**
      * Constructs a new {@code InvalidDataException} with no detail message.
      */
@@ -19,6 +21,18 @@ public class InvalidDataException extends Exception{
         super(message);
     }
 
+    /**
+     * Constructs a new {@code InvalidDataException} with the specified detail message and the
+     * line of the file where the invalid data was found.
+     *
+     * @param message    the detail message
+     * @param lineNumber the line number of the invalid data
+     */
+    public InvalidDataException(String message, long lineNumber) {
+        super(message);
+        this.lineNumber = lineNumber;
+    }
+
     /**
      * Constructs a new {@code InvalidDataException} with the specified detail message and cause.
      *
@@ -51,4 +65,13 @@ public class InvalidDataException extends Exception{
     public InvalidDataException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
         super(message, cause, enableSuppression, writableStackTrace);
     }
-}
+
+    /**
+     * Returns the line number of the invalid data, or -1 if it is unknown.
+     *
+     * @return the line number
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
\ No newline at end of file
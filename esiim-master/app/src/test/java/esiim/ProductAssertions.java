@@ -0,0 +1,71 @@
+package esiim;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import esiim.modeler.entity.Flow;
+import esiim.modeler.entity.Process;
+import esiim.modeler.entity.Product;
+import esiim.modeler.entity.ProductFlow;
+
+/**
+ * Assertions shared by the tests that compare products built or calculated in different ways.
+ */
+public final class ProductAssertions {
+
+    /**
+     * Constructor.
+     */
+    private ProductAssertions() {
+    }
+
+    /**
+     * Asserts that two products are equal: their own fields and PCF, and, in order, the type and PCF
+     * of each process, the name and PCF of each product flow and every field of each flow.
+     * @param expected the expected product
+     * @param actual the actual product
+     */
+    public static void assertSameProduct(Product expected, Product actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCountry(), actual.getCountry());
+        assertEquals(expected.getWeight(), actual.getWeight());
+        assertEquals(expected.getUnit(), actual.getUnit());
+        assertEquals(expected.getPcf(), actual.getPcf());
+
+        List<Process> expectedProcesses = expected.getProductSystem().getProcesses();
+        List<Process> processes = actual.getProductSystem().getProcesses();
+        assertEquals(expectedProcesses.size(), processes.size());
+        for (int i = 0; i < processes.size(); i++) {
+            assertEquals(expectedProcesses.get(i).getProcessType(), processes.get(i).getProcessType());
+            assertEquals(expectedProcesses.get(i).getPcf(), processes.get(i).getPcf());
+            List<ProductFlow> expectedProductFlows = expectedProcesses.get(i).getProductFlows();
+            List<ProductFlow> productFlows = processes.get(i).getProductFlows();
+            assertEquals(expectedProductFlows.size(), productFlows.size());
+            for (int j = 0; j < productFlows.size(); j++) {
+                assertEquals(expectedProductFlows.get(j).getName(), productFlows.get(j).getName());
+                assertEquals(expectedProductFlows.get(j).getPcf(), productFlows.get(j).getPcf());
+                assertSameFlows(expectedProductFlows.get(j).getFlows(), productFlows.get(j).getFlows());
+            }
+        }
+    }
+
+    /**
+     * Asserts that two lists of flows are equal, field by field and in order.
+     * @param expected the expected flows
+     * @param actual the actual flows
+     */
+    private static void assertSameFlows(List<Flow> expected, List<Flow> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int k = 0; k < actual.size(); k++) {
+            assertEquals(expected.get(k).getName(), actual.get(k).getName());
+            assertEquals(expected.get(k).getUnit(), actual.get(k).getUnit());
+            assertEquals(expected.get(k).getCategory(), actual.get(k).getCategory());
+            assertEquals(expected.get(k).getQuantity(), actual.get(k).getQuantity());
+            assertEquals(expected.get(k).getTag(), actual.get(k).getTag());
+            assertEquals(expected.get(k).getType(), actual.get(k).getType());
+            assertEquals(expected.get(k).getOriginCountry(), actual.get(k).getOriginCountry());
+            assertEquals(expected.get(k).isDerived(), actual.get(k).isDerived());
+        }
+    }
+}
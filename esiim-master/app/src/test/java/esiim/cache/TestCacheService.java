@@ -0,0 +1,200 @@
+package esiim.cache;
+
+import esiim.cache.boundary.CacheService;
+import esiim.cache.controller.Cache;
+import esiim.modeler.controller.Modeler;
+import esiim.modeler.entity.Emission;
+import esiim.parser.controller.Parser;
+import esiim.parser.exception.InvalidDataException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the {@link Cache} class.
+ */
+public class TestCacheService {
+    private static final String EMISSIONS_FILE = "src/test/resources/emissions/valid_emissions.csv";
+    private static final FileTime OLD_TIME = FileTime.fromMillis(1_600_000_000_000L);
+
+    private CacheService cache;
+    private Path cacheDir;
+    private Path emissionsFile;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Initial setup before each test, copying the emissions file so it can be changed.
+     * @throws IOException if the file cannot be copied
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        cacheDir = tempDir.resolve("cache");
+        cache = new Cache(cacheDir.toString());
+        emissionsFile = copyEmissions("emissions.csv");
+    }
+
+    /**
+     * Test that a second load of an unchanged file is served from the cache with the same emissions.
+     * @throws Exception if the data is invalid
+     */
+    @Test
+    void loadEmissions_UnchangedFile_ShouldHitCache() throws Exception {
+        List<Emission> expected = new Modeler().modelEmission(new Parser().parseEmissionsCsv(EMISSIONS_FILE));
+
+        assertSameEmissions(expected, cache.loadEmissions(emissionsFile.toString()));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, listEntries().size());
+
+        CacheService nextRun = new Cache(cacheDir.toString());
+        assertSameEmissions(expected, nextRun.loadEmissions(emissionsFile.toString()));
+        assertEquals(1, nextRun.getHits());
+        assertEquals(0, nextRun.getMisses());
+    }
+
+    /**
+     * Test that a changed file is parsed again, and that a file whose content is unchanged is still
+     * served from the cache after its modification time changed.
+     * @throws Exception if the file cannot be written or the data is invalid
+     */
+    @Test
+    void loadEmissions_ChangedFile_ShouldInvalidateEntry() throws Exception {
+        cache.loadEmissions(emissionsFile.toString());
+
+        Files.writeString(emissionsFile, Files.readString(emissionsFile).replace(",0.291", ",0.5"));
+        Files.setLastModifiedTime(emissionsFile, OLD_TIME);
+        List<Emission> emissions = cache.loadEmissions(emissionsFile.toString());
+        assertEquals(0.5, emissions.get(0).getEmissionFactor());
+        assertEquals(2, cache.getMisses());
+
+        Files.setLastModifiedTime(emissionsFile, FileTime.fromMillis(OLD_TIME.toMillis() + 60000));
+        assertEquals(0.5, cache.loadEmissions(emissionsFile.toString()).get(0).getEmissionFactor());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    /**
+     * Test that the least recently used entries are evicted once the cap is exceeded.
+     * @throws Exception if the files cannot be written or the data is invalid
+     */
+    @Test
+    void loadEmissions_CapExceeded_ShouldEvictLeastRecentlyUsed() throws Exception {
+        Path second = copyEmissions("second.csv");
+        Path third = copyEmissions("third.csv");
+        cache.loadEmissions(emissionsFile.toString());
+        long entrySize = Files.size(listEntries().get(0));
+
+        cache = new Cache(cacheDir.toString(), 2 * entrySize);
+        cache.loadEmissions(second.toString());
+        cache.loadEmissions(emissionsFile.toString());
+        cache.loadEmissions(third.toString());
+        assertEquals(2, listEntries().size());
+        assertEquals(1, cache.getHits());
+
+        cache.loadEmissions(emissionsFile.toString());
+        cache.loadEmissions(second.toString());
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    /**
+     * Test that a corrupt entry is rebuilt, and that invalid files are rejected without an entry.
+     * @throws Exception if the files cannot be written or the data is invalid
+     */
+    @Test
+    void loadEmissions_CorruptEntryOrInvalidFile_ShouldParseFile() throws Exception {
+        cache.loadEmissions(emissionsFile.toString());
+        Path entry = listEntries().get(0);
+        Files.write(entry, new byte[] { 1, 2, 3 });
+
+        assertEquals(31, cache.loadEmissions(emissionsFile.toString()).size());
+        assertEquals(2, cache.getMisses());
+        assertTrue(Files.size(entry) > 3);
+
+        Path invalid = tempDir.resolve("invalid.csv");
+        Files.copy(Path.of("src/test/resources/emissions/invalid_headers.csv"), invalid);
+        assertThrows(InvalidDataException.class, () -> cache.loadEmissions(invalid.toString()));
+        assertThrows(InvalidDataException.class, () -> cache.loadEmissions(tempDir.resolve("missing.csv").toString()));
+        assertEquals(1, listEntries().size());
+    }
+
+    /**
+     * Test that a new cache directory is private to the current user, and that a directory others can
+     * write to, or a symbolic link, is never read from or written to.
+     * @throws Exception if the files cannot be written or the data is invalid
+     */
+    @Test
+    void loadEmissions_SharedDirectory_ShouldBypassCache() throws Exception {
+        cache.loadEmissions(emissionsFile.toString());
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(cacheDir));
+
+        Files.setPosixFilePermissions(cacheDir, PosixFilePermissions.fromString("rwxrwxrwx"));
+        CacheService shared = new Cache(cacheDir.toString());
+        assertEquals(31, shared.loadEmissions(emissionsFile.toString()).size());
+        assertEquals(0, shared.getHits());
+        assertEquals(1, shared.getMisses());
+
+        Path link = Files.createSymbolicLink(tempDir.resolve("link"), cacheDir);
+        Files.setPosixFilePermissions(cacheDir, PosixFilePermissions.fromString("rwx------"));
+        CacheService linked = new Cache(link.toString());
+        linked.loadEmissions(copyEmissions("other.csv").toString());
+        assertEquals(0, linked.getHits());
+        assertEquals(1, listEntries().size());
+        assertTrue(Cache.defaultDirectory().endsWith("esiim"));
+    }
+
+    /**
+     * Copies the emissions file into the temporary directory, with an old modification time.
+     * @param fileName the name of the copy
+     * @return the path of the copy
+     * @throws IOException if the file cannot be copied
+     */
+    private Path copyEmissions(String fileName) throws IOException {
+        Path file = tempDir.resolve(fileName);
+        Files.copy(Path.of(EMISSIONS_FILE), file);
+        Files.setLastModifiedTime(file, OLD_TIME);
+        return file;
+    }
+
+    /**
+     * Lists the entries of the cache.
+     * @return the entry paths
+     * @throws IOException if the directory cannot be listed
+     */
+    private List<Path> listEntries() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir, "*.bin")) {
+            files.forEach(entries::add);
+        }
+        return entries;
+    }
+
+    /**
+     * Asserts that two lists of emissions hold the same values.
+     * @param expected the expected emissions
+     * @param actual the actual emissions
+     */
+    private static void assertSameEmissions(List<Emission> expected, List<Emission> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getCategory(), actual.get(i).getCategory());
+            assertEquals(expected.get(i).getUnit(), actual.get(i).getUnit());
+            assertEquals(expected.get(i).getQuantity(), actual.get(i).getQuantity());
+            assertEquals(expected.get(i).getEmissionFactor(), actual.get(i).getEmissionFactor());
+        }
+    }
+}
@@ -1,32 +1,47 @@
 package esiim.calculator;
 
 import esiim.calculator.controller.Calculator;
+import esiim.calculator.controller.UnitConverter;
+import esiim.calculator.entity.PcfResult;
 import esiim.calculator.exception.InvalidCalculationException;
 import esiim.modeler.entity.Emission;
+import esiim.modeler.controller.Modeler;
 import esiim.modeler.entity.Flow;
+import esiim.modeler.entity.FlowTable;
+import esiim.modeler.entity.LazyProduct;
 import esiim.modeler.entity.Process;
 import esiim.modeler.entity.Product;
 import esiim.modeler.entity.ProductFlow;
 import esiim.modeler.entity.ProductSystem;
+import esiim.modeler.entity.SymbolTable;
 import esiim.modeler.entity.enums.Category;
 import esiim.modeler.entity.enums.FlowType;
 import esiim.modeler.entity.enums.ProcessType;
 import esiim.modeler.entity.enums.Unit;
 import esiim.modeler.exception.InvalidParseDataException;
 import esiim.modeler.exception.InvalidParsedEmissionsDataException;
+import esiim.parser.controller.Parser;
+import esiim.parser.entity.ParsedData;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static esiim.ProductAssertions.assertSameProduct;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Test class for the {@link Calculator} class.
  */
 public class TestCalculatorService {
+    private static final String PRODUCT_FILE = "src/test/resources/product/valid_shoe_production.csv";
+    private static final String EMISSIONS_FILE = "src/test/resources/emissions/valid_emissions.csv";
+
     private Calculator calculator;
 
     /**
@@ -203,4 +218,258 @@ public class TestCalculatorService {
         double expectedPcf = 0.3 * 1.5;
         assertEquals(expectedPcf, product.getPcf());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for the {@link Calculator#calculateFlowTablePcf(FlowTable, List)} method, which should
+     * give the same PCF as the object graph, with the flows held on or off the heap.
+     * @throws Exception if the data is invalid
+     */
+    @Test
+    void calculateFlowTablePcf_ValidTable_ShouldMatchObjectGraph() throws Exception {
+        ParsedData parsedData = new Parser().parseCsv(PRODUCT_FILE);
+        List<Emission> emissions = new Modeler().modelEmission(new Parser().parseEmissionsCsv(EMISSIONS_FILE));
+        Product product = new Modeler().modelProduct(parsedData);
+        calculator.calculatePcf(product, emissions);
+
+        for (boolean offHeap : new boolean[] { false, true }) {
+            FlowTable table = new Modeler().modelFlowTable(parsedData, offHeap);
+            assertEquals(offHeap, table.isOffHeap());
+            calculator.calculateFlowTablePcf(table, emissions);
+
+            assertSameProduct(product, new LazyProduct(table));
+        }
+    }
+
+    /**
+     * Test method for the {@link Calculator#calculateFlowTablePcf(FlowTable, List)} method with an input
+     * flow without a matching emission, or without a table.
+     */
+    @Test
+    void calculateFlowTablePcf_FlowWithoutMatchingEmissions_ShouldThrowInvalidCalculationException() {
+        FlowTable table = new FlowTable();
+        SymbolTable symbols = table.getSymbolTable();
+        int productFlow = table.productFlowOf(ProcessType.RawMaterialProduction, symbols.encode("Polyester Production"));
+        table.addFlow(productFlow, symbols.encode("Unknown Material"), Unit.KG, Category.RawMaterial, 1, null,
+                FlowType.Input, symbols.encode("Turkey"));
+
+        assertThrows(InvalidCalculationException.class, () -> calculator.calculateFlowTablePcf(table, createValidEmissions()));
+        assertThrows(InvalidCalculationException.class, () -> calculator.calculateFlowTablePcf(null, createValidEmissions()));
+        assertThrows(InvalidCalculationException.class, () -> calculator.calculateFlowTablePcf(new FlowTable(), createValidEmissions()));
+    }
+
+    /**
+     * Test method for the {@link Calculator#evaluatePcf(Product, List)} method, which should leave the
+     * product unchanged and give the same PCF as {@link Calculator#calculatePcf(Product, List)}, again
+     * and again and from several threads at once.
+     * @throws Exception if the data is invalid or a thread fails
+     */
+    @Test
+    void evaluatePcf_SharedProduct_ShouldNotChangeProduct() throws Exception {
+        ParsedData parsedData = new Parser().parseCsv(PRODUCT_FILE);
+        List<Emission> emissions = new Modeler().modelEmission(new Parser().parseEmissionsCsv(EMISSIONS_FILE));
+        Product expected = new Modeler().modelProduct(parsedData);
+        calculator.calculatePcf(expected, emissions);
+
+        Product product = new Modeler().modelProduct(parsedData);
+        ProductFlow productFlow = product.getProductSystem().getProcesses().get(0).getProductFlows().get(0);
+        int flows = productFlow.getFlows().size();
+        PcfResult first = calculator.evaluatePcf(product, emissions);
+        PcfResult second = calculator.evaluatePcf(product, emissions);
+
+        assertEquals(expected.getPcf(), first.getPcf());
+        assertEquals(first.getPcf(), second.getPcf());
+        assertEquals(0, product.getPcf());
+        assertEquals(flows, productFlow.getFlows().size());
+        assertEquals(flows, first.getEmissionFlows(productFlow).size());
+        assertEquals(expected.getProductSystem().getProcesses().get(0).getPcf(),
+                first.getPcf(product.getProductSystem().getProcesses().get(0)));
+
+        LazyProduct lazy = new Modeler().modelLazyProduct(parsedData, false);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<PcfResult>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                Product shared = i % 2 == 0 ? product : lazy;
+                results.add(executor.submit(() -> calculator.evaluatePcf(shared, emissions)));
+            }
+            for (Future<PcfResult> result : results) {
+                assertEquals(expected.getPcf(), result.get().getPcf());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(flows, productFlow.getFlows().size());
+        assertTrue(Double.isNaN(first.getPcf(new ProductFlow("Unknown", new ArrayList<>()))));
+    }
+
+    /**
+     * Test method for the {@link Calculator#calculatePcf(Product, List)} method on a product calculated
+     * before, which should replace the emission flows of the earlier calculation.
+     * @throws Exception if the data is invalid
+     */
+    @Test
+    void calculatePcf_CalculatedTwice_ShouldReplaceEmissionFlows() throws Exception {
+        ParsedData parsedData = new Parser().parseCsv(PRODUCT_FILE);
+        List<Emission> emissions = new Modeler().modelEmission(new Parser().parseEmissionsCsv(EMISSIONS_FILE));
+        Product product = new Modeler().modelProduct(parsedData);
+        calculator.calculatePcf(product, emissions);
+        double pcf = product.getPcf();
+        List<Integer> flows = new ArrayList<>();
+        for (Process process : product.getProductSystem().getProcesses()) {
+            for (ProductFlow productFlow : process.getProductFlows()) {
+                flows.add(productFlow.getFlows().size());
+            }
+        }
+
+        calculator.calculatePcf(product, emissions);
+        assertEquals(pcf, product.getPcf());
+        int i = 0;
+        for (Process process : product.getProductSystem().getProcesses()) {
+            for (ProductFlow productFlow : process.getProductFlows()) {
+                assertEquals((int) flows.get(i++), productFlow.getFlows().size());
+            }
+        }
+    }
+
+    /**
+     * Test method for the {@link Calculator#calculatePcf(Product, List)} and
+     * {@link Calculator#calculateFlowTablePcf(FlowTable, List)} methods on a product with a reported
+     * flow shaped like an emission flow, which should be kept when the product is calculated again.
+     * @throws InvalidCalculationException if an error occurs in the calculation
+     */
+    @Test
+    void calculatePcf_ReportedEmissionFlow_ShouldKeepFlow() throws InvalidCalculationException {
+        Product product = createValidProduct();
+        List<Flow> flows = product.getProductSystem().getProcesses().get(0).getProductFlows().get(0).getFlows();
+        Flow reported = new Flow("Petroleum Emission", Unit.KgCO2, Category.AirEmission, 2.0, FlowType.Output, "Turkey");
+        flows.add(reported);
+
+        calculator.calculatePcf(product, createValidEmissions());
+        calculator.calculatePcf(product, createValidEmissions());
+        assertEquals(3, flows.size());
+        assertSame(reported, flows.get(1));
+        assertEquals(2.0, reported.getQuantity());
+        assertFalse(reported.isDerived());
+        assertTrue(flows.get(2).isDerived());
+
+        FlowTable table = new FlowTable();
+        table.setName("Running Shoes");
+        table.setCountry("Portugal");
+        table.setWeight(0.8);
+        table.setUnit(Unit.KG);
+        SymbolTable symbols = table.getSymbolTable();
+        int productFlow = table.productFlowOf(ProcessType.RawMaterialProduction, symbols.encode("Polyester Production"));
+        table.addFlow(productFlow, symbols.encode("Petroleum"), Unit.Liters, Category.RawMaterial, 0.3, null,
+                FlowType.Input, symbols.encode("Turkey"));
+        int reportedFlow = table.addFlow(productFlow, symbols.encode("Petroleum Emission"), Unit.KgCO2,
+                Category.AirEmission, 2.0, null, FlowType.Output, symbols.encode("Turkey"));
+
+        calculator.calculateFlowTablePcf(table, createValidEmissions());
+        calculator.calculateFlowTablePcf(table, createValidEmissions());
+        assertEquals(3, table.getFlowCount());
+        assertEquals(2.0, table.getQuantity(reportedFlow));
+        assertFalse(table.isDerived(reportedFlow));
+        assertTrue(table.isDerived(table.getLastFlow(productFlow)));
+        assertEquals(product.getPcf(), table.getPcf());
+        assertSameProduct(product, new LazyProduct(table));
+    }
+
+    /**
+     * Test method for the {@link Calculator#calculatePcf(Product, List)} method with a lazy product,
+     * which should be calculated on its flow table without creating its flows, even once its
+     * processes and totals were read or when it is calculated again, and give the same product as
+     * the one built by the modeler.
+     * @throws Exception if the data is invalid
+     */
+    @Test
+    void calculatePcf_LazyProduct_ShouldCalculateOnFlowTable() throws Exception {
+        ParsedData parsedData = new Parser().parseCsv(PRODUCT_FILE);
+        List<Emission> emissions = new Modeler().modelEmission(new Parser().parseEmissionsCsv(EMISSIONS_FILE));
+        Product expected = new Modeler().modelProduct(parsedData);
+        calculator.calculatePcf(expected, emissions);
+
+        LazyProduct product = new Modeler().modelLazyProduct(parsedData, true);
+        calculator.calculatePcf(product, emissions);
+        assertFalse(product.isMaterialized());
+        assertEquals(expected.getPcf(), product.getPcf());
+
+        LazyProduct read = new Modeler().modelLazyProduct(parsedData, false);
+        for (Process process : read.getProductSystem().getProcesses()) {
+            assertEquals(0, process.getPcf());
+            for (ProductFlow productFlow : process.getProductFlows()) {
+                assertEquals(0, productFlow.getPcf());
+            }
+        }
+        int flows = read.getFlowTable().getFlowCount();
+        calculator.calculatePcf(read, emissions);
+        int calculatedFlows = read.getFlowTable().getFlowCount();
+        calculator.calculatePcf(read, emissions);
+        assertFalse(read.isMaterialized());
+        assertTrue(calculatedFlows > flows);
+        assertEquals(calculatedFlows, read.getFlowTable().getFlowCount());
+        assertEquals(expected.getPcf(), read.getPcf());
+
+        LazyProduct materialized = new Modeler().modelLazyProduct(parsedData, false);
+        materialized.getProductSystem().getProcesses().get(0).getProductFlows().get(0).getFlows();
+        assertTrue(materialized.isMaterialized());
+        calculator.calculatePcf(materialized, emissions);
+        assertEquals(flows, materialized.getFlowTable().getFlowCount());
+        assertEquals(expected.getPcf(), materialized.getPcf());
+
+        for (Product result : List.of(product, read, materialized)) {
+            assertSameProduct(expected, result);
+        }
+
+        LazyProduct changed = new Modeler().modelLazyProduct(parsedData, false);
+        changed.getProductSystem().getProcesses().get(0).getProductFlows().remove(0);
+        assertTrue(changed.isMaterialized());
+    }
+
+    /**
+     * Test method for the {@link Calculator#calculatePcf(Product, List)} method with flows in units
+     * compatible with, but different from, the units of their emission factors.
+     * @throws InvalidCalculationException if an error occurs in the calculation
+     */
+    @Test
+    void calculatePcf_CompatibleUnits_ShouldConvertQuantities() throws InvalidCalculationException {
+        List<Flow> flows = new ArrayList<>();
+        flows.add(new Flow("Solar Panel", Unit.Watts, Category.SolarEnergy, 2000, FlowType.Input, "Portugal"));
+        flows.add(new Flow("Petroleum", Unit.Grams, Category.RawMaterial, 500, FlowType.Input, "Turkey"));
+        flows.add(new Flow("Wind Turbine", Unit.Kilowatts, Category.WindEnergy, 2, FlowType.Input, "Portugal"));
+        List<ProductFlow> productFlows = new ArrayList<>();
+        productFlows.add(new ProductFlow("Assembly", flows));
+        List<Process> processes = new ArrayList<>();
+        processes.add(new Process(ProcessType.Manufacturing, productFlows));
+        Product product = new Product("Running Shoes", "Portugal", 0.8, Unit.KG, new ProductSystem(processes));
+
+        List<Emission> emissions = new ArrayList<>();
+        emissions.add(new Emission("Solar", Category.SolarEnergy, Unit.Kilowatts, 1, 0.5));
+        emissions.add(new Emission("Petroleum", Category.RawMaterial, Unit.KG, 1, 2.0));
+        emissions.add(new Emission("Wind", Category.WindEnergy, Unit.Watts, 1, 0.001));
+        emissions.add(new Emission("Wind", Category.WindEnergy, Unit.Kilowatts, 1, 0.25));
+
+        calculator.calculatePcf(product, emissions);
+
+        assertEquals(1.0, flows.get(3).getQuantity(), 1e-12);
+        assertEquals(1.0, flows.get(4).getQuantity(), 1e-12);
+        assertEquals(0.5, flows.get(5).getQuantity(), 1e-12);
+        assertEquals(2.5, product.getPcf(), 1e-12);
+    }
+
+    /**
+     * Test the {@link UnitConverter} class, which should convert between units of the same dimension
+     * by the ratio of their scales, and refuse units of different dimensions.
+     */
+    @Test
+    void unitConverter_Units_ShouldConvertWithinDimension() {
+        assertEquals(1000.0, UnitConverter.factor(Unit.KG, Unit.Grams));
+        assertEquals(0.001, UnitConverter.factor(Unit.Watts, Unit.Kilowatts));
+        assertEquals(1.0, UnitConverter.factor(Unit.Liters, Unit.Liters));
+        assertEquals(1e6, UnitConverter.convert(1, Unit.SquareKilometers, Unit.SquareMeters));
+        assertTrue(UnitConverter.isCompatible(Unit.Grams, Unit.KG));
+        assertFalse(UnitConverter.isCompatible(Unit.Joules, Unit.Watts));
+        assertFalse(UnitConverter.isCompatible(Unit.KG, Unit.KgCO2));
+        assertFalse(UnitConverter.isCompatible(null, Unit.KG));
+        assertTrue(Double.isNaN(UnitConverter.convert(1, Unit.Kilometers, Unit.Liters)));
+    }
+}
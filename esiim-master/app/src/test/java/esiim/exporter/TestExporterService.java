@@ -1,19 +1,27 @@
 package esiim.exporter;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import esiim.calculator.controller.Calculator;
+import esiim.calculator.entity.PcfResult;
 import esiim.exporter.controller.Exporter;
 import esiim.exporter.exception.InvalidProductException;
+import esiim.modeler.controller.Modeler;
+import esiim.modeler.entity.Emission;
 import esiim.modeler.entity.Flow;
+import esiim.modeler.entity.FlowTable;
 import esiim.modeler.entity.Product;
 import esiim.modeler.entity.ProductFlow;
 import esiim.modeler.entity.ProductSystem;
@@ -23,6 +31,8 @@ import esiim.modeler.entity.enums.ProcessType;
 import esiim.modeler.entity.enums.Tag;
 import esiim.modeler.entity.enums.Unit;
 import esiim.modeler.entity.Process;
+import esiim.parser.controller.Parser;
+import esiim.parser.entity.ParsedData;
 
 /**
  * Test class for ExporterService.
@@ -66,6 +76,70 @@ public class TestExporterService {
         assertTrue(file.exists(), "CSV file should be created");
     }
 
+    /**
+     * Test that exporting a flow table writes the same file as exporting the object graph of the product.
+     * @throws Exception if the data is invalid or the file cannot be read
+     */
+    @Test
+    void testExportFlowTableToCsv_ValidTable_ShouldMatchObjectGraph() throws Exception {
+        ParsedData parsedData = new Parser().parseCsv("src/test/resources/product/valid_shoe_production.csv");
+        List<Emission> emissions = new Modeler().modelEmission(new Parser().parseEmissionsCsv("src/test/resources/emissions/valid_emissions.csv"));
+        Product modeled = new Modeler().modelProduct(parsedData);
+        new Calculator().calculatePcf(modeled, emissions);
+        FlowTable table = new Modeler().modelFlowTable(parsedData, true);
+        new Calculator().calculateFlowTablePcf(table, emissions);
+
+        exporter.exportToCsv(modeled);
+        String expected = Files.readString(file.toPath());
+        exporter.exportFlowTableToCsv(table);
+        assertEquals(expected, Files.readString(file.toPath()));
+        assertThrows(InvalidProductException.class, () -> exporter.exportFlowTableToCsv(null));
+    }
+
+    /**
+     * Test that exporting a product with a calculation result writes the same file as exporting the
+     * calculated product, and leaves the product unchanged.
+     * @throws Exception if the data is invalid or the file cannot be read
+     */
+    @Test
+    void testExportToCsv_PcfResult_ShouldMatchCalculatedProduct() throws Exception {
+        ParsedData parsedData = new Parser().parseCsv("src/test/resources/product/valid_shoe_production.csv");
+        List<Emission> emissions = new Modeler().modelEmission(new Parser().parseEmissionsCsv("src/test/resources/emissions/valid_emissions.csv"));
+        Product calculated = new Modeler().modelProduct(parsedData);
+        new Calculator().calculatePcf(calculated, emissions);
+        Product modeled = new Modeler().modelProduct(parsedData);
+        PcfResult result = new Calculator().evaluatePcf(modeled, emissions);
+
+        exporter.exportToCsv(calculated);
+        String expected = Files.readString(file.toPath());
+        exporter.exportToCsv(modeled, result);
+        assertEquals(expected, Files.readString(file.toPath()));
+        assertEquals(0, modeled.getPcf());
+        assertThrows(InvalidProductException.class, () -> exporter.exportToCsv(modeled, null));
+    }
+
+    /**
+     * Test that names holding a comma or a double quote are quoted as RFC 4180 requires, so that
+     * every exported line keeps its columns.
+     * @throws Exception if the product cannot be exported or the file cannot be read
+     */
+    @Test
+    void testExportToCsv_NamesWithCommaAndQuote_ShouldQuoteFields() throws Exception {
+        List<Flow> flows = new ArrayList<>();
+        flows.add(new Flow("Leather, full grain", Unit.KG, Category.RawMaterial, 0.5, Tag.Virgin, FlowType.Input, "Italy"));
+        List<ProductFlow> productFlows = new ArrayList<>();
+        productFlows.add(new ProductFlow("say \"hi\"", flows));
+        List<Process> processes = new ArrayList<>();
+        processes.add(new Process(ProcessType.RawMaterialProduction, productFlows));
+        Product quoted = new Product("Boots, brown", "Portugal", 1.2, Unit.KG, new ProductSystem(processes));
+
+        exporter.exportToCsv(quoted);
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals("\"Name: Boots, brown\",Country: Portugal,Weight: 1.2 KG,Total PCF: 0.0", lines.get(1));
+        assertTrue(lines.contains("\"say \"\"hi\"\"\",0.0"));
+        assertTrue(lines.contains("\"Leather, full grain\",KG,RawMaterial,0.5,Virgin,Input,Italy"));
+    }
+
     /**
      * Test the exportToCsv method with a null product.
      * @throws InvalidProductException
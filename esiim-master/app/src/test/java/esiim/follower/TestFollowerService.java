@@ -0,0 +1,146 @@
+package esiim.follower;
+
+import esiim.calculator.controller.Calculator;
+import esiim.follower.controller.Follower;
+import esiim.modeler.controller.Modeler;
+import esiim.modeler.entity.Emission;
+import esiim.modeler.entity.Product;
+import esiim.modeler.exception.InvalidParsedEmissionsDataException;
+import esiim.parser.controller.Parser;
+import esiim.parser.exception.InvalidDataException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Test class for the {@link Follower} class.
+ */
+public class TestFollowerService {
+    private static final String PRODUCT_FILE = "src/test/resources/product/valid_shoe_production.csv";
+    private static final String EMISSIONS_FILE = "src/test/resources/emissions/valid_emissions.csv";
+
+    private List<Emission> emissions;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Initial setup before each test, modeling the emissions used by the follower.
+     * @throws InvalidDataException if the emissions data is invalid
+     * @throws InvalidParsedEmissionsDataException if the emissions cannot be modeled
+     */
+    @BeforeEach
+    void setup() throws InvalidDataException, InvalidParsedEmissionsDataException {
+        emissions = new Modeler().modelEmission(new Parser().parseEmissionsCsv(EMISSIONS_FILE));
+    }
+
+    /**
+     * Test that rows appended between polls update the PCF to the value of a full recalculation.
+     * @throws Exception if the file cannot be written or the data is invalid
+     */
+    @Test
+    void poll_AppendedRows_ShouldMatchFullCalculation() throws Exception {
+        List<String> lines = Files.readAllLines(Path.of(PRODUCT_FILE));
+        Path file = tempDir.resolve("live.csv");
+        Files.write(file, lines.subList(0, 10));
+
+        Follower follower = new Follower(file.toString(), emissions);
+        assertEquals(9, follower.poll());
+        Product product = follower.getProduct();
+        assertNotNull(product);
+
+        Files.write(file, lines.subList(10, lines.size()), StandardOpenOption.APPEND);
+        assertEquals(lines.size() - 10, follower.poll());
+        assertEquals(0, follower.poll());
+        assertSame(product, follower.getProduct());
+        assertEquals(lines.size() - 1, follower.getRecords());
+
+        Product expected = new Modeler().modelProduct(new Parser().parseCsv(PRODUCT_FILE));
+        new Calculator().calculatePcf(expected, emissions);
+        assertEquals(expected.getPcf(), product.getPcf(), 1e-9);
+        assertEquals(expected.getProductSystem().getProcesses().size(), product.getProductSystem().getProcesses().size());
+        for (int i = 0; i < expected.getProductSystem().getProcesses().size(); i++) {
+            assertEquals(expected.getProductSystem().getProcesses().get(i).getPcf(),
+                    product.getProductSystem().getProcesses().get(i).getPcf(), 1e-9);
+            assertEquals(expected.getProductSystem().getProcesses().get(i).getProductFlows().size(),
+                    product.getProductSystem().getProcesses().get(i).getProductFlows().size());
+        }
+        assertEquals(0, follower.getRejected());
+    }
+
+    /**
+     * Test that a file without rows yet leaves the product unset.
+     * @throws IOException if the file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void poll_HeaderOnly_ShouldNotBuildProduct() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("header.csv");
+        Files.write(file, Files.readAllLines(Path.of(PRODUCT_FILE)).subList(0, 1));
+
+        Follower follower = new Follower(file.toString(), emissions);
+        assertEquals(0, follower.poll());
+        assertNull(follower.getProduct());
+    }
+
+    /**
+     * Test that appended rows that cannot be parsed or calculated are skipped and reported, keeping
+     * the product, and that the valid rows appended after them are still ingested.
+     * @throws Exception if the file cannot be written or the data is invalid
+     */
+    @Test
+    void poll_AppendedInvalidRows_ShouldSkipThemAndIngestLaterRows() throws Exception {
+        List<String> lines = Files.readAllLines(Path.of(PRODUCT_FILE));
+        Path file = tempDir.resolve("invalid.csv");
+        Files.write(file, lines.subList(0, 3));
+        Follower follower = new Follower(file.toString(), emissions);
+        assertEquals(2, follower.poll());
+        Product product = follower.getProduct();
+
+        Files.writeString(file, "Running Shoes,Portugal,0.8,KG,Manufacturing,Packaging,Glass,KG,RawMaterial,0.3,Virgin,Input,Germany\n"
+                + lines.get(3).replace(",Virgin,", ",Unknown,") + "\n", StandardOpenOption.APPEND);
+        assertEquals(0, follower.poll());
+        assertSame(product, follower.getProduct());
+        assertEquals(2, follower.getRejected());
+        assertTrue(follower.getLastRejection().startsWith("Line 5: "));
+
+        Files.write(file, lines.subList(3, lines.size()), StandardOpenOption.APPEND);
+        assertEquals(lines.size() - 3, follower.poll());
+        assertEquals(0, follower.poll());
+        assertSame(product, follower.getProduct());
+        assertEquals(lines.size() - 1, follower.getRecords());
+        assertEquals(2, follower.getRejected());
+
+        Product expected = new Modeler().modelProduct(new Parser().parseCsv(PRODUCT_FILE));
+        new Calculator().calculatePcf(expected, emissions);
+        assertEquals(expected.getPcf(), product.getPcf(), 1e-9);
+    }
+
+    /**
+     * Test that a file truncated between polls is followed again from its start.
+     * @throws Exception if the file cannot be written or the data is invalid
+     */
+    @Test
+    void poll_TruncatedFile_ShouldRebuildProduct() throws Exception {
+        List<String> lines = Files.readAllLines(Path.of(PRODUCT_FILE));
+        Path file = tempDir.resolve("truncated.csv");
+        Files.write(file, lines.subList(0, 10));
+        Follower follower = new Follower(file.toString(), emissions);
+        assertEquals(9, follower.poll());
+        Product product = follower.getProduct();
+
+        Files.write(file, lines.subList(0, 4));
+        assertEquals(3, follower.poll());
+        assertNotSame(product, follower.getProduct());
+        assertEquals(3, follower.getRecords());
+    }
+}
@@ -4,21 +4,48 @@ import esiim.modeler.controller.Modeler;
 import esiim.modeler.exception.InvalidParseDataException;
 import esiim.modeler.entity.Product;
 import esiim.parser.entity.ParsedData;
+import esiim.parser.entity.ParsedRecord;
 import esiim.modeler.exception.InvalidParsedEmissionsDataException;
 import esiim.modeler.entity.Emission;
 import esiim.parser.entity.ParsedEmissionsData;
+import esiim.parser.controller.Parser;
+import esiim.parser.exception.InvalidDataException;
+import esiim.modeler.entity.Flow;
+import esiim.modeler.entity.FlowTable;
+import esiim.modeler.entity.LazyProduct;
+import esiim.modeler.entity.Process;
+import esiim.modeler.entity.ProductFlow;
+import esiim.modeler.entity.SymbolTable;
+import esiim.modeler.entity.enums.ModelMode;
+import esiim.modeler.entity.enums.Category;
+import esiim.modeler.entity.enums.FlowType;
+import esiim.modeler.entity.enums.ProcessType;
+import esiim.modeler.entity.enums.Tag;
+import esiim.modeler.entity.enums.Unit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import static esiim.ProductAssertions.assertSameProduct;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Test class for the {@link Modeler} class.
  */
 public class TestModelerService {
+    private static final String MULTIPLE_PRODUCTS_FILE = "src/test/resources/product/multiple_products.csv";
+
+    @TempDir
+    Path tempDir;
+
     private Modeler modeler;
 
     /**
@@ -229,4 +256,300 @@ public class TestModelerService {
 
         assertThrows(InvalidParsedEmissionsDataException.class, () -> modeler.modelEmission(parsedEmissionsData));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test the {@link Modeler#modelProduct(ParsedData)} method with the records decoded by the parser.
+     */
+    @Test
+    void modelProduct_ParsedRecords_ShouldReturnProduct() throws InvalidParseDataException, InvalidDataException {
+        ParsedData parsedData = new Parser().parseCsv("src/test/resources/product/valid_shoe_production.csv");
+        assertNotNull(parsedData.getRecords());
+        parsedData.setProductString(null);
+
+        Product result = modeler.modelProduct(parsedData);
+        assertNotNull(result);
+        assertEquals("Running Shoes", result.getName());
+        assertEquals(Unit.KG, result.getUnit());
+    }
+
+    /**
+     * Test the {@link Modeler#modelEmission(ParsedEmissionsData)} method with the records decoded by the parser.
+     */
+    @Test
+    void modelEmission_ParsedRecords_ShouldReturnListOfEmissions() throws InvalidParsedEmissionsDataException, InvalidDataException {
+        ParsedEmissionsData parsedEmissionsData = new Parser().parseEmissionsCsv("src/test/resources/emissions/valid_emissions.csv");
+        parsedEmissionsData.setEmissionsString(null);
+
+        List<Emission> result = modeler.modelEmission(parsedEmissionsData);
+        assertEquals(parsedEmissionsData.getRecords().size(), result.size());
+    }
+
+    /**
+     * Test the {@link Modeler#modelEmission(ParsedEmissionsData)} method with reordered and extra columns.
+     */
+    @Test
+    void modelEmission_ReorderedColumns_ShouldReturnListOfEmissions() throws InvalidParsedEmissionsDataException {
+        String emissionsString = "EmissionFactor,Supplier,Unit,Quantity,Category,Name\n" +
+                                 "1.5,Acme,KgCO2,100,AirEmission,CO2";
+        ParsedEmissionsData parsedEmissionsData = new ParsedEmissionsData();
+        parsedEmissionsData.setEmissionsString(emissionsString);
+
+        List<Emission> result = modeler.modelEmission(parsedEmissionsData);
+        assertEquals(1, result.size());
+        assertEquals("CO2", result.get(0).getName());
+        assertEquals(1.5, result.get(0).getEmissionFactor());
+    }
+
+    /**
+     * Test the {@link Modeler#modelProduct(ParsedData)} method with a quoted name holding a comma.
+     */
+    @Test
+    void modelProduct_QuotedFields_ShouldReturnProduct() throws InvalidParseDataException {
+        String productString = "Name,Country,Weight,Unit,Process Type,ProductFlow Name,Flow Name,Unit,Category,Quantity,Tag,Type,Origin Country\n" +
+                               "\"Running Shoes, Trail\",Portugal,0.8,KG,Manufacturing,Shoe Assembly,\"Leather, full grain\",KG,RawMaterial,1.4,Virgin,Input,Italy";
+        ParsedData parsedData = new ParsedData();
+        parsedData.setProductString(productString);
+
+        Product result = modeler.modelProduct(parsedData);
+        assertEquals("Running Shoes, Trail", result.getName());
+        assertEquals("Leather, full grain",
+                result.getProductSystem().getProcesses().get(0).getProductFlows().get(0).getFlows().get(0).getName());
+    }
+
+    /**
+     * Test the {@link Modeler#modelEmission(ParsedEmissionsData)} method with each unit valid for an
+     * energy category, and with enum values that differ only in case or by a prefix.
+     */
+    @Test
+    void modelEmission_EnumLookups_ShouldMatchExactNames() throws InvalidParsedEmissionsDataException {
+        String emissionsString = "Name,Category,Unit,Quantity,EmissionFactor\n" +
+                                 "Solar,SolarEnergy,Joules,100,1.5\n" +
+                                 "Solar,SolarEnergy,Watts,100,1.5\n" +
+                                 "Solar,SolarEnergy,Kilowatts,100,1.5";
+        ParsedEmissionsData parsedEmissionsData = new ParsedEmissionsData();
+        parsedEmissionsData.setEmissionsString(emissionsString);
+        List<Emission> result = modeler.modelEmission(parsedEmissionsData);
+        assertEquals(Unit.Kilowatts, result.get(2).getUnit());
+
+        for (String row : new String[] { "Solar,SolarEnergy,KG,100,1.5", "CO2,AirEmission,kgco2,100,1.5",
+                "CO2,AirEmission,KgCO,100,1.5", "CO2,Air,KgCO2,100,1.5" }) {
+            ParsedEmissionsData invalidData = new ParsedEmissionsData();
+            invalidData.setEmissionsString("Name,Category,Unit,Quantity,EmissionFactor\n" + row);
+            assertThrows(InvalidParsedEmissionsDataException.class, () -> modeler.modelEmission(invalidData));
+        }
+    }
+
+    /**
+     * Test the {@link Modeler#modelProduct(ParsedData)} method with rows sharing product flows, which
+     * are merged into one product flow per process and name.
+     */
+    @Test
+    void modelProduct_SharedProductFlows_ShouldMergeFlows() throws InvalidParseDataException, InvalidDataException {
+        Product result = modeler.modelProduct(new Parser().parseCsv("src/test/resources/product/valid_shoe_production.csv"));
+
+        Process transport = null;
+        int productFlows = 0;
+        for (Process process : result.getProductSystem().getProcesses()) {
+            productFlows += process.getProductFlows().size();
+            if (process.getProcessType() == ProcessType.Transport) {
+                transport = process;
+            }
+        }
+        assertEquals(15, productFlows);
+        assertNotNull(transport);
+        assertEquals(1, transport.getProductFlows().size());
+        assertEquals("Material Transport", transport.getProductFlows().get(0).getName());
+        assertEquals(9, transport.getProductFlows().get(0).getFlows().size());
+    }
+
+    /**
+     * Test the {@link Modeler#modelProducts(ParsedData)} method with a file holding several products.
+     */
+    @Test
+    void modelProducts_MultipleProducts_ShouldGroupRowsByProduct() throws InvalidParseDataException, InvalidDataException {
+        Map<String, Product> result = modeler.modelProducts(new Parser().parseCsv(MULTIPLE_PRODUCTS_FILE));
+
+        assertEquals(List.of("Running Shoes", "Trail Boots", "Sandals"), new ArrayList<>(result.keySet()));
+        Product runningShoes = result.get("Running Shoes");
+        assertEquals(2, runningShoes.getProductSystem().getProcesses().size());
+        assertEquals(2, runningShoes.getProductSystem().getProcesses().get(0).getProductFlows().size());
+        Product trailBoots = result.get("Trail Boots");
+        assertEquals("Spain", trailBoots.getCountry());
+        assertEquals(1.2, trailBoots.getWeight());
+        assertEquals(2, trailBoots.getProductSystem().getProcesses().get(0).getProductFlows().get(0).getFlows().size());
+    }
+
+    /**
+     * Test the {@link Modeler#modelProducts(ParsedData)} method with rows of one product name but
+     * another country, weight or unit, which should be rejected rather than folded into the product.
+     */
+    @Test
+    void modelProducts_ConflictingProductAttributes_ShouldThrowInvalidParseDataException() {
+        String header = "Name,Country,Weight,Unit,Process Type,ProductFlow Name,Flow Name,Unit,Category,Quantity,Tag,Type,Origin Country\n";
+        String row = "Sandals,Portugal,0.4,KG,Transport,Material Transport,Truck,Kilometers,LandTransport,150,Virgin,Input,Portugal";
+        for (String conflicting : List.of(row.replace("Sandals,Portugal", "Sandals,Spain"),
+                row.replace(",0.4,", ",0.5,"), row.replace("0.4,KG,", "0.4,Grams,"))) {
+            ParsedData parsedData = new ParsedData();
+            parsedData.setProductString(header + row + "\n" + conflicting);
+            InvalidParseDataException e = assertThrows(InvalidParseDataException.class,
+                    () -> modeler.modelProducts(parsedData));
+            assertEquals("Conflicting country, weight or unit for product Sandals in line 3", e.getMessage());
+        }
+    }
+
+    /**
+     * Test that streaming a file through {@link Modeler#productHandler(Map)} models the same products.
+     */
+    @Test
+    void productHandler_StreamedRecords_ShouldMatchModelProducts() throws InvalidParseDataException, InvalidDataException {
+        Map<String, Product> expected = modeler.modelProducts(new Parser().parseCsv(MULTIPLE_PRODUCTS_FILE));
+
+        Map<String, Product> result = new LinkedHashMap<>();
+        assertEquals(6, new Parser().streamCsv(MULTIPLE_PRODUCTS_FILE, modeler.productHandler(result)));
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(result.keySet()));
+        for (String name : expected.keySet()) {
+            assertEquals(expected.get(name).getProductSystem().getProcesses().size(),
+                    result.get(name).getProductSystem().getProcesses().size());
+        }
+
+        String invalidRow = "Sandals,Portugal,0.4,KG,INVALID_PROCESS,Material Transport,Truck,Kilometers,LandTransport,150,Virgin,Input,Portugal";
+        ParsedData invalidData = new ParsedData();
+        invalidData.setProductString("Name,Country,Weight,Unit,Process Type,ProductFlow Name,Flow Name,Unit,Category,Quantity,Tag,Type,Origin Country\n" + invalidRow);
+        assertThrows(InvalidParseDataException.class, () -> modeler.modelProducts(invalidData));
+    }
+
+    /**
+     * Test a flow table that outgrows its initial columns and its index of product flows, on the heap
+     * and off it, which must keep every flow and find every product flow again.
+     */
+    @Test
+    void flowTable_ManyFlows_ShouldGrowColumnsAndIndex() {
+        for (boolean offHeap : new boolean[] { false, true }) {
+            FlowTable table = new FlowTable(new SymbolTable(), offHeap, 1);
+            SymbolTable symbols = table.getSymbolTable();
+            for (int i = 0; i < 5000; i++) {
+                int productFlow = table.productFlowOf(ProcessType.values()[i % 200 % 3], symbols.encode("Product Flow " + i % 200));
+                table.addFlow(productFlow, symbols.encode("Flow " + i), Unit.KG, Category.RawMaterial, i, Tag.Virgin,
+                        FlowType.Input, SymbolTable.NO_SYMBOL);
+            }
+
+            assertEquals(5000, table.getFlowCount());
+            assertEquals(200, table.getProductFlowCount());
+            for (int i = 0; i < 200; i++) {
+                int productFlow = table.productFlowOf(ProcessType.values()[i % 3], symbols.encode("Product Flow " + i));
+                assertEquals(i, productFlow);
+                int flows = 0;
+                for (int flow = table.getFirstFlow(productFlow); flow != FlowTable.NONE; flow = table.getNextFlow(flow)) {
+                    assertEquals(flow, (int) table.getQuantity(flow));
+                    assertEquals("Flow " + flow, symbols.decode(table.getNameId(flow)));
+                    assertEquals(productFlow, table.getProductFlow(flow));
+                    assertEquals(Tag.Virgin, table.getTag(flow));
+                    assertEquals(SymbolTable.NO_SYMBOL, table.getOriginCountryId(flow));
+                    flows++;
+                }
+                assertEquals(25, flows);
+            }
+            assertEquals(200, table.getProductFlowCount());
+        }
+    }
+
+    /**
+     * Test that repeated flow names, countries and product flow names share one canonical instance
+     * and one symbol id in the symbol table of the modeler, across products and across emissions,
+     * and that another modeler has a symbol table of its own.
+     */
+    @Test
+    void modelProducts_RepeatedStrings_ShouldShareSymbols() throws InvalidParseDataException, InvalidDataException, InvalidParsedEmissionsDataException {
+        Map<String, Product> result = modeler.modelProducts(new Parser().parseCsv(MULTIPLE_PRODUCTS_FILE));
+
+        Flow sandalsTruck = result.get("Sandals").getProductSystem().getProcesses().get(0).getProductFlows().get(0).getFlows().get(0);
+        ProductFlow shoesTransport = result.get("Running Shoes").getProductSystem().getProcesses().get(1).getProductFlows().get(0);
+        Flow shoesTruck = shoesTransport.getFlows().get(0);
+        assertSame(sandalsTruck.getName(), shoesTruck.getName());
+        assertEquals(sandalsTruck.getNameId(), shoesTruck.getNameId());
+        SymbolTable symbols = modeler.getSymbolTable();
+        assertSame(symbols, shoesTruck.getSymbolTable());
+        assertEquals(symbols.encode("Material Transport"), shoesTransport.getNameId());
+        assertEquals("Portugal", symbols.decode(sandalsTruck.getOriginCountryId()));
+        assertEquals(0, new Modeler().getSymbolTable().size());
+
+        List<Emission> emissions = modeler.modelEmission(new Parser().parseEmissionsCsv("src/test/resources/emissions/valid_emissions.csv"));
+        Flow petroleum = result.get("Running Shoes").getProductSystem().getProcesses().get(0).getProductFlows().get(0).getFlows().get(0);
+        assertTrue(emissions.stream().anyMatch(emission -> emission.getNameId() == petroleum.getNameId()));
+        assertEquals(SymbolTable.NO_SYMBOL, new Flow("Petroleum", Unit.KG, null, 1, null, null).getNameId());
+        assertFalse(SymbolTable.sameSymbol(symbols, petroleum.getNameId(), petroleum.getName(), new SymbolTable(), 0, "Cotton"));
+        assertTrue(SymbolTable.sameSymbol(symbols, petroleum.getNameId(), petroleum.getName(), null, SymbolTable.NO_SYMBOL, "Petroleum"));
+    }
+
+    /**
+     * Test the {@link Modeler#modelProduct(ParsedData, ModelMode)} method in parallel with a large
+     * product streamed from a file, which should be modeled exactly as it is sequentially.
+     */
+    @Test
+    void modelProduct_ParallelMode_ShouldMatchSequential() throws Exception {
+        List<String> lines = Files.readAllLines(Path.of("src/test/resources/product/valid_shoe_production.csv"));
+        List<String> rows = new ArrayList<>(List.of(lines.get(0)));
+        for (int i = 0; i < 40000; i++) {
+            String line = lines.get(1 + i % (lines.size() - 1));
+            rows.add(i % 7 == 0 ? line.replace("Material Transport", "Route " + (i % 50)) : line);
+        }
+        ParsedData parsedData = streamProduct(tempDir.resolve("product.csv"), rows);
+
+        Product expected = new Modeler().modelProduct(parsedData, ModelMode.SEQUENTIAL);
+        Product result = modeler.modelProduct(parsedData, ModelMode.PARALLEL);
+        assertSameProduct(expected, result);
+        List<Process> processes = result.getProductSystem().getProcesses();
+        assertSame(processes.get(0).getProductFlows().get(0), modeler.findProductFlow(processes.get(0),
+                new Parser().parseCsv("src/test/resources/product/valid_shoe_production.csv").getRecords().get(0)));
+
+        rows.set(30000, rows.get(30000).replace(",KG,", ",POUNDS,"));
+        rows.set(20000, rows.get(20000).replace(",Virgin,", ",Unknown,"));
+        ParsedData invalidData = streamProduct(tempDir.resolve("invalid.csv"), rows);
+        InvalidParseDataException sequentialError = assertThrows(InvalidParseDataException.class,
+                () -> new Modeler().modelProduct(invalidData, ModelMode.SEQUENTIAL));
+        InvalidParseDataException parallelError = assertThrows(InvalidParseDataException.class,
+                () -> modeler.modelProduct(invalidData, ModelMode.PARALLEL));
+        assertEquals("Invalid flow tag value: Unknown", sequentialError.getMessage());
+        assertEquals(sequentialError.getMessage(), parallelError.getMessage());
+    }
+
+    /**
+     * Test the {@link Modeler#modelLazyProduct(ParsedData, boolean)} method, which should give the
+     * same product as {@link Modeler#modelProduct(ParsedData)}, creating its processes, product flows
+     * and flows only when they are first read, and being materialized only once its flows are.
+     */
+    @Test
+    void modelLazyProduct_ValidData_ShouldMatchProductWhenRead() throws Exception {
+        ParsedData parsedData = new Parser().parseCsv("src/test/resources/product/valid_shoe_production.csv");
+        Product expected = new Modeler().modelProduct(parsedData);
+        LazyProduct result = modeler.modelLazyProduct(parsedData, false);
+
+        List<Process> processes = result.getProductSystem().getProcesses();
+        assertSame(processes, result.getProductSystem().getProcesses());
+        List<ProductFlow> productFlows = processes.get(0).getProductFlows();
+        assertSame(productFlows, processes.get(0).getProductFlows());
+        assertFalse(result.isMaterialized());
+
+        List<Flow> flows = productFlows.get(0).getFlows();
+        assertSame(flows, productFlows.get(0).getFlows());
+        assertTrue(result.isMaterialized());
+        assertSameProduct(expected, result);
+    }
+
+    /**
+     * Writes the rows of a product to a file and streams them back, as parsed data too large for
+     * {@link Parser#parseCsv(String)} is built.
+     * @param file the file to write
+     * @param rows the header and rows of the product
+     * @return the parsed data holding the streamed records
+     * @throws Exception if the file cannot be written or its data is invalid
+     */
+    private static ParsedData streamProduct(Path file, List<String> rows) throws Exception {
+        Files.write(file, rows);
+        List<ParsedRecord> records = new ArrayList<>();
+        new Parser().streamCsv(file.toString(), records::add);
+        ParsedData parsedData = new ParsedData();
+        parsedData.setRecords(records);
+        return parsedData;
+    }
+}
@@ -1,21 +1,45 @@
 package esiim.parser;
 
+import esiim.parser.controller.DecimalDecoder;
 import esiim.parser.controller.Parser;
 import esiim.parser.exception.InvalidDataException;
 import esiim.parser.entity.ParsedData;
 import esiim.parser.entity.ParsedEmissionsData;
+import esiim.parser.entity.ParsedFileResult;
+import esiim.parser.entity.CsvCursor;
+import esiim.parser.entity.ParsedRecord;
+import esiim.parser.entity.ParseSummary;
+import esiim.parser.entity.enums.ParseMode;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
 /**
  * Test class for the {@link Parser} class.
  */
 public class TestParserService {
     private Parser parser;
 
+    @TempDir
+    Path tempDir;
+
     /**
      * Initial setup before each test, instantiating a new {@link Parser} object.
      */
@@ -261,4 +285,838 @@ public class TestParserService {
         String filePath = "src/test/resources/emissions/non_existent_file.csv";
         assertThrows(InvalidDataException.class, () -> parser.parseEmissionsCsv(filePath));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test to stream a valid CSV file.
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_ValidCSVFile_ShouldHandEveryRecord() throws InvalidDataException {
+        String filePath = "src/test/resources/product/valid_shoe_production.csv";
+        List<ParsedRecord> records = new ArrayList<>();
+        long count = parser.streamCsv(filePath, records::add);
+        assertEquals(26, count);
+        assertEquals(26, records.size());
+        assertEquals(2, records.get(0).getLineNumber());
+        assertEquals("Petroleum", records.get(0).getField(6));
+    }
+
+    /**
+     * Test to stream a CSV file with more lines than the in-memory parser accepts.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_CSVFileWithHighNumberOfRows_ShouldStreamSuccessfully() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("many_rows.csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("Name,Country,Weight,Unit,Process Type,ProductFlow Name,Flow Name,Unit,Category,Quantity,Tag,Type,Origin Country");
+        for (int i = 0; i < 5000; i++) {
+            lines.add("Running Shoes,Portugal,0.8,KG,Manufacturing,Packaging,Plastic,KG,RawMaterial,0.3,Virgin,Input,Germany");
+        }
+        Files.write(file, lines);
+
+        assertEquals(5000, parser.streamCsv(file.toString(), record -> { }));
+    }
+
+    /**
+     * Test to stream a CSV file with null values.
+     */
+    @Test
+    void streamCsv_StringContainingNullValues_ShouldReportLineNumber() {
+        String filePath = "src/test/resources/product/null_values.csv";
+        InvalidDataException e = assertThrows(InvalidDataException.class, () -> parser.streamCsv(filePath, record -> { }));
+        assertEquals("CSV file contains null values.", e.getMessage());
+        assertEquals(19, e.getLineNumber());
+    }
+
+    /**
+     * Test to stream an empty CSV file.
+     */
+    @Test
+    void streamCsv_EmptyCSVFile_ShouldThrowInvalidDataException() {
+        String filePath = "src/test/resources/product/empty.csv";
+        assertThrows(InvalidDataException.class, () -> parser.streamCsv(filePath, record -> { }));
+    }
+
+    /**
+     * Test to stream a valid emissions CSV file.
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamEmissionsCsv_ValidCSVFile_ShouldHandEveryRecord() throws InvalidDataException {
+        String filePath = "src/test/resources/emissions/valid_emissions.csv";
+        assertEquals(31, parser.streamEmissionsCsv(filePath, record -> { }));
+    }
+
+    /**
+     * Test to stream a emissions CSV file with invalid headers.
+     */
+    @Test
+    void streamEmissionsCsv_CSVFileWithInvalidHeaders_ShouldThrowInvalidDataException() {
+        String filePath = "src/test/resources/emissions/invalid_headers.csv";
+        assertThrows(InvalidDataException.class, () -> parser.streamEmissionsCsv(filePath, record -> { }));
+    }
+
+    /**
+     * Test that the validator reports the same message and line as the rule that failed.
+     */
+    @Test
+    void parseCsv_StringContainingInvalidCharacters_ShouldReportMessageAndLineNumber() {
+        String filePath = "src/test/resources/product/invalid_characters.csv";
+        InvalidDataException e = assertThrows(InvalidDataException.class, () -> parser.parseCsv(filePath));
+        assertEquals("CSV file contains invalid characters.", e.getMessage());
+        assertEquals(27, e.getLineNumber());
+    }
+
+    /**
+     * Test that the validator reports the same message and line as the rule that failed.
+     */
+    @Test
+    void parseEmissionsCsv_StringContainingZeroOrNegativeValues_ShouldReportMessage() {
+        String filePath = "src/test/resources/emissions/zero_or_negative_values.csv";
+        InvalidDataException e = assertThrows(InvalidDataException.class, () -> parser.parseEmissionsCsv(filePath));
+        assertEquals("CSV file contains numeric fields with 0 or negative values.", e.getMessage());
+    }
+
+    /**
+     * Test to stream a valid CSV file through a memory mapping.
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_MappedValidCSVFile_ShouldMatchBufferedRecords() throws InvalidDataException {
+        String filePath = "src/test/resources/product/valid_shoe_production.csv";
+        List<ParsedRecord> buffered = new ArrayList<>();
+        List<ParsedRecord> mapped = new ArrayList<>();
+        parser.streamCsv(filePath, ParseMode.BUFFERED, buffered::add);
+        parser.streamCsv(filePath, ParseMode.MAPPED, mapped::add);
+
+        assertEquals(buffered.size(), mapped.size());
+        for (int i = 0; i < buffered.size(); i++) {
+            assertEquals(buffered.get(i).getLineNumber(), mapped.get(i).getLineNumber());
+            for (int column = 0; column < buffered.get(i).getFieldCount(); column++) {
+                assertEquals(buffered.get(i).getField(column), mapped.get(i).getField(column));
+            }
+        }
+    }
+
+    /**
+     * Test to read a CSV file with a non-ASCII name, which every mode and the stream parser must reject
+     * alike, and which a lenient parse must quarantine with the bytes it was read from.
+     * @throws IOException if the test file cannot be written or read
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void bulkEmissionsCsv_NonAsciiRow_ShouldQuarantineOriginalBytes() throws IOException, InvalidDataException {
+        String row = "Algod\u00e3o,RawMaterial,KG,1,5.90";
+        Path file = tempDir.resolve("non_ascii.csv");
+        Files.write(file, ("Name,Category,Unit,Quantity,EmissionFactor\n"
+                + "Leather,RawMaterial,KG,1,17.60\n"
+                + row + "\n"
+                + "Land,LandTransport,Kilometers,1,0.15\n").getBytes(StandardCharsets.UTF_8));
+
+        for (ParseMode mode : ParseMode.values()) {
+            InvalidDataException e = assertThrows(InvalidDataException.class,
+                    () -> parser.streamEmissionsCsv(file.toString(), mode, record -> { }));
+            assertEquals("CSV file contains invalid characters.", e.getMessage());
+            assertEquals(3, e.getLineNumber());
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            assertThrows(InvalidDataException.class, () -> parser.parseEmissionsCsv(in));
+        }
+
+        Path quarantine = tempDir.resolve("quarantine.csv");
+        assertEquals(2, parser.bulkEmissionsCsv(file.toString(), quarantine.toString(), record -> { }).getValidRecords());
+        String rejected = new String(Files.readAllBytes(quarantine), StandardCharsets.ISO_8859_1);
+        assertTrue(rejected.contains(new String(row.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1)));
+    }
+
+    /**
+     * Test to stream a CSV file with Windows line endings through a memory mapping.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_MappedCSVFileWithCarriageReturns_ShouldStreamSuccessfully() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("crlf.csv");
+        Files.writeString(file, "Name,Category,Unit,Quantity,EmissionFactor\r\n"
+                + "Leather,RawMaterial,KG,1,17.60\r\n"
+                + "Land,LandTransport,Kilometers,1,0.15\r\n");
+        List<ParsedRecord> records = new ArrayList<>();
+
+        assertEquals(2, parser.streamEmissionsCsv(file.toString(), ParseMode.MAPPED, records::add));
+        assertEquals("0.15", records.get(1).getField(4));
+    }
+
+    /**
+     * Test to stream a CSV file with invalid characters through a memory mapping.
+     */
+    @Test
+    void streamCsv_MappedStringContainingInvalidCharacters_ShouldReportLineNumber() {
+        String filePath = "src/test/resources/product/invalid_characters.csv";
+        InvalidDataException e = assertThrows(InvalidDataException.class,
+                () -> parser.streamCsv(filePath, ParseMode.MAPPED, record -> { }));
+        assertEquals("CSV file contains invalid characters.", e.getMessage());
+        assertEquals(27, e.getLineNumber());
+    }
+
+    /**
+     * Test to stream long invalid rows through a memory mapping, whose lines are indexed many bytes at
+     * a time, which must be rejected with the same message and line number as with a buffered reader.
+     * @throws IOException if the test file cannot be written
+     */
+    @Test
+    void streamCsv_MappedLongInvalidRows_ShouldMatchBufferedErrors() throws IOException {
+        String header = "Name,Country,Weight,Unit,Process Type,ProductFlow Name,Flow Name,Unit,Category,Quantity,Tag,Type,Origin Country\n";
+        String valid = "Running Shoes,Portugal,0.8,KG,Manufacturing,Packaging Production Line,Plastic Material,KG,RawMaterial,1.25,Virgin,Input,Germany";
+        String[] rows = {
+            valid.replace("Germany", "Germanynull"),
+            valid.replace("Germany", "Germany  East"),
+            valid.replace("Germany", "Germany;East"),
+            valid.replace("Germany", "\"Germany, East\""),
+            valid.replace("Germany", "Germ\u00e9ny"),
+            valid.replace("1.25", "-1.25"),
+            valid.replace("1.25", "1.2x"),
+            valid.replace("Plastic Material", " "),
+        };
+        for (String row : rows) {
+            Path file = tempDir.resolve("long_rows.csv");
+            Files.writeString(file, header + valid + "\n" + row + "\n", StandardCharsets.ISO_8859_1);
+            InvalidDataException expected = null;
+            try {
+                parser.streamCsv(file.toString(), ParseMode.BUFFERED, record -> { });
+            } catch (InvalidDataException e) {
+                expected = e;
+            }
+            for (ParseMode mode : new ParseMode[] { ParseMode.MAPPED, ParseMode.PARALLEL }) {
+                if (expected == null) {
+                    assertDoesNotThrow(() -> parser.streamCsv(file.toString(), mode, record -> { }));
+                    continue;
+                }
+                InvalidDataException e = assertThrows(InvalidDataException.class,
+                        () -> parser.streamCsv(file.toString(), mode, record -> { }));
+                assertEquals(expected.getMessage(), e.getMessage());
+                assertEquals(3, e.getLineNumber());
+            }
+        }
+    }
+
+    /**
+     * Test to stream a missing CSV file through a memory mapping.
+     */
+    @Test
+    void streamCsv_MappedCSVFileNotFound_ShouldThrowInvalidDataException() {
+        String filePath = "src/test/resources/product/non_existent_file.csv";
+        assertThrows(InvalidDataException.class, () -> parser.streamCsv(filePath, ParseMode.MAPPED, record -> { }));
+    }
+
+    /**
+     * Test to stream a CSV file large enough to be split into parallel chunks.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_ParallelLargeCSVFile_ShouldKeepRowOrder() throws IOException, InvalidDataException {
+        Path file = writeLargeProductFile(-1);
+        List<ParsedRecord> records = new ArrayList<>();
+
+        assertEquals(40000, parser.streamCsv(file.toString(), ParseMode.PARALLEL, records::add));
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i + 2, records.get(i).getLineNumber());
+            assertEquals(String.valueOf(i + 1), records.get(i).getField(9));
+        }
+    }
+
+    /**
+     * Test to stream a CSV file in parallel chunks with an invalid row near its end.
+     * @throws IOException if the test file cannot be written
+     */
+    @Test
+    void streamCsv_ParallelCSVFileWithInvalidRow_ShouldReportAbsoluteLineNumber() throws IOException {
+        Path file = writeLargeProductFile(35000);
+        InvalidDataException e = assertThrows(InvalidDataException.class,
+                () -> parser.streamCsv(file.toString(), ParseMode.PARALLEL, record -> { }));
+        assertEquals("CSV file contains null values.", e.getMessage());
+        assertEquals(35001, e.getLineNumber());
+    }
+
+    /**
+     * Test to follow a CSV file as rows are appended to it, leaving an incomplete last line for a later call.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void followCsv_AppendedRows_ShouldReadOnlyCompleteNewLines() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("live.csv");
+        String header = "Name,Country,Weight,Unit,Process Type,ProductFlow Name,Flow Name,Unit,Category,Quantity,Tag,Type,Origin Country\n";
+        String row = "Running Shoes,Portugal,0.8,KG,Manufacturing,Packaging,Plastic,KG,RawMaterial,0.3,Virgin,Input,Germany\n";
+        Files.writeString(file, header + row + "Running Shoes,Portugal");
+        List<ParsedRecord> records = new ArrayList<>();
+
+        CsvCursor cursor = parser.followCsv(file.toString(), null, records::add);
+        assertEquals(1, records.size());
+        assertEquals(1, cursor.getRecords());
+        assertEquals(header.length() + row.length(), cursor.getOffset());
+
+        Files.writeString(file, header + row + row + row);
+        cursor = parser.followCsv(file.toString(), cursor, records::add);
+        assertEquals(3, records.size());
+        assertEquals(4, records.get(2).getLineNumber());
+        assertEquals(3, cursor.getRecords());
+
+        cursor = parser.followCsv(file.toString(), cursor, records::add);
+        assertEquals(3, records.size());
+    }
+
+    /**
+     * Test to follow a CSV file that was truncated since the previous call.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void followCsv_TruncatedCSVFile_ShouldThrowInvalidDataException() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("truncated.csv");
+        Files.copy(Path.of("src/test/resources/product/valid_shoe_production.csv"), file);
+        CsvCursor cursor = parser.followCsv(file.toString(), null, record -> { });
+        Files.writeString(file, "");
+
+        InvalidDataException e = assertThrows(InvalidDataException.class,
+                () -> parser.followCsv(file.toString(), cursor, record -> { }));
+        assertEquals("CSV file was truncated.", e.getMessage());
+    }
+
+    /**
+     * Test to follow a CSV file leniently, which should hand an invalid row to the handler of
+     * rejected rows once and move past it.
+     * @throws IOException if the file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void followCsv_InvalidRow_ShouldRejectItAndReadLaterRows() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("lenient.csv");
+        String header = "Name,Country,Weight,Unit,Process Type,ProductFlow Name,Flow Name,Unit,Category,Quantity,Tag,Type,Origin Country\n";
+        String row = "Running Shoes,Portugal,0.8,KG,Manufacturing,Packaging,Plastic,KG,RawMaterial,0.3,Virgin,Input,Germany\n";
+        Files.writeString(file, header + row + "Running Shoes,Portugal,null\n" + row);
+        List<ParsedRecord> records = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>();
+
+        CsvCursor cursor = parser.followCsv(file.toString(), null, records::add,
+                (lineNumber, reason, line) -> rejected.add(lineNumber));
+        assertEquals(2, records.size());
+        assertEquals(List.of(3L), rejected);
+        assertEquals(Files.size(file), cursor.getOffset());
+
+        parser.followCsv(file.toString(), cursor, records::add, (lineNumber, reason, line) -> rejected.add(lineNumber));
+        assertEquals(2, records.size());
+        assertEquals(1, rejected.size());
+    }
+
+    /**
+     * Test to parse a batch of files, returning each result in the order of the paths.
+     * @throws InvalidDataException if the batch is interrupted
+     */
+    @Test
+    void parseCsvBatch_ValidAndInvalidFiles_ShouldReturnResultPerFile() throws InvalidDataException {
+        List<String> filePaths = List.of(
+                "src/test/resources/product/valid_shoe_production.csv",
+                "src/test/resources/product/null_values.csv",
+                "src/test/resources/product/incorrect_extension.txt",
+                "src/test/resources/product/valid_shoe_production.csv");
+
+        List<ParsedFileResult> results = parser.parseCsvBatch(filePaths, 2);
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isValid());
+        assertEquals(26, results.get(0).getParsedData().getRecords().size());
+        assertFalse(results.get(1).isValid());
+        assertEquals("CSV file contains null values.", results.get(1).getError().getMessage());
+        assertFalse(results.get(2).isValid());
+        assertEquals(filePaths.get(3), results.get(3).getFilePath());
+        assertTrue(results.get(3).isValid());
+    }
+
+    /**
+     * Test to parse every CSV file of a directory.
+     * @throws IOException if the test files cannot be written
+     * @throws InvalidDataException if the directory cannot be listed
+     */
+    @Test
+    void parseCsvDirectory_DirectoryOfFiles_ShouldParseEveryCSVFile() throws IOException, InvalidDataException {
+        Path valid = Path.of("src/test/resources/product/valid_shoe_production.csv");
+        for (int i = 0; i < 20; i++) {
+            Files.copy(valid, tempDir.resolve(String.format("sku_%02d.csv", i)));
+        }
+        Files.writeString(tempDir.resolve("notes.txt"), "not a CSV file");
+
+        List<ParsedFileResult> results = parser.parseCsvDirectory(tempDir.toString());
+        assertEquals(20, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(results.get(i).isValid());
+            assertTrue(results.get(i).getFilePath().endsWith(String.format("sku_%02d.csv", i)));
+        }
+    }
+
+    /**
+     * Test to parse a batch holding a file with more lines than {@link Parser#parseCsv(String)}
+     * accepts, which should be parsed in full.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the batch is interrupted
+     */
+    @Test
+    void parseCsvBatch_LargeCSVFile_ShouldParseEveryRecord() throws IOException, InvalidDataException {
+        Path file = writeLargeProductFile(0);
+        assertThrows(InvalidDataException.class, () -> parser.parseCsv(file.toString()));
+
+        List<ParsedFileResult> results = parser.parseCsvBatch(List.of(file.toString()));
+        assertTrue(results.get(0).isValid());
+        assertEquals(Files.readAllLines(file).size() - 1, results.get(0).getParsedData().getRecords().size());
+    }
+
+    /**
+     * Test to parse a missing directory.
+     */
+    @Test
+    void parseCsvDirectory_DirectoryNotFound_ShouldThrowInvalidDataException() {
+        assertThrows(InvalidDataException.class, () -> parser.parseCsvDirectory("src/test/resources/non_existent_directory"));
+    }
+
+    /**
+     * Test to stream a CSV file leniently, quarantining its invalid rows and handing over the rest.
+     * @throws IOException if the test files cannot be written or read
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void bulkCsv_CSVFileWithInvalidRows_ShouldQuarantineThemAndContinue() throws IOException, InvalidDataException {
+        Path file = writeLargeProductFile(35000);
+        List<String> lines = new ArrayList<>(Files.readAllLines(file));
+        lines.set(10, lines.get(10).replace(",0.8,", ",-0.8,"));
+        lines.add(20, "");
+        Files.write(file, lines);
+        Path quarantine = tempDir.resolve("quarantine.csv");
+        List<ParsedRecord> records = new ArrayList<>();
+
+        ParseSummary summary = parser.bulkCsv(file.toString(), quarantine.toString(), records::add);
+        assertEquals(39998, summary.getValidRecords());
+        assertEquals(2, summary.getRejectedRecords());
+        assertEquals(39998, records.size());
+
+        List<String> rejected = Files.readAllLines(quarantine);
+        assertEquals(3, rejected.size());
+        assertEquals("Line,Reason,Row", rejected.get(0));
+        assertTrue(rejected.get(1).startsWith("11,CSV file contains numeric fields with 0 or negative values.,Running Shoes"));
+        assertTrue(rejected.get(2).startsWith("35002,CSV file contains null values.,"));
+    }
+
+    /**
+     * Test to stream a CSV emissions file with invalid headers leniently.
+     */
+    @Test
+    void bulkEmissionsCsv_CSVFileWithInvalidHeaders_ShouldThrowInvalidDataException() {
+        String filePath = "src/test/resources/emissions/invalid_headers.csv";
+        String quarantinePath = tempDir.resolve("quarantine.csv").toString();
+        assertThrows(InvalidDataException.class, () -> parser.bulkEmissionsCsv(filePath, quarantinePath, record -> { }));
+    }
+
+    /**
+     * Test to parse gzip-compressed CSV files, which must match their uncompressed versions.
+     * @throws IOException if the test files cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void parseCsv_GzipCSVFile_ShouldMatchUncompressedFile() throws IOException, InvalidDataException {
+        String productPath = "src/test/resources/product/valid_shoe_production.csv";
+        String emissionsPath = "src/test/resources/emissions/valid_emissions.csv";
+
+        ParsedData parsedData = parser.parseCsv(gzip(productPath).toString());
+        assertEquals(parser.parseCsv(productPath).getProductString(), parsedData.getProductString());
+        assertEquals(26, parsedData.getRecords().size());
+
+        ParsedEmissionsData parsedEmissionsData = parser.parseEmissionsCsv(gzip(emissionsPath).toString());
+        assertEquals(parser.parseEmissionsCsv(emissionsPath).getEmissionsString(), parsedEmissionsData.getEmissionsString());
+    }
+
+    /**
+     * Test to stream a gzip-compressed CSV file in every mode.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_GzipCSVFile_ShouldStreamInEveryMode() throws IOException, InvalidDataException {
+        Path file = gzip("src/test/resources/product/valid_shoe_production.csv");
+        for (ParseMode mode : ParseMode.values()) {
+            assertEquals(26, parser.streamCsv(file.toString(), mode, record -> { }));
+        }
+    }
+
+    /**
+     * Test to parse a gzip-compressed file that is not a CSV file.
+     */
+    @Test
+    void parseCsv_GzipFileWithIncorrectExtension_ShouldThrowInvalidDataException() {
+        assertThrows(InvalidDataException.class, () -> parser.parseCsv("src/test/resources/product/data.txt.gz"));
+    }
+
+    /**
+     * Test to parse a truncated gzip-compressed CSV file, which must fail rather than give the records
+     * decompressed before the end of the file.
+     * @throws IOException if the test file cannot be written
+     */
+    @Test
+    void parseCsv_TruncatedGzipCSVFile_ShouldThrowInvalidDataException() throws IOException {
+        byte[] compressed = Files.readAllBytes(gzip("src/test/resources/product/valid_shoe_production.csv"));
+        Path file = tempDir.resolve("truncated.csv.gz");
+        Files.write(file, Arrays.copyOf(compressed, compressed.length / 2));
+
+        InvalidDataException e = assertThrows(InvalidDataException.class, () -> parser.parseCsv(file.toString()));
+        assertTrue(e.getMessage().startsWith("Error reading the CSV file"));
+        assertThrows(InvalidDataException.class, () -> parser.parseEmissionsCsv(file.toString()));
+    }
+
+    /**
+     * Compresses a file into the temporary directory.
+     * @param filePath the path of the file
+     * @return the path of the compressed file
+     * @throws IOException if the file cannot be compressed
+     */
+    private Path gzip(String filePath) throws IOException {
+        Path source = Path.of(filePath);
+        Path file = tempDir.resolve(source.getFileName() + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            Files.copy(source, out);
+        }
+        return file;
+    }
+
+    /**
+     * Test to stream a CSV file with reordered columns and extra columns, which are ignored.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_ReorderedAndExtraColumns_ShouldProjectSchemaColumns() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("erp_extract.csv");
+        Files.writeString(file, "Cost (EUR),Quantity,Unit,Name,Batch;Id,EmissionFactor,Category\n"
+                + "12.50,1,KG,Leather,A;17,17.60,RawMaterial\n"
+                + "null,1,Kilometers,Land,,0.15,LandTransport\n");
+        List<ParsedRecord> records = new ArrayList<>();
+
+        assertEquals(2, parser.streamEmissionsCsv(file.toString(), records::add));
+        ParsedRecord record = records.get(0);
+        assertEquals(5, record.getFieldCount());
+        assertEquals("Leather", record.getField(0));
+        assertEquals("RawMaterial", record.getField(1));
+        assertEquals("KG", record.getField(2));
+        assertEquals(1.0, record.getNumber(3));
+        assertEquals(17.60, record.getNumber(4));
+        assertEquals(0.15, records.get(1).getNumber(4));
+    }
+
+    /**
+     * Test to stream a CSV file whose repeated headers are matched in order of occurrence.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_ReorderedRepeatedHeaders_ShouldMatchInOrder() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("reordered.csv");
+        Files.writeString(file, "Origin Country,Type,Tag,Quantity,Category,Unit,Flow Name,ProductFlow Name,Process Type,Unit,Weight,Country,Name\n"
+                + "Turkey,Input,Virgin,0.3,RawMaterial,KG,Petroleum,Polyester Production,RawMaterialProduction,Liters,0.8,Portugal,Running Shoes\n");
+        List<ParsedRecord> records = new ArrayList<>();
+
+        assertEquals(1, parser.streamCsv(file.toString(), records::add));
+        assertEquals("KG", records.get(0).getField(3));
+        assertEquals("Liters", records.get(0).getField(7));
+        assertEquals("Turkey", records.get(0).getField(12));
+    }
+
+    /**
+     * Test to stream a CSV file that lacks a schema column.
+     * @throws IOException if the test file cannot be written
+     */
+    @Test
+    void streamEmissionsCsv_MissingColumn_ShouldThrowInvalidDataException() throws IOException {
+        Path file = tempDir.resolve("missing_column.csv");
+        Files.writeString(file, "Name,Category,Unit,Quantity,Extra\nLeather,RawMaterial,KG,1,17.60\n");
+        InvalidDataException e = assertThrows(InvalidDataException.class,
+                () -> parser.streamEmissionsCsv(file.toString(), record -> { }));
+        assertEquals("CSV file has invalid headers.", e.getMessage());
+    }
+
+    /**
+     * Test to stream a CSV file whose header breaks a line rule in a schema column, which must be
+     * reported by that rule rather than as a missing column.
+     * @throws IOException if the test file cannot be written
+     */
+    @Test
+    void streamEmissionsCsv_MalformedHeader_ShouldReportLineRule() throws IOException {
+        Path file = tempDir.resolve("malformed_header.csv");
+        Files.writeString(file, "Name,Category,Unit,Quantity,Emission  Factor\nLeather,RawMaterial,KG,1,17.60\n");
+        InvalidDataException e = assertThrows(InvalidDataException.class,
+                () -> parser.streamEmissionsCsv(file.toString(), record -> { }));
+        assertEquals("CSV file has inconsistent spacing.", e.getMessage());
+
+        Files.writeString(file, "Name,Category,Unit,Quantity;EmissionFactor\nLeather,RawMaterial,KG,1,17.60\n");
+        e = assertThrows(InvalidDataException.class, () -> parser.streamEmissionsCsv(file.toString(), record -> { }));
+        assertEquals("CSV file has inconsistent delimiters.", e.getMessage());
+    }
+
+    /**
+     * Test to decode numbers from a range of characters, which must match {@link Double#parseDouble(String)}.
+     */
+    @Test
+    void decimalDecoder_Numbers_ShouldMatchParseDouble() {
+        String[] numbers = { "0.3", "17.60", "1", "0.291", "-0.5", " 2.5 ", "0.000001", "123456789012345678901234",
+                "4.9e-324", "1.7976931348623157e308", "0.1e-30", ".5", "5.", "-0", "1e5", "2.50d" };
+        for (String number : numbers) {
+            String text = "," + number + ",";
+            assertEquals(Double.parseDouble(number), DecimalDecoder.parse(text, 1, text.length() - 1), number);
+        }
+    }
+
+    /**
+     * Test to decode ranges of characters that are not numbers.
+     */
+    @Test
+    void decimalDecoder_NotNumbers_ShouldReturnNaN() {
+        for (String text : new String[] { "", ".", "-", "1.2.3", "1_000", "e5", "1e", "abc" }) {
+            assertTrue(Double.isNaN(DecimalDecoder.parse(text, 0, text.length())), text);
+        }
+    }
+
+    /**
+     * Test to stream a CSV file with quoted fields holding commas and escaped quotes.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamEmissionsCsv_QuotedFields_ShouldUnquoteThem() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("quoted.csv");
+        Files.writeString(file, "Name,\"Category\",Unit,Quantity,EmissionFactor\n"
+                + "\"Leather, full grain\",RawMaterial,KG,\"1\",\"17.60\"\n"
+                + "\"Sole 12\"\" wide\",RawMaterial,KG,1,2.10\n");
+        List<ParsedRecord> records = new ArrayList<>();
+
+        for (ParseMode mode : ParseMode.values()) {
+            records.clear();
+            assertEquals(2, parser.streamEmissionsCsv(file.toString(), mode, records::add));
+            assertEquals("Leather, full grain", records.get(0).getField(0));
+            assertEquals("RawMaterial", records.get(0).getField(1));
+            assertEquals(17.60, records.get(0).getNumber(4));
+            assertEquals("Sole 12\" wide", records.get(1).getField(0));
+            assertEquals("Sole 12\" wide", records.get(1).getFieldSequence(0).toString());
+        }
+    }
+
+    /**
+     * Test to stream CSV files with badly quoted fields.
+     * @throws IOException if the test files cannot be written
+     */
+    @Test
+    void streamEmissionsCsv_BadlyQuotedFields_ShouldThrowInvalidDataException() throws IOException {
+        String header = "Name,Category,Unit,Quantity,EmissionFactor\n";
+        String[][] cases = {
+            { "\"Leather,RawMaterial,KG,1,17.60\n", "CSV file has an unterminated quoted field." },
+            { "\"Leather\"s,RawMaterial,KG,1,17.60\n", "CSV file has a malformed quoted field." },
+            { "Leather\"s,RawMaterial,KG,1,17.60\n", "CSV file contains invalid characters." },
+            { "\"\",RawMaterial,KG,1,17.60\n", "CSV file contains empty fields." },
+            { "Leather,RawMaterial,KG,1,\"-17.60\"\n", "CSV file contains numeric fields with 0 or negative values." },
+        };
+        for (String[] testCase : cases) {
+            Path file = tempDir.resolve("bad_quotes.csv");
+            Files.writeString(file, header + testCase[0]);
+            InvalidDataException e = assertThrows(InvalidDataException.class,
+                    () -> parser.streamEmissionsCsv(file.toString(), record -> { }));
+            assertEquals(testCase[1], e.getMessage());
+            assertEquals(2, e.getLineNumber());
+        }
+    }
+
+    /**
+     * Test to parse CSV data from streams, which must match the files they were read from.
+     * @throws IOException if the test files cannot be read
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void parseCsv_InputStream_ShouldMatchFile() throws IOException, InvalidDataException {
+        String productPath = "src/test/resources/product/valid_shoe_production.csv";
+        String emissionsPath = "src/test/resources/emissions/valid_emissions.csv";
+
+        try (InputStream in = Files.newInputStream(Path.of(productPath))) {
+            ParsedData parsedData = parser.parseCsv(in);
+            assertEquals(parser.parseCsv(productPath).getProductString(), parsedData.getProductString());
+            assertEquals(26, parsedData.getRecords().size());
+        }
+        try (InputStream in = Files.newInputStream(gzip(emissionsPath))) {
+            ParsedEmissionsData parsedEmissionsData = parser.parseEmissionsCsv(in);
+            assertEquals(parser.parseEmissionsCsv(emissionsPath).getEmissionsString(), parsedEmissionsData.getEmissionsString());
+        }
+        assertThrows(InvalidDataException.class, () -> parser.parseCsv(new ByteArrayInputStream(new byte[0])));
+    }
+
+    /**
+     * Test to parse CSV data from a channel, which must give the same data as the file.
+     * @throws IOException if the test file cannot be read
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void parseCsv_Channel_ShouldMatchFile() throws IOException, InvalidDataException {
+        String productPath = "src/test/resources/product/valid_shoe_production.csv";
+        String emissionsPath = "src/test/resources/emissions/valid_emissions.csv";
+
+        try (ReadableByteChannel channel = Files.newByteChannel(Path.of(productPath))) {
+            ParsedData parsedData = parser.parseCsv(channel);
+            assertEquals(parser.parseCsv(productPath).getProductString(), parsedData.getProductString());
+            assertEquals(26, parsedData.getRecords().size());
+        }
+        try (ReadableByteChannel channel = Files.newByteChannel(gzip(emissionsPath))) {
+            ParsedEmissionsData parsedEmissionsData = parser.parseEmissionsCsv(channel);
+            assertEquals(parser.parseEmissionsCsv(emissionsPath).getEmissionsString(), parsedEmissionsData.getEmissionsString());
+        }
+    }
+
+    /**
+     * Test to stream CSV data from a stream and from a channel, with no limit on its length.
+     * @throws IOException if the test file cannot be written or read
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamCsv_InputStreamAndChannel_ShouldHandEveryRecord() throws IOException, InvalidDataException {
+        Path file = writeLargeProductFile(-1);
+        List<ParsedRecord> records = new ArrayList<>();
+
+        try (InputStream in = Files.newInputStream(file)) {
+            assertEquals(40000, parser.streamCsv(in, records::add));
+        }
+        assertEquals(40000.0, records.get(39999).getNumber(9));
+        try (ReadableByteChannel channel = Channels.newChannel(Files.newInputStream(gzip(file.toString())))) {
+            assertEquals(40000, parser.streamCsv(channel, record -> { }));
+        }
+
+        byte[] emissions = Files.readAllBytes(Path.of("src/test/resources/emissions/valid_emissions.csv"));
+        assertEquals(parser.streamEmissionsCsv("src/test/resources/emissions/valid_emissions.csv", record -> { }),
+                parser.streamEmissionsCsv(Channels.newChannel(new ByteArrayInputStream(emissions)), record -> { }));
+    }
+
+    /**
+     * Test to stream invalid CSV data from a stream.
+     */
+    @Test
+    void streamEmissionsCsv_InputStreamWithNullValues_ShouldReportLineNumber() {
+        byte[] data = "Name,Category,Unit,Quantity,EmissionFactor\nLeather,RawMaterial,KG,1,17.60\nnull,RawMaterial,KG,1,2\n"
+                .getBytes(StandardCharsets.UTF_8);
+        InvalidDataException e = assertThrows(InvalidDataException.class,
+                () -> parser.streamEmissionsCsv(new ByteArrayInputStream(data), record -> { }));
+        assertEquals("CSV file contains null values.", e.getMessage());
+        assertEquals(3, e.getLineNumber());
+    }
+
+    /**
+     * Test to parse JSON Lines files, which must give the same records as the CSV files they were converted from.
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void parseJsonl_ValidJsonlFile_ShouldMatchCSVRecords() throws InvalidDataException {
+        List<ParsedRecord> expected = parser.parseCsv("src/test/resources/product/valid_shoe_production.csv").getRecords();
+        List<ParsedRecord> actual = parser.parseJsonl("src/test/resources/product/valid_shoe_production.jsonl").getRecords();
+        assertSameRecords(expected, actual, 13);
+
+        expected = parser.parseEmissionsCsv("src/test/resources/emissions/valid_emissions.csv").getRecords();
+        actual = parser.parseEmissionsJsonl("src/test/resources/emissions/valid_emissions.jsonl").getRecords();
+        assertSameRecords(expected, actual, 5);
+    }
+
+    /**
+     * Test to stream a JSON Lines file with reordered, unknown and escaped keys and values.
+     * @throws IOException if the test file cannot be written
+     * @throws InvalidDataException if the data is invalid
+     */
+    @Test
+    void streamEmissionsJsonl_ReorderedKeysAndEscapes_ShouldProjectSchemaColumns() throws IOException, InvalidDataException {
+        Path file = tempDir.resolve("events.jsonl");
+        Files.writeString(file, "{\"EmissionFactor\": 17.60, \"source\": {\"bus\": [1, 2]}, \"Quantity\": \"1\", "
+                + "\"unit\": \"KG\", \"Name\": \"Leather \\\"A\\\"\", \"Cat\\u0065gory\": \"RawMaterial\"}\n"
+                + "\n"
+                + "  {\"Name\":\"Land\",\"Category\":\"LandTransport\",\"Unit\":\"Kilometers\",\"Quantity\":1,\"EmissionFactor\":0.15}  \n");
+        List<ParsedRecord> records = new ArrayList<>();
+
+        assertThrows(InvalidDataException.class, () -> parser.streamEmissionsJsonl(file.toString(), records::add));
+
+        Files.writeString(file, Files.readString(file).replace("\"source\": {\"bus\": [1, 2]}, ", "\"source\": true, "));
+        records.clear();
+        assertEquals(2, parser.streamEmissionsJsonl(file.toString(), records::add));
+        ParsedRecord record = records.get(0);
+        assertEquals(1, record.getLineNumber());
+        assertEquals(5, record.getFieldCount());
+        assertEquals("Leather \"A\"", record.getField(0));
+        assertEquals("RawMaterial", record.getField(1));
+        assertEquals("KG", record.getField(2));
+        assertEquals(1.0, record.getNumber(3));
+        assertEquals(17.60, record.getNumber(4));
+        assertEquals(3, records.get(1).getLineNumber());
+        assertEquals("Land", records.get(1).getField(0));
+        assertEquals(0.15, records.get(1).getNumber(4));
+    }
+
+    /**
+     * Test to stream invalid JSON Lines data, which must be rejected with the rules of the CSV format.
+     */
+    @Test
+    void streamEmissionsJsonl_InvalidRecords_ShouldThrowInvalidDataException() {
+        String[][] cases = {
+            { "{\"Name\": \"Leather\", \"Category\": \"RawMaterial\"", "JSONL file has a malformed record." },
+            { "[\"Leather\", \"RawMaterial\"]", "JSONL file has a malformed record." },
+            { "{\"Name\": \"Leather\", \"Quantity\": 01}", "JSONL file has a malformed record." },
+            { "{\"Name\": \"Leather\", \"Quantity\": [1]}", "JSONL file contains nested values." },
+            { "{\"Name\": null, \"Quantity\": 1}", "JSONL file contains null values." },
+            { "{\"Name\": \" \", \"Quantity\": 1}", "JSONL file contains empty fields." },
+            { "{\"Name\": \"Leather;A\", \"Quantity\": 1}", "JSONL file has inconsistent delimiters." },
+            { "{\"Name\": \"Leather\\\\A\", \"Quantity\": 1}", "JSONL file contains invalid characters." },
+            { "{\"Name\": \"Leather\", \"Quantity\": -1}", "JSONL file contains numeric fields with 0 or negative values." },
+            { "{\"Name\": \"Leather\", \"Quantity\": 1e3}", "JSONL file contains letters in numeric fields." },
+        };
+        for (String[] testCase : cases) {
+            byte[] data = ("{\"Name\": \"Land\", \"Quantity\": 1}\n" + testCase[0] + "\n").getBytes(StandardCharsets.UTF_8);
+            InvalidDataException e = assertThrows(InvalidDataException.class,
+                    () -> parser.streamEmissionsJsonl(new ByteArrayInputStream(data), record -> { }));
+            assertEquals(testCase[1], e.getMessage());
+            assertEquals(2, e.getLineNumber());
+        }
+        assertThrows(InvalidDataException.class, () -> parser.streamJsonl(new ByteArrayInputStream(new byte[0]), record -> { }));
+        assertThrows(InvalidDataException.class, () -> parser.parseJsonl("src/test/resources/product/valid_shoe_production.csv"));
+    }
+
+    /**
+     * Asserts that two lists of records hold the same fields and decoded values.
+     * @param expected the expected records
+     * @param actual the actual records
+     * @param columnCount the number of columns of the records
+     */
+    private static void assertSameRecords(List<ParsedRecord> expected, List<ParsedRecord> actual, int columnCount) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getFieldCount(), actual.get(i).getFieldCount());
+            for (int column = 0; column < columnCount; column++) {
+                assertEquals(expected.get(i).getField(column), actual.get(i).getField(column));
+                assertEquals(expected.get(i).getNumber(column), actual.get(i).getNumber(column));
+                assertEquals(expected.get(i).getOrdinal(column), actual.get(i).getOrdinal(column));
+            }
+        }
+    }
+
+    /**
+     * Writes a product file of 40000 rows whose quantities count up from 1.
+     * @param nullRow the row to write a null value in, or -1 for none
+     * @return the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path writeLargeProductFile(int nullRow) throws IOException {
+        Path file = tempDir.resolve("large_product.csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("Name,Country,Weight,Unit,Process Type,ProductFlow Name,Flow Name,Unit,Category,Quantity,Tag,Type,Origin Country");
+        for (int i = 1; i <= 40000; i++) {
+            String country = i == nullRow ? "null" : "Germany";
+            lines.add("Running Shoes,Portugal,0.8,KG,Manufacturing,Packaging,Plastic,KG,RawMaterial," + i + ",Virgin,Input," + country);
+        }
+        Files.write(file, lines);
+        return file;
+    }
+}